@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * BlockCounter is a class that counts the marked positions of a list, such as those of deleted records, in blocks of 32
+ * positions. A run of the unmarked positions can then be found by skipping whole blocks by their count, instead of
+ * looking at every position before the run.
+ * The owner of the counter changes it under its own lock, as it does the list.
+ */
+public class BlockCounter {
+    private static final int BITS = 5;
+    private static final int BLOCK_SIZE = 1 << BITS;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] counts;
+    private int total;
+
+    public BlockCounter() {
+        counts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Mark or unmark a position.
+     * @param position is the position in the list
+     * @param change is 1 to mark the position, or -1 to unmark it
+     */
+    public void add(int position, int change) {
+        int block = position >>> BITS;
+        if (block >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(block + 1, counts.length * 2));
+        }
+        counts[block] += change;
+        total += change;
+    }
+
+    /**
+     * Retrieve the number of marked positions in a block.
+     * @param block is the number of the block, which holds the positions from block * 32 on
+     */
+    public int get(int block) {
+        return block < counts.length ? counts[block] : 0;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    /**
+     * Take a run of the unmarked positions of a list. If no position is marked, the run is taken as it is. Otherwise
+     * the blocks before the run are skipped by their number of marked positions, and only the blocks the run reaches
+     * into are looked at position by position.
+     * @param size is the number of positions in the list
+     * @param skip is the number of unmarked positions before the run
+     * @param count is the largest number of positions to take
+     * @param markedInBlock gives the number of marked positions in a block, or null if no position is marked
+     * @param isMarked checks if a position is marked
+     * @return the positions of the run, in ascending order
+     */
+    public static int[] getUnmarkedRun(int size, int skip, int count, IntUnaryOperator markedInBlock,
+                                       IntPredicate isMarked) {
+        if (markedInBlock == null) {
+            return IntStream.range(Math.min(skip, size), (int) Math.min(size, (long) skip + count)).toArray();
+        }
+        int position = 0;
+        int toSkip = skip;
+        while (position + BLOCK_SIZE <= size) {
+            int unmarkedCount = BLOCK_SIZE - markedInBlock.applyAsInt(position >>> BITS);
+            if (toSkip < unmarkedCount) {
+                break;
+            }
+            toSkip -= unmarkedCount;
+            position += BLOCK_SIZE;
+        }
+        int[] positions = new int[Math.max(0, Math.min(count, size - position - toSkip))];
+        int taken = 0;
+        for (; position < size && taken < positions.length; position++) {
+            if (isMarked.test(position)) {
+                continue;
+            }
+            if (toSkip > 0) {
+                toSkip--;
+            } else {
+                positions[taken++] = position;
+            }
+        }
+        return taken == positions.length ? positions : Arrays.copyOf(positions, taken);
+    }
+}
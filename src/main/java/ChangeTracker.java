@@ -0,0 +1,40 @@
+import java.util.BitSet;
+
+/**
+ * ChangeTracker is a class that remembers which positions of a list have been added or modified since the list was
+ * last saved, so that only those records need to be written to disk.
+ */
+public class ChangeTracker {
+    private final BitSet changedIndexes;
+
+    public ChangeTracker() {
+        changedIndexes = new BitSet();
+    }
+
+    /**
+     * Mark the record at the given position as changed.
+     * @param index is the position of the record in its list, starting from 0
+     */
+    public synchronized void markChanged(int index) {
+        assert index >= 0 : "index of changed record should not be negative!";
+        changedIndexes.set(index);
+    }
+
+    /**
+     * Retrieve the positions changed since the last call and start tracking afresh.
+     * @return the changed positions in ascending order
+     */
+    public synchronized int[] takeChanges() {
+        int[] changes = changedIndexes.stream().toArray();
+        changedIndexes.clear();
+        return changes;
+    }
+
+    public synchronized void clear() {
+        changedIndexes.clear();
+    }
+
+    public synchronized boolean hasChanges() {
+        return !changedIndexes.isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Csv is a class that reads and writes single lines of comma-separated values.
+ * Fields may be wrapped in double quotes to hold commas, and a double quote inside a quoted field is written twice.
+ * Records spanning several lines are not supported.
+ */
+public class Csv {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    /**
+     * Split one line into its fields.
+     * @param line is the line to split, without its line break
+     * @return the fields of the line, or null if a quoted field is not closed
+     */
+    public static String[] parse(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (isQuoted) {
+                if (c != QUOTE) {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                    field.append(QUOTE);
+                    i++;
+                } else {
+                    isQuoted = false;
+                }
+            } else if (c == QUOTE) {
+                isQuoted = true;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (isQuoted) {
+            return null;
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Write one field, quoting it only if it holds a comma, a double quote or a line break.
+     * @param output is where the field is written to
+     * @param field is the value of the field
+     */
+    public static void appendField(Appendable output, String field) throws IOException {
+        boolean shouldQuote = false;
+        for (int i = 0; i < field.length() && !shouldQuote; i++) {
+            char c = field.charAt(i);
+            shouldQuote = c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r';
+        }
+        if (!shouldQuote) {
+            output.append(field);
+            return;
+        }
+        output.append(QUOTE);
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == QUOTE) {
+                output.append(QUOTE);
+            }
+            output.append(c);
+        }
+        output.append(QUOTE);
+    }
+
+    /**
+     * Write a whole record followed by a line break.
+     * @param output is where the record is written to
+     * @param fields are the values of the record
+     */
+    public static void appendRecord(Appendable output, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                output.append(SEPARATOR);
+            }
+            appendField(output, fields[i]);
+        }
+        output.append(System.lineSeparator());
+    }
+}
@@ -0,0 +1,345 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * CsvImporter is a class that adds patients, visits or prescriptions in bulk from a CSV file.
+ * The file is streamed in chunks of rows. The rows of each chunk are checked in parallel with the same rules used when
+ * loading data files, then added to the list in file order, so memory use does not grow with the size of the file.
+ * Rows that cannot be added are written to a report file next to the CSV file, and the list is saved once at the end.
+ */
+public class CsvImporter {
+    public static final String REPORT_FILE_SUFFIX = ".rejected.csv";
+    private static final int CHUNK_ROWS = 8192;
+    private static final String[] PATIENT_HEADER = {"name", "gender", "dob", "id"};
+    private static final String[] VISIT_HEADER = {"id", "date", "time", "reason"};
+    private static final String[] PRESCRIPTION_HEADER = {"id", "medicine", "dosage", "interval"};
+    private static final String[] REPORT_HEADER = {"line", "error", "row"};
+    private static final String WRONG_COLUMN_COUNT = "Wrong number of columns";
+    private static final String SEPARATOR_IN_FIELD = "Fields cannot contain |";
+    private static final String UNKNOWN_PATIENT = "That patient ID doesn't exist!";
+    private static final String DUPLICATE_PATIENT = "That patient ID already exists!";
+    private static final String DUPLICATE_VISIT = "There is already a visit with the same ID, date and time";
+    private static final String INVALID_PATIENT = "Invalid patient details";
+    private static final String INVALID_VISIT = "Invalid visit details";
+    private static final String INVALID_PRESCRIPTION = "Invalid prescription details";
+
+    private final PatientList patientList;
+    private final VisitList visitList;
+    private final PrescriptionList prescriptionList;
+    private final Storage storage;
+
+    public CsvImporter(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList,
+                       Storage storage) {
+        this.patientList = patientList;
+        this.visitList = visitList;
+        this.prescriptionList = prescriptionList;
+        this.storage = storage;
+    }
+
+    /**
+     * Import patients from rows of name, gender, date of birth and ID.
+     * @param file is the CSV file, whose first row may be the header name,gender,dob,id
+     * @return the number of imported and rejected rows
+     */
+    public ImportResult importPatients(File file) throws OneDocException {
+        HashSet<String> patientIds = getPatientIds();
+        ImportResult result = importRows(file, PATIENT_HEADER, new RowHandler() {
+            @Override
+            public String[] toInputs(String[] row) {
+                if (row.length != PATIENT_HEADER.length) {
+                    return null;
+                }
+                return new String[] {row[0], row[2], row[1].toUpperCase(Locale.ROOT), row[3].toUpperCase(Locale.ROOT)};
+            }
+
+            @Override
+            public String check(String[] inputs) {
+                String dateError = DateTimeValidator.validateBirthDate(inputs[1]);
+                if (dateError != null) {
+                    return dateError;
+                }
+                return Parser.isPatientInputValid(inputs) ? null : INVALID_PATIENT;
+            }
+
+            @Override
+            public String add(String[] inputs) {
+                if (!patientIds.add(inputs[3])) {
+                    return DUPLICATE_PATIENT;
+                }
+                patientList.importPatient(inputs[0], inputs[1], inputs[2], inputs[3]);
+                return null;
+            }
+        });
+        if (result.getImported() > 0) {
+            storage.savePatientData(patientList);
+        }
+        return result;
+    }
+
+    /**
+     * Import visits from rows of patient ID, date, time and an optional reason.
+     * @param file is the CSV file, whose first row may be the header id,date,time,reason
+     * @return the number of imported and rejected rows
+     */
+    public ImportResult importVisits(File file) throws OneDocException {
+        HashSet<String> patientIds = getPatientIds();
+        HashSet<String> visitKeys = new HashSet<>();
+        visitList.loadAll();
+        for (Visit visit : visitList.getVisits()) {
+            visitKeys.add(getVisitKey(visit.getId(), visit.getDateOfVisit(), visit.getTimeOfVisit()));
+        }
+        ImportResult result = importRows(file, VISIT_HEADER, new RowHandler() {
+            @Override
+            public String[] toInputs(String[] row) {
+                if (row.length != VISIT_HEADER.length && row.length != VISIT_HEADER.length - 1) {
+                    return null;
+                }
+                String reason = row.length == VISIT_HEADER.length ? row[3] : "";
+                return new String[] {row[0].toUpperCase(Locale.ROOT), reason, row[1], row[2]};
+            }
+
+            @Override
+            public String check(String[] inputs) {
+                String dateError = DateTimeValidator.validateVisitDate(inputs[2]);
+                if (dateError != null) {
+                    return dateError;
+                }
+                String timeError = DateTimeValidator.validateTime(inputs[3]);
+                if (timeError != null) {
+                    return timeError;
+                }
+                if (!patientIds.contains(inputs[0])) {
+                    return UNKNOWN_PATIENT;
+                }
+                return Parser.isVisitInputValid(inputs, patientIds::contains) ? null : INVALID_VISIT;
+            }
+
+            @Override
+            public String add(String[] inputs) {
+                if (!visitKeys.add(getVisitKey(inputs[0], inputs[2], inputs[3]))) {
+                    return DUPLICATE_VISIT;
+                }
+                visitList.importVisit(inputs[0], inputs[2], inputs[3], inputs[1]);
+                return null;
+            }
+        });
+        if (result.getImported() > 0) {
+            storage.saveVisitData(visitList);
+        }
+        return result;
+    }
+
+    /**
+     * Import active prescriptions from rows of patient ID, medicine, dosage and time interval.
+     * @param file is the CSV file, whose first row may be the header id,medicine,dosage,interval
+     * @return the number of imported and rejected rows
+     */
+    public ImportResult importPrescriptions(File file) throws OneDocException {
+        HashSet<String> patientIds = getPatientIds();
+        HashSet<String> prescriptionKeys = new HashSet<>();
+        prescriptionList.loadAll();
+        for (Prescription prescription : prescriptionList.getPrescriptions()) {
+            prescriptionKeys.add(getPrescriptionKey(prescription.getPatientId(), prescription.getMedicine(),
+                    prescription.getDosage(), prescription.getTimeInterval()));
+        }
+        ImportResult result = importRows(file, PRESCRIPTION_HEADER, new RowHandler() {
+            @Override
+            public String[] toInputs(String[] row) {
+                if (row.length != PRESCRIPTION_HEADER.length) {
+                    return null;
+                }
+                return new String[] {row[0].toUpperCase(Locale.ROOT), row[1], row[2], row[3], "T"};
+            }
+
+            @Override
+            public String check(String[] inputs) {
+                if (!patientIds.contains(inputs[0])) {
+                    return UNKNOWN_PATIENT;
+                }
+                return Parser.isPrescriptionInputValid(inputs, patientIds::contains) ? null : INVALID_PRESCRIPTION;
+            }
+
+            @Override
+            public String add(String[] inputs) {
+                if (!prescriptionKeys.add(getPrescriptionKey(inputs[0], inputs[1], inputs[2], inputs[3]))) {
+                    return UI.DUPLICATE_PRESCRIPTION_MESSAGE;
+                }
+                prescriptionList.importPrescription(inputs[0], inputs[1], inputs[2], inputs[3]);
+                return null;
+            }
+        });
+        if (result.getImported() > 0) {
+            storage.savePrescriptionData(prescriptionList);
+        }
+        return result;
+    }
+
+    private HashSet<String> getPatientIds() {
+        HashSet<String> patientIds = new HashSet<>();
+        for (Patient patient : patientList.getPatients()) {
+            if (!patient.isDeleted()) {
+                patientIds.add(patient.getId().toUpperCase(Locale.ROOT));
+            }
+        }
+        return patientIds;
+    }
+
+    private static String getVisitKey(String id, String dateOfVisit, String timeOfVisit) {
+        return id + '\n' + dateOfVisit + '\n' + timeOfVisit;
+    }
+
+    private static String getPrescriptionKey(String patientId, String medicine, String dosage, String timeInterval) {
+        return (patientId + '\n' + medicine + '\n' + dosage + '\n' + timeInterval).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Stream the rows of a CSV file through a handler, a chunk at a time.
+     * Within a chunk, rows are converted and checked in parallel, then added one by one in the order of the file.
+     */
+    private ImportResult importRows(File file, String[] header, RowHandler handler) throws OneDocException {
+        if (!file.isFile()) {
+            throw new OneDocException(OneDocException.Type.FILE_ERROR,
+                    "The file " + file.getPath() + " could not be found!");
+        }
+        File reportFile = new File(file.getPath() + REPORT_FILE_SUFFIX);
+        ImportResult result = new ImportResult(reportFile);
+        ArrayList<String> lines = new ArrayList<>(CHUNK_ROWS);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+             Writer report = new BufferedWriter(
+                     new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+            Csv.appendRecord(report, REPORT_HEADER);
+            int lineNumber = 0;
+            int firstLineOfChunk = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(line, header)) {
+                    firstLineOfChunk = 2;
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_ROWS) {
+                    importChunk(lines, firstLineOfChunk, handler, report, result);
+                    firstLineOfChunk = lineNumber + 1;
+                    lines.clear();
+                }
+            }
+            importChunk(lines, firstLineOfChunk, handler, report, result);
+        } catch (IOException e) {
+            throw new OneDocException(OneDocException.Type.FILE_ERROR, "The file " + file.getPath()
+                    + " could not be read completely! " + result.getImported()
+                    + " rows were imported before the error.");
+        }
+        if (result.getRejected() == 0) {
+            reportFile.delete();
+        }
+        return result;
+    }
+
+    private void importChunk(ArrayList<String> lines, int firstLineNumber, RowHandler handler, Writer report,
+                             ImportResult result) throws IOException {
+        int size = lines.size();
+        String[][] inputs = new String[size][];
+        String[] errors = new String[size];
+        IntStream.range(0, size).parallel().forEach(i -> {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                return;
+            }
+            String[] row = Csv.parse(line);
+            inputs[i] = row == null ? null : handler.toInputs(row);
+            if (inputs[i] == null) {
+                errors[i] = WRONG_COLUMN_COUNT;
+            } else if (containsSeparator(inputs[i])) {
+                errors[i] = SEPARATOR_IN_FIELD;
+            } else {
+                errors[i] = handler.check(inputs[i]);
+            }
+        });
+
+        for (int i = 0; i < size; i++) {
+            if (inputs[i] == null && errors[i] == null) {
+                continue;
+            }
+            String error = errors[i] == null ? handler.add(inputs[i]) : errors[i];
+            if (error == null) {
+                result.imported++;
+            } else {
+                result.rejected++;
+                Csv.appendRecord(report, Integer.toString(firstLineNumber + i), error, lines.get(i));
+            }
+        }
+    }
+
+    private static boolean isHeader(String line, String[] header) {
+        String[] row = Csv.parse(line);
+        if (row == null || row.length < header.length - 1 || row.length > header.length) {
+            return false;
+        }
+        for (int i = 0; i < row.length; i++) {
+            if (!row[i].equalsIgnoreCase(header[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsSeparator(String[] inputs) {
+        for (String input : inputs) {
+            if (input.indexOf('|') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * RowHandler turns one CSV row into the fields of a record, checks them, and adds the record to its list.
+     * Converting and checking may run on several threads at once, while adding runs on one thread in file order.
+     */
+    private interface RowHandler {
+        String[] toInputs(String[] row);
+
+        String check(String[] inputs);
+
+        String add(String[] inputs);
+    }
+
+    /**
+     * ImportResult holds how many rows of a CSV file were imported and rejected.
+     */
+    public static class ImportResult {
+        private final File reportFile;
+        private int imported;
+        private int rejected;
+
+        private ImportResult(File reportFile) {
+            this.reportFile = reportFile;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public File getReportFile() {
+            return reportFile;
+        }
+    }
+}
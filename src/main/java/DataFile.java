@@ -0,0 +1,1147 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * DataFile is a class that manages the files one list is stored in.
+ * With a single shard, the records are kept in one data file plus a patch file of the records changed since the data
+ * file was last rewritten. With several shards, each record is kept in the shard chosen by the hash of its patient ID,
+ * every record carries its position in the list, and a save only rewrites the shards it touched.
+ * Records are stored either as " | "-separated text lines or in a binary format with a versioned header, the record
+ * count up front and length-prefixed UTF-8 fields.
+ * Every file is written together with a checksum file holding its CRC32 and length. On load, the records of a file whose
+ * checksum still matches are trusted and passed on without having to be validated again.
+ * A follower reads the files of an unsharded list written by another process, re-reading the data file whenever its
+ * checksum file changes and otherwise applying the records appended to the patch file since its last look.
+ * An unsharded list can also be loaded lazily, noting only where each record of the data file is and reading the
+ * records later as they are needed, see LazyRecords.
+ */
+public class DataFile {
+    private static final String PATCH_FILE_SUFFIX = ".patch";
+    private static final String SHARD_FILE_SUFFIX = ".shard";
+    private static final String CHECKSUM_FILE_SUFFIX = ".crc";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final int CHECKSUM_BUFFER_BYTES = 1 << 16;
+    private static final String SEPARATOR = " | ";
+    private static final String SEPARATOR_REGEX = " \\| ";
+    private static final int MIN_PATCH_LINES = 256;
+    private static final int PATCH_TO_DATA_RATIO = 4;
+    private static final int BINARY_MAGIC = 0x4F446F63;
+    private static final int BINARY_VERSION = 1;
+    private static final int BINARY_HEADER_BYTES = 12;
+    private static final int OPEN_ENDED_COUNT = -1;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+
+    private final File file;
+    private final File patchFile;
+    private final int fieldCount;
+    private final int shardCount;
+    private final boolean isBinary;
+    private int baseLines;
+    private int patchLines;
+    private CRC32 patchChecksum;
+    private volatile boolean shouldRewrite;
+    private String followedVersion;
+    private long followedPatchBytes;
+
+    /**
+     * Create the DataFile of one list.
+     * @param file is the data file, next to which the patch and shard files are kept
+     * @param fieldCount is the number of fields each record has
+     * @param shardCount is the number of shards, where 1 keeps the list in a single data file
+     * @param isBinary is true if records are stored in the binary format, and false for text
+     */
+    public DataFile(File file, int fieldCount, int shardCount, boolean isBinary) {
+        assert fieldCount >= 1 : "records should have at least one field!";
+        assert shardCount >= 1 : "there should be at least one shard!";
+        this.file = file;
+        this.patchFile = new File(file.getPath() + PATCH_FILE_SUFFIX);
+        this.fieldCount = fieldCount;
+        this.shardCount = shardCount;
+        this.isBinary = isBinary;
+    }
+
+    public String getKey() {
+        return file.getAbsolutePath();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * Check if any file of this list has been written before.
+     * @return true if the data file, its patch file or any shard file exists
+     */
+    public boolean exists() {
+        return file.exists() || patchFile.exists() || !findShardFiles().isEmpty();
+    }
+
+    /**
+     * Delete every file of this list. This is used once the list has been converted into another format.
+     */
+    public void delete() {
+        deleteWithChecksum(file);
+        deleteWithChecksum(patchFile);
+        deleteShardFiles(0);
+    }
+
+    /**
+     * Make the next save rewrite every record instead of only the changed ones.
+     */
+    public void requestRewrite() {
+        shouldRewrite = true;
+    }
+
+    /**
+     * Check if a requested rewrite has not been completed yet, e.g. because the last one failed.
+     * @return true if the next save will still rewrite every record
+     */
+    public boolean isRewritePending() {
+        return shouldRewrite;
+    }
+
+    /**
+     * Find the shard a record belongs to, ignoring the case of the patient ID.
+     * @param patientId is the ID of the patient the record belongs to
+     * @param shardCount is the number of shards
+     * @return the shard number, ranging from 0 to shardCount - 1
+     */
+    public static int getShard(String patientId, int shardCount) {
+        int hash = 0;
+        for (int i = 0; i < patientId.length(); i++) {
+            hash = 31 * hash + Character.toUpperCase(patientId.charAt(i));
+        }
+        return Math.floorMod(hash, shardCount);
+    }
+
+    private File getShardFile(int shard) {
+        return new File(file.getPath() + SHARD_FILE_SUFFIX + shard);
+    }
+
+    private ArrayList<File> findShardFiles() {
+        ArrayList<File> shardFiles = new ArrayList<>();
+        File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+        if (files == null) {
+            return shardFiles;
+        }
+        String prefix = file.getName() + SHARD_FILE_SUFFIX;
+        for (File candidate : files) {
+            String name = candidate.getName();
+            if (name.startsWith(prefix) && isIndex(name.substring(prefix.length()))) {
+                shardFiles.add(candidate);
+            }
+        }
+        return shardFiles;
+    }
+
+    /**
+     * Load every record stored for the list.
+     * If shard files exist, they are read in parallel and their records loaded in order of position. Otherwise the
+     * data file is read, followed by its patch file. The records of each file are marked as trusted if the file still
+     * matches its checksum. If any file was not trusted, held an invalid record or is laid out differently from the
+     * current settings, the next save rewrites the whole list.
+     * @param presizer is told how many records to expect, if the format stores the count up front
+     * @param loader checks each record and loads it into its list
+     * @return whether any record was loaded, whether any record was invalid and whether every file was trusted
+     */
+    public LoadResult load(IntConsumer presizer, RecordLoader loader) {
+        ArrayList<File> shardFiles = findShardFiles();
+        if (!shardFiles.isEmpty()) {
+            LoadResult result = loadShards(shardFiles, presizer, loader);
+            boolean isLayoutChanged = shardFiles.size() != shardCount || file.exists() || patchFile.exists();
+            if (isLayoutChanged || !result.isTrusted || result.isInvalid) {
+                shouldRewrite = true;
+            }
+            return result;
+        }
+
+        LoadResult result = new LoadResult();
+        if (!file.exists()) {
+            return result;
+        }
+        boolean isFileTrusted = isChecksumValid(file, new CRC32());
+        int[] count = new int[1];
+        readRecords(file, false, presizer, (position, fields) -> {
+            if (fields != null && loader.load(count[0], fields, isFileTrusted)) {
+                count[0]++;
+                result.isLoaded = true;
+            } else {
+                result.isInvalid = true;
+            }
+        });
+        baseLines = count[0];
+        patchLines = 0;
+        patchChecksum = new CRC32();
+        result.isTrusted = isFileTrusted;
+
+        if (patchFile.exists()) {
+            boolean isPatchTrusted = isChecksumValid(patchFile, patchChecksum);
+            readRecords(patchFile, true, expected -> { }, (position, fields) -> {
+                patchLines++;
+                if (fields != null && loader.load(position, fields, isPatchTrusted)) {
+                    result.isLoaded = true;
+                } else {
+                    result.isInvalid = true;
+                }
+            });
+            result.isTrusted = result.isTrusted && isPatchTrusted;
+        }
+        if (isSharded() || !result.isTrusted || result.isInvalid) {
+            shouldRewrite = true;
+        }
+        return result;
+    }
+
+    private LoadResult loadShards(ArrayList<File> shardFiles, IntConsumer presizer, RecordLoader loader) {
+        List<StoredRecord> storedRecords = shardFiles.parallelStream()
+                .map(this::readShard)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        presizer.accept(storedRecords.size());
+
+        LoadResult result = new LoadResult();
+        result.isTrusted = true;
+        storedRecords.sort(Comparator.comparingInt(storedRecord -> storedRecord.position));
+        int count = 0;
+        for (StoredRecord storedRecord : storedRecords) {
+            result.isTrusted = result.isTrusted && storedRecord.isTrusted;
+            if (storedRecord.fields != null && loader.load(count, storedRecord.fields, storedRecord.isTrusted)) {
+                count++;
+                result.isLoaded = true;
+            } else {
+                result.isInvalid = true;
+            }
+        }
+        return result;
+    }
+
+    private List<StoredRecord> readShard(File shardFile) {
+        ArrayList<StoredRecord> storedRecords = new ArrayList<>();
+        boolean isShardTrusted = isChecksumValid(shardFile, new CRC32());
+        readRecords(shardFile, true, storedRecords::ensureCapacity,
+            (position, fields) -> storedRecords.add(new StoredRecord(position, fields, isShardTrusted)));
+        return storedRecords;
+    }
+
+    /**
+     * Load the list lazily. Instead of loading the records of the data file, this only notes where each of them is,
+     * while checking the data file against its checksum in the same pass. The patch file is then loaded as usual on
+     * top of the positions kept for them.
+     * The list is loaded in full as by load if it is sharded, its data file does not match its checksum or the next
+     * save will rewrite it anyway.
+     * @param reserver is told how many records the data file holds, which the list keeps positions for
+     * @param loader checks each record and loads it into its list, now for the patch file and later for the data file
+     * @param keyField is a field other than the patient ID that the records are looked up by, or -1 for none
+     * @param isDeleted checks if the fields of a record are those of a deleted record, which are counted while scanning
+     * @return the result of loading, with the records left in the data file if the list was loaded lazily
+     */
+    public LoadResult loadLazily(IntConsumer reserver, RecordLoader loader, int keyField,
+                                 Predicate<String[]> isDeleted) {
+        if (isSharded() || shouldRewrite || !file.exists() || !findShardFiles().isEmpty()) {
+            return load(expected -> { }, loader);
+        }
+        LazyRecords lazyRecords = new LazyRecords(this, loader, keyField, isDeleted);
+        CRC32 checksum = new CRC32();
+        long length;
+        try (InputStream input = new BufferedInputStream(new CheckedInputStream(new FileInputStream(file), checksum))) {
+            length = isBinary ? scanBinaryRecords(input, lazyRecords) : scanTextRecords(input, lazyRecords);
+        } catch (IOException e) {
+            length = -1;
+        }
+        if (length < 0 || !isChecksumMatched(file, checksum, length)) {
+            return load(expected -> { }, loader);
+        }
+
+        LoadResult result = new LoadResult();
+        reserver.accept(lazyRecords.size());
+        baseLines = lazyRecords.size();
+        patchLines = 0;
+        patchChecksum = new CRC32();
+        result.isLoaded = lazyRecords.size() > 0;
+        result.lazyRecords = lazyRecords;
+        if (patchFile.exists()) {
+            boolean isPatchTrusted = isChecksumValid(patchFile, patchChecksum);
+            readRecords(patchFile, true, expected -> { }, (position, fields) -> {
+                patchLines++;
+                if (fields != null) {
+                    lazyRecords.markLoaded(position);
+                }
+                if (fields != null && loader.load(position, fields, isPatchTrusted)) {
+                    result.isLoaded = true;
+                } else {
+                    result.isInvalid = true;
+                }
+            });
+            result.isTrusted = isPatchTrusted;
+        }
+        if (!result.isTrusted || result.isInvalid) {
+            shouldRewrite = true;
+        }
+        return result;
+    }
+
+    /**
+     * Note where each line of a text data file is.
+     * @return the number of bytes read
+     */
+    private long scanTextRecords(InputStream input, LazyRecords lazyRecords) throws IOException {
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long offset = 0;
+        long lineOffset = 0;
+        int read;
+        while ((read = input.read()) >= 0) {
+            offset++;
+            if (read != '\n') {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, lineLength * 2);
+                }
+                line[lineLength++] = (byte) read;
+                continue;
+            }
+            scanTextRecord(line, lineLength, lineOffset, lazyRecords);
+            lineLength = 0;
+            lineOffset = offset;
+        }
+        scanTextRecord(line, lineLength, lineOffset, lazyRecords);
+        return offset;
+    }
+
+    private void scanTextRecord(byte[] line, int lineLength, long lineOffset, LazyRecords lazyRecords) {
+        String input = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+        if (!input.isEmpty()) {
+            lazyRecords.add(lineOffset, lineLength, input.split(SEPARATOR_REGEX, fieldCount));
+        }
+    }
+
+    /**
+     * Note where each record of a binary data file is.
+     * @return the number of bytes read, or -1 if the file is not a complete binary data file
+     */
+    private long scanBinaryRecords(InputStream stream, LazyRecords lazyRecords) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        int recordCount;
+        try {
+            if (input.readInt() != BINARY_MAGIC || input.readShort() != BINARY_VERSION
+                    || input.readShort() != fieldCount) {
+                return -1;
+            }
+            recordCount = input.readInt();
+            long offset = BINARY_HEADER_BYTES;
+            for (int i = 0; i < recordCount; i++) {
+                long recordOffset = offset;
+                String[] fields = new String[fieldCount];
+                for (int j = 0; j < fieldCount; j++) {
+                    byte[] bytes = new byte[input.readUnsignedShort()];
+                    input.readFully(bytes);
+                    fields[j] = new String(bytes, StandardCharsets.UTF_8);
+                    offset += Short.BYTES + bytes.length;
+                }
+                lazyRecords.add(recordOffset, (int) (offset - recordOffset), fields);
+            }
+            return recordCount < 0 || input.read() >= 0 ? -1 : offset;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Read records from given places of the data file, which must not have been rewritten since they were noted.
+     * @param offsets are where each record starts, by position
+     * @param lengths are the number of bytes of each record, by position
+     * @param positions are the positions of the records to read, in ascending order
+     * @param loader loads each record into its list
+     */
+    public void readAt(long[] offsets, int[] lengths, int[] positions, RecordLoader loader) {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            long offset = 0;
+            for (int position : positions) {
+                while (offset < offsets[position]) {
+                    long skipped = input.skip(offsets[position] - offset);
+                    if (skipped <= 0) {
+                        throw new EOFException();
+                    }
+                    offset += skipped;
+                }
+                byte[] bytes = new byte[lengths[position]];
+                int read = input.readNBytes(bytes, 0, bytes.length);
+                offset += read;
+                if (read < bytes.length) {
+                    throw new EOFException();
+                }
+                String[] fields = isBinary
+                        ? getBinaryFields(ByteBuffer.wrap(bytes))
+                        : new String(bytes, StandardCharsets.UTF_8).trim().split(SEPARATOR_REGEX, fieldCount);
+                loader.load(position, fields, true);
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            UI.printErrorMessage(UI.MISSING_DATA_FILES_ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Read every record of one file in the format of this list.
+     * Invalid records are passed on with null fields so that they can be reported.
+     */
+    private void readRecords(File recordFile, boolean hasPositions, IntConsumer presizer, RecordConsumer consumer) {
+        try {
+            if (isBinary) {
+                readBinaryRecords(recordFile, hasPositions, presizer, consumer);
+            } else {
+                readTextRecords(recordFile, hasPositions, consumer);
+            }
+        } catch (IOException e) {
+            UI.printErrorMessage(UI.MISSING_DATA_FILES_ERROR_MESSAGE);
+        }
+    }
+
+    private void readTextRecords(File recordFile, boolean hasPositions, RecordConsumer consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(recordFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                readTextRecord(line, hasPositions, consumer);
+            }
+        }
+    }
+
+    private void readTextRecord(String line, boolean hasPositions, RecordConsumer consumer) {
+        String input = line.trim();
+        if (input.isEmpty()) {
+            return;
+        }
+        if (!hasPositions) {
+            consumer.accept(-1, input.split(SEPARATOR_REGEX, fieldCount));
+            return;
+        }
+        String[] change = input.split(SEPARATOR_REGEX, 2);
+        if (change.length == 2 && isIndex(change[0])) {
+            consumer.accept(Integer.parseInt(change[0]), change[1].split(SEPARATOR_REGEX, fieldCount));
+        } else {
+            consumer.accept(-1, null);
+        }
+    }
+
+    private void readBinaryRecords(File recordFile, boolean hasPositions, IntConsumer presizer,
+                                   RecordConsumer consumer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(recordFile)))) {
+            int recordCount;
+            try {
+                if (input.readInt() != BINARY_MAGIC || input.readShort() != BINARY_VERSION
+                        || input.readShort() != fieldCount) {
+                    consumer.accept(-1, null);
+                    return;
+                }
+                recordCount = input.readInt();
+            } catch (EOFException e) {
+                consumer.accept(-1, null);
+                return;
+            }
+            if (recordCount >= 0) {
+                presizer.accept(recordCount);
+            }
+            for (int i = 0; recordCount < 0 || i < recordCount; i++) {
+                int position = i;
+                if (recordCount < 0 || hasPositions) {
+                    try {
+                        position = input.readInt();
+                    } catch (EOFException e) {
+                        if (recordCount >= 0) {
+                            consumer.accept(-1, null);
+                        }
+                        return;
+                    }
+                }
+                String[] fields = readBinaryFields(input);
+                if (fields == null || position < 0) {
+                    consumer.accept(-1, null);
+                    return;
+                }
+                consumer.accept(position, fields);
+            }
+        }
+    }
+
+    private String[] readBinaryFields(DataInputStream input) throws IOException {
+        String[] fields = new String[fieldCount];
+        try {
+            for (int i = 0; i < fieldCount; i++) {
+                byte[] bytes = new byte[input.readUnsignedShort()];
+                input.readFully(bytes);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+        return fields;
+    }
+
+    private static File getChecksumFile(File recordFile) {
+        return new File(recordFile.getPath() + CHECKSUM_FILE_SUFFIX);
+    }
+
+    /**
+     * Check if a file still holds exactly what was written to it, by comparing it with its checksum file.
+     * @param checksum is updated with the content of the file, so that later appends can continue it
+     * @return true if the checksum file exists and matches both the CRC32 and the length of the file
+     */
+    private static boolean isChecksumValid(File recordFile, CRC32 checksum) {
+        if (!getChecksumFile(recordFile).exists()) {
+            return false;
+        }
+        try (InputStream input = new FileInputStream(recordFile)) {
+            byte[] buffer = new byte[CHECKSUM_BUFFER_BYTES];
+            long length = 0;
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                checksum.update(buffer, 0, read);
+                length += read;
+            }
+            return isChecksumMatched(recordFile, checksum, length);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compare the checksum and length of everything read from a file with its checksum file.
+     */
+    private static boolean isChecksumMatched(File recordFile, CRC32 checksum, long length) {
+        try {
+            String[] stored = new String(Files.readAllBytes(getChecksumFile(recordFile).toPath()),
+                    StandardCharsets.UTF_8).trim().split(" ");
+            return stored.length == 2 && stored[0].equals(Long.toHexString(checksum.getValue()))
+                    && stored[1].equals(Long.toString(length));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void writeChecksumFile(File recordFile, CRC32 checksum) {
+        File checksumFile = getChecksumFile(recordFile);
+        String content = Long.toHexString(checksum.getValue()) + " " + recordFile.length();
+        try {
+            Files.write(checksumFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Without a checksum the file is validated row by row on the next load, so nothing is lost.
+            checksumFile.delete();
+        }
+    }
+
+    private static void deleteWithChecksum(File recordFile) {
+        recordFile.delete();
+        getChecksumFile(recordFile).delete();
+    }
+
+    private static boolean isIndex(String input) {
+        if (input.isEmpty() || input.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < input.length(); i++) {
+            if (!Character.isDigit(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bring a follower's copy of the list up to date with the files written by the primary.
+     * The data file is re-read whenever its checksum file has changed, which the primary only writes once the data
+     * file is complete and the old patch file is gone. Otherwise only the complete records appended to the patch file
+     * since the last call are read. The first call reads everything.
+     * Sharded lists cannot be followed, as their shards are rewritten in place.
+     * @param loader loads each record into its position in the list
+     * @return true if any record was loaded
+     */
+    public boolean follow(RecordLoader loader) {
+        assert !isSharded() : "sharded lists cannot be followed!";
+        boolean isChanged = false;
+        String version = getFollowedVersion();
+        if (!version.equals(followedVersion)) {
+            boolean isTrusted = isChecksumValid(file, new CRC32());
+            if (!isTrusted && getChecksumFile(file).exists()) {
+                // The data file is being rewritten, so wait for its new checksum file.
+                return false;
+            }
+            int[] count = new int[1];
+            if (file.exists()) {
+                readRecords(file, false, expected -> { }, (position, fields) -> {
+                    if (fields != null && loader.load(count[0], fields, isTrusted)) {
+                        count[0]++;
+                    }
+                });
+            }
+            followedVersion = version;
+            followedPatchBytes = 0;
+            isChanged = count[0] > 0;
+        }
+
+        byte[] patch = readFrom(patchFile, followedPatchBytes);
+        if (patch.length == 0 || !getFollowedVersion().equals(followedVersion)) {
+            // A patch read while the data file was rewritten may belong to either, so it is read again next time.
+            return isChanged;
+        }
+        int[] count = new int[1];
+        RecordConsumer consumer = (position, fields) -> {
+            if (fields != null && loader.load(position, fields, true)) {
+                count[0]++;
+            }
+        };
+        followedPatchBytes += isBinary
+                ? readBinaryPatch(patch, followedPatchBytes == 0, consumer)
+                : readTextPatch(patch, consumer);
+        return isChanged || count[0] > 0;
+    }
+
+    /**
+     * Tell which version of the data file a follower has read, by the checksum file the primary writes after it.
+     * A data file without a checksum file, e.g. one holding ambiguous text, is told apart by its length and time.
+     */
+    private String getFollowedVersion() {
+        File checksumFile = getChecksumFile(file);
+        try {
+            if (checksumFile.exists()) {
+                return new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim();
+            }
+        } catch (IOException e) {
+            // The checksum file was removed while being read, so fall back to the data file itself.
+        }
+        return file.exists() ? file.length() + "@" + file.lastModified() : "";
+    }
+
+    /**
+     * Read a file from an offset to its current end.
+     * @return the bytes read, which are empty if the file is missing or has become shorter than the offset
+     */
+    private static byte[] readFrom(File recordFile, long offset) {
+        try (RandomAccessFile input = new RandomAccessFile(recordFile, "r")) {
+            long length = input.length();
+            if (length <= offset) {
+                return new byte[0];
+            }
+            byte[] bytes = new byte[(int) (length - offset)];
+            input.seek(offset);
+            input.readFully(bytes);
+            return bytes;
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Read the complete lines of a text patch, leaving a line still being written for the next read.
+     * @return the number of bytes read
+     */
+    private int readTextPatch(byte[] patch, RecordConsumer consumer) {
+        int end = patch.length;
+        while (end > 0 && patch[end - 1] != '\n') {
+            end--;
+        }
+        String lines = new String(patch, 0, end, StandardCharsets.UTF_8);
+        for (String line : lines.split("\n")) {
+            readTextRecord(line, true, consumer);
+        }
+        return end;
+    }
+
+    /**
+     * Read the complete records of a binary patch, leaving a record still being written for the next read.
+     * @param hasHeader is true if the bytes start at the beginning of the patch file, with its header
+     * @return the number of bytes read
+     */
+    private int readBinaryPatch(byte[] patch, boolean hasHeader, RecordConsumer consumer) {
+        ByteBuffer buffer = ByteBuffer.wrap(patch);
+        int end = 0;
+        try {
+            if (hasHeader) {
+                if (buffer.getInt() != BINARY_MAGIC || buffer.getShort() != BINARY_VERSION
+                        || buffer.getShort() != fieldCount) {
+                    return 0;
+                }
+                buffer.getInt();
+                end = buffer.position();
+            }
+            while (buffer.hasRemaining()) {
+                int position = buffer.getInt();
+                String[] fields = getBinaryFields(buffer);
+                end = buffer.position();
+                consumer.accept(position, fields);
+            }
+        } catch (BufferUnderflowException e) {
+            // The last record is still being written.
+        }
+        return end;
+    }
+
+    private String[] getBinaryFields(ByteBuffer buffer) {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            byte[] bytes = new byte[buffer.getShort() & MAX_FIELD_BYTES];
+            buffer.get(bytes);
+            fields[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return fields;
+    }
+
+    /**
+     * Bring the stored files up to date with the list.
+     * Unsharded, the changed records are appended to the patch file, and once the patch has grown past a fraction of
+     * the data file, the data file is rewritten and the patch removed. Sharded, the shards holding a changed record
+     * are rewritten. This runs on the I/O thread of the group commit writer.
+     * The list is only locked while its changes and a snapshot of its records are taken, and the snapshot is written
+     * after the lock is let go, so the list can be changed while the file is written.
+     * @param list is the list being saved
+     * @param changeTracker holds the positions changed since the last save
+     * @param records gives access to the records of the list
+     */
+    public void save(Object list, ChangeTracker changeTracker, Records records) {
+        synchronized (this) {
+            int[] changes;
+            Records snapshot;
+            synchronized (list) {
+                changes = changeTracker.takeChanges();
+                snapshot = records.snapshot();
+            }
+            if (isSharded()) {
+                saveShards(changes, snapshot);
+                return;
+            }
+            int patchLimit = Math.max(MIN_PATCH_LINES, baseLines / PATCH_TO_DATA_RATIO);
+            if (!shouldRewrite && patchChecksum != null && patchLines + changes.length <= patchLimit) {
+                appendChanges(changes, snapshot);
+                return;
+            }
+            // Records still to be read from the data file have to be in the list before the file is overwritten.
+            records.loadAll();
+            Records allRecords;
+            synchronized (list) {
+                allRecords = records.snapshot();
+            }
+            // The patch is removed before the checksum of the new data file is written, so that neither a restart nor a
+            // follower ever replays an old patch on top of the new data file.
+            int count = writeFile(file, false, false, allRecords.size(), new CRC32(), output -> {
+                for (int i = 0; i < allRecords.size(); i++) {
+                    output.write(i, allRecords.getFields(i));
+                }
+                return allRecords.size();
+            }, () -> deleteWithChecksum(patchFile));
+            if (count < 0) {
+                return;
+            }
+            deleteShardFiles(0);
+            baseLines = count;
+            patchLines = 0;
+            patchChecksum = new CRC32();
+            shouldRewrite = false;
+        }
+    }
+
+    private void appendChanges(int[] changes, Records records) {
+        if (changes.length == 0) {
+            return;
+        }
+        int count = writeFile(patchFile, true, true, OPEN_ENDED_COUNT, patchChecksum, output -> {
+            for (int index : changes) {
+                output.write(index, records.getFields(index));
+            }
+            return changes.length;
+        });
+        if (count < 0) {
+            // The patch may now end in a partial record, so fall back to a full rewrite on the next save.
+            shouldRewrite = true;
+            return;
+        }
+        patchLines += count;
+    }
+
+    private void saveShards(int[] changes, Records records) {
+        boolean[] isTouched = new boolean[shardCount];
+        boolean isAnyTouched = false;
+        for (int index : changes) {
+            isTouched[getShard(records.getPatientId(index), shardCount)] = true;
+            isAnyTouched = true;
+        }
+        if (shouldRewrite) {
+            Arrays.fill(isTouched, true);
+        } else if (!isAnyTouched) {
+            return;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            // A shard no record has been saved to yet still gets its file, or a restart would find fewer shard files
+            // than shards and take it for a change of layout.
+            if (!getShardFile(shard).exists()) {
+                isTouched[shard] = true;
+            }
+        }
+
+        // The positions are sorted into their shards in one pass, so each shard is written from its own positions.
+        int[] shardStarts = new int[shardCount + 1];
+        int[] shards = new int[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            shards[i] = getShard(records.getPatientId(i), shardCount);
+            shardStarts[shards[i] + 1]++;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardStarts[shard + 1] += shardStarts[shard];
+        }
+        int[] positions = new int[records.size()];
+        int[] nextSlots = Arrays.copyOf(shardStarts, shardCount);
+        for (int i = 0; i < shards.length; i++) {
+            positions[nextSlots[shards[i]]++] = i;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!isTouched[shard]) {
+                continue;
+            }
+            int start = shardStarts[shard];
+            int end = shardStarts[shard + 1];
+            int count = writeFile(getShardFile(shard), false, true, end - start, new CRC32(), output -> {
+                for (int i = start; i < end; i++) {
+                    output.write(positions[i], records.getFields(positions[i]));
+                }
+                return end - start;
+            });
+            if (count < 0) {
+                shouldRewrite = true;
+                return;
+            }
+        }
+        if (shouldRewrite) {
+            deleteWithChecksum(file);
+            deleteWithChecksum(patchFile);
+            deleteShardFiles(shardCount);
+            shouldRewrite = false;
+        }
+    }
+
+    private void deleteShardFiles(int fromShard) {
+        for (File shardFile : findShardFiles()) {
+            String name = shardFile.getName();
+            int shard = Integer.parseInt(name.substring(name.lastIndexOf(SHARD_FILE_SUFFIX)
+                    + SHARD_FILE_SUFFIX.length()));
+            if (shard >= fromShard) {
+                deleteWithChecksum(shardFile);
+            }
+        }
+    }
+
+    /**
+     * Write records to a file, either from scratch or at its end, and force it to disk before returning.
+     * A file written from scratch is written under a temporary name and only takes the place of the old file once it
+     * is on disk, so a crash halfway through leaves the old file whole. The checksum file is updated once the records
+     * are in place.
+     * @param recordCount is the number of records that will be written, or -1 if it is open-ended
+     * @param checksum is a fresh checksum for a new file, or the running checksum of the file being appended to
+     * @return the number reported by the logger, or -1 if the file could not be written
+     */
+    private int writeFile(File recordFile, boolean shouldAppend, boolean hasPositions, int recordCount,
+                          CRC32 checksum, OutputLogger logger) {
+        return writeFile(recordFile, shouldAppend, hasPositions, recordCount, checksum, logger, () -> { });
+    }
+
+    /**
+     * Write records to a file as above, running a step once the records are in place but before the checksum file is
+     * updated.
+     */
+    private int writeFile(File recordFile, boolean shouldAppend, boolean hasPositions, int recordCount,
+                          CRC32 checksum, OutputLogger logger, Runnable onWritten) {
+        boolean isNewFile = !shouldAppend || recordFile.length() < BINARY_HEADER_BYTES;
+        if (isNewFile) {
+            checksum.reset();
+        }
+        File writtenFile = shouldAppend ? recordFile : new File(recordFile.getPath() + TEMPORARY_FILE_SUFFIX);
+        FileOutputStream fileStream;
+        try {
+            fileStream = new FileOutputStream(writtenFile, shouldAppend && !isNewFile);
+        } catch (IOException e) {
+            UI.printErrorMessage(UI.FILE_WRITER_CREATION_ERROR_MESSAGE);
+            return -1;
+        }
+
+        OutputStream outputStream = new CheckedOutputStream(fileStream, checksum);
+        RecordOutput output = isBinary
+                ? new BinaryOutput(outputStream, isNewFile, hasPositions, fieldCount, recordCount)
+                : new TextOutput(outputStream, hasPositions);
+        try {
+            int count = logger.log(output);
+            output.flush();
+            fileStream.getFD().sync();
+            if (writtenFile != recordFile) {
+                output.close();
+                Files.move(writtenFile.toPath(), recordFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            onWritten.run();
+            if (output.isAmbiguous()) {
+                getChecksumFile(recordFile).delete();
+            } else {
+                writeChecksumFile(recordFile, checksum);
+            }
+            return count;
+        } catch (IOException e) {
+            UI.printErrorMessage(UI.WRITE_ERROR_MESSAGE);
+            return -1;
+        } finally {
+            closeOutput(output);
+            if (writtenFile != recordFile) {
+                // Only left behind if the records could not be written or moved into place.
+                writtenFile.delete();
+            }
+        }
+    }
+
+    private static void closeOutput(RecordOutput output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            UI.printErrorMessage(UI.FILE_WRITER_CLOSURE_ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Records gives a DataFile access to the records of one list when writing them to disk.
+     */
+    public interface Records {
+        int size();
+
+        String getPatientId(int index);
+
+        String[] getFields(int index);
+
+        /**
+         * Take records that stay the same while they are written, however the list is changed in the meantime.
+         * This is called while the list is locked. Records that cannot change anyway are their own snapshot.
+         */
+        default Records snapshot() {
+            return this;
+        }
+
+        /**
+         * Read every record the list still has to read lazily from the data file, see LazyRecords. This is called
+         * before the data file is rewritten, without the list being locked.
+         */
+        default void loadAll() {
+        }
+    }
+
+    /**
+     * RecordLoader checks the fields of one record read from disk and loads it into the given position of its list.
+     * Trusted records come from a file that matches its checksum and do not need to be validated again.
+     */
+    public interface RecordLoader {
+        boolean load(int index, String[] inputs, boolean isTrusted);
+    }
+
+    private interface RecordConsumer {
+        void accept(int position, String[] fields);
+    }
+
+    private interface OutputLogger {
+        int log(RecordOutput output) throws IOException;
+    }
+
+    private interface RecordOutput {
+        void write(int position, String[] fields) throws IOException;
+
+        void flush() throws IOException;
+
+        void close() throws IOException;
+
+        boolean isAmbiguous();
+    }
+
+    /**
+     * TextOutput writes each record as one line of " | "-separated fields, optionally prefixed by its position.
+     * A field holding the separator or a line break cannot be read back as written, which makes the file ambiguous.
+     */
+    private static class TextOutput implements RecordOutput {
+        private final Writer fileWriter;
+        private final boolean hasPositions;
+        private boolean isAmbiguous;
+
+        private TextOutput(OutputStream outputStream, boolean hasPositions) {
+            this.fileWriter = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            this.hasPositions = hasPositions;
+        }
+
+        @Override
+        public void write(int position, String[] fields) throws IOException {
+            if (hasPositions) {
+                fileWriter.write(Integer.toString(position));
+                fileWriter.write(SEPARATOR);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    fileWriter.write(SEPARATOR);
+                }
+                fileWriter.write(fields[i]);
+                isAmbiguous = isAmbiguous || fields[i].contains(SEPARATOR.trim()) || fields[i].contains("\n")
+                        || !fields[i].equals(fields[i].trim());
+            }
+            fileWriter.write(System.lineSeparator());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            fileWriter.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            fileWriter.close();
+        }
+
+        @Override
+        public boolean isAmbiguous() {
+            return isAmbiguous;
+        }
+    }
+
+    /**
+     * BinaryOutput writes a header of magic number, version, field count and record count, followed by each record as
+     * its UTF-8 fields, each prefixed by its length as an unsigned short. Patch and shard files also prefix each record
+     * with its position, and patch files, which are appended to, leave the record count open-ended.
+     */
+    private static class BinaryOutput implements RecordOutput {
+        private final DataOutputStream output;
+        private final OutputStream outputStream;
+        private final boolean shouldWriteHeader;
+        private final boolean hasPositions;
+        private final int fieldCount;
+        private final int recordCount;
+        private boolean isHeaderWritten;
+
+        private BinaryOutput(OutputStream outputStream, boolean shouldWriteHeader, boolean hasPositions,
+                             int fieldCount, int recordCount) {
+            this.outputStream = outputStream;
+            this.output = new DataOutputStream(new BufferedOutputStream(outputStream));
+            this.shouldWriteHeader = shouldWriteHeader;
+            this.hasPositions = hasPositions;
+            this.fieldCount = fieldCount;
+            this.recordCount = recordCount;
+        }
+
+        private void writeHeader() throws IOException {
+            if (isHeaderWritten || !shouldWriteHeader) {
+                return;
+            }
+            output.writeInt(BINARY_MAGIC);
+            output.writeShort(BINARY_VERSION);
+            output.writeShort(fieldCount);
+            output.writeInt(recordCount);
+            isHeaderWritten = true;
+        }
+
+        @Override
+        public void write(int position, String[] fields) throws IOException {
+            assert fields.length == fieldCount : "record should have " + fieldCount + " fields!";
+            writeHeader();
+            if (hasPositions) {
+                output.writeInt(position);
+            }
+            for (String field : fields) {
+                byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_FIELD_BYTES) {
+                    throw new IOException("field is too long to be stored");
+                }
+                output.writeShort(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeHeader();
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+            outputStream.close();
+        }
+
+        @Override
+        public boolean isAmbiguous() {
+            return false;
+        }
+    }
+
+    private static class StoredRecord {
+        private final int position;
+        private final String[] fields;
+        private final boolean isTrusted;
+
+        private StoredRecord(int position, String[] fields, boolean isTrusted) {
+            this.position = position;
+            this.fields = fields;
+            this.isTrusted = isTrusted;
+        }
+    }
+
+    /**
+     * LoadResult tells whether loading a list found any valid records and any invalid records, whether every file it
+     * read matched its checksum, and which records were left to be read lazily.
+     */
+    public static class LoadResult {
+        private boolean isLoaded;
+        private boolean isInvalid;
+        private boolean isTrusted = true;
+        private LazyRecords lazyRecords;
+
+        public boolean isLoaded() {
+            return isLoaded;
+        }
+
+        public boolean isInvalid() {
+            return isInvalid;
+        }
+
+        public boolean isTrusted() {
+            return isTrusted;
+        }
+
+        /**
+         * Retrieve the records left in the data file by a lazy load.
+         * @return the records still to be read, or null if the list was loaded in full
+         */
+        public LazyRecords getLazyRecords() {
+            return lazyRecords;
+        }
+    }
+}
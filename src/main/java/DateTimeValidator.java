@@ -0,0 +1,222 @@
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * DateTimeValidator is a class that checks dates in the format DD-MM-YYYY and times in the format HH:MM character by
+ * character, without splitting, parsing into boxed numbers, building formatters or throwing exceptions.
+ * Each check returns the error message describing the problem, or null if the input is valid, so that it can serve
+ * both the interactive commands, which report the message, and the loading of data files, which only needs a yes or no.
+ */
+public class DateTimeValidator {
+    private static final int DATE_LENGTH = 10;
+    private static final int TIME_LENGTH = 5;
+    private static final int MIN_DOB_YEAR = 1922;
+    private static final int MIN_VISIT_YEAR = 2000;
+    private static final int MAX_VISIT_YEAR = 2050;
+    private static final int MAX_HOUR = 23;
+    private static final int MAX_MINUTE = 59;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private static volatile Today today = new Today();
+
+    /**
+     * Check a date of visit, which has to exist and fall within the years 2000 to 2050.
+     * @param date is the date in the format DD-MM-YYYY
+     * @return the error message if the date is invalid, or null if it is valid
+     */
+    public static String validateVisitDate(String date) {
+        if (!isDateFormat(date)) {
+            return UI.INVALID_DATE_FORMAT;
+        }
+        if (!isExistingDate(date)) {
+            return UI.DATE_DOESNT_EXIST;
+        }
+        int year = getYear(date);
+        if (year < MIN_VISIT_YEAR || year > MAX_VISIT_YEAR) {
+            return UI.INVALID_YEAR;
+        }
+        return null;
+    }
+
+    /**
+     * Check a birth date, which has to exist, be no earlier than 1922 and not lie after today.
+     * A birth date in the current month and year is compared by day, as it always has been.
+     * @param date is the date in the format DD-MM-YYYY
+     * @return the error message if the date is invalid, or null if it is valid
+     */
+    public static String validateBirthDate(String date) {
+        if (!isDateFormat(date)) {
+            return UI.INVALID_DATE;
+        }
+        if (!isExistingDate(date)) {
+            return UI.DATE_DOESNT_EXIST;
+        }
+        int day = getDay(date);
+        int month = getMonth(date);
+        int year = getYear(date);
+        Today current = getToday();
+        if ((day > current.day && month >= current.month && year >= current.year) || year < MIN_DOB_YEAR) {
+            return UI.INVALID_DOB;
+        }
+        return null;
+    }
+
+    /**
+     * Check a time, which has hours from 00 to 23 and minutes from 00 to 59.
+     * @param time is the time in the format HH:MM
+     * @return the error message if the time is invalid, or null if it is valid
+     */
+    public static String validateTime(String time) {
+        if (time == null || time.length() != TIME_LENGTH || time.charAt(2) != ':'
+                || !isDigit(time, 0) || !isDigit(time, 1) || !isDigit(time, 3) || !isDigit(time, 4)) {
+            return UI.INVALID_TIME;
+        }
+        int hour = getNumber(time, 0, 2);
+        int minute = getNumber(time, 3, 5);
+        if (hour > MAX_HOUR || minute > MAX_MINUTE) {
+            return UI.INVALID_TIME;
+        }
+        return null;
+    }
+
+    /**
+     * Turn a date into a number that sorts in the same order as the dates, e.g. 31-12-2024 becomes 20241231.
+     * @param date is the date in the format DD-MM-YYYY
+     * @return the sortable number, or -1 if the date is not in the format DD-MM-YYYY
+     */
+    public static int toDateKey(String date) {
+        if (!isDateFormat(date)) {
+            return -1;
+        }
+        return getYear(date) * 10000 + getMonth(date) * 100 + getDay(date);
+    }
+
+    /**
+     * Turn a time into the number of minutes after midnight, e.g. 13:30 becomes 810.
+     * @param time is the time in the format HH:MM
+     * @return the number of minutes, or -1 if the time is not in the format HH:MM
+     */
+    public static int toMinuteOfDay(String time) {
+        if (validateTime(time) != null) {
+            return -1;
+        }
+        return getNumber(time, 0, 2) * 60 + getNumber(time, 3, 5);
+    }
+
+    /**
+     * Turn a number of minutes after midnight back into a time, e.g. 810 becomes 13:30.
+     * @param minute is the number of minutes after midnight, from 0 to 1439
+     * @return the time in the format HH:MM
+     */
+    public static String toTime(int minute) {
+        assert minute >= 0 && minute < 24 * 60 : "minute should be within a day";
+        int hour = minute / 60;
+        return new String(new char[] {toDigit(hour / 10), toDigit(hour % 10), ':', toDigit(minute % 60 / 10),
+            toDigit(minute % 10)});
+    }
+
+    /**
+     * Turn a sortable number back into a date, e.g. 20241231 becomes 31-12-2024.
+     * @param dateKey is the number, as given by toDateKey
+     * @return the date in the format DD-MM-YYYY
+     */
+    public static String toDate(int dateKey) {
+        assert dateKey >= 0 && dateKey <= 99991231 : "date should have a year of four digits";
+        int day = dateKey % 100;
+        int month = dateKey / 100 % 100;
+        int year = dateKey / 10000;
+        return new String(new char[] {toDigit(day / 10), toDigit(day % 10), '-', toDigit(month / 10),
+            toDigit(month % 10), '-', toDigit(year / 1000), toDigit(year / 100 % 10), toDigit(year / 10 % 10),
+            toDigit(year % 10)});
+    }
+
+    private static char toDigit(int digit) {
+        return (char) ('0' + digit);
+    }
+
+    /**
+     * Check if a year has a 29th of February in the proleptic Gregorian calendar.
+     * @param year is the year to check
+     * @return true if the year is a leap year
+     */
+    public static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    private static boolean isDateFormat(String date) {
+        if (date == null || date.length() != DATE_LENGTH || date.charAt(2) != '-' || date.charAt(5) != '-') {
+            return false;
+        }
+        for (int i = 0; i < DATE_LENGTH; i++) {
+            if (i != 2 && i != 5 && !isDigit(date, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isExistingDate(String date) {
+        int day = getDay(date);
+        int month = getMonth(date);
+        if (month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        int daysInMonth = DAYS_IN_MONTH[month - 1];
+        if (month == 2 && isLeapYear(getYear(date))) {
+            daysInMonth++;
+        }
+        return day <= daysInMonth;
+    }
+
+    private static int getDay(String date) {
+        return getNumber(date, 0, 2);
+    }
+
+    private static int getMonth(String date) {
+        return getNumber(date, 3, 5);
+    }
+
+    private static int getYear(String date) {
+        return getNumber(date, 6, 10);
+    }
+
+    private static boolean isDigit(String input, int index) {
+        char c = input.charAt(index);
+        return c >= '0' && c <= '9';
+    }
+
+    private static int getNumber(String input, int start, int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            number = number * 10 + (input.charAt(i) - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Retrieve today's date, which is only looked up again once the day has passed.
+     */
+    private static Today getToday() {
+        Today current = today;
+        if (System.currentTimeMillis() >= current.nextDayMillis) {
+            current = new Today();
+            today = current;
+        }
+        return current;
+    }
+
+    private static class Today {
+        private final int day;
+        private final int month;
+        private final int year;
+        private final long nextDayMillis;
+
+        private Today() {
+            LocalDate date = LocalDate.now();
+            day = date.getDayOfMonth();
+            month = date.getMonthValue();
+            year = date.getYear();
+            nextDayMillis = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Exporter is a class that writes the patients, visits or prescriptions matching a filter to a CSV or JSON Lines file.
+ * Records are picked through the patient and date indexes of the lists where a filter allows it, and written one at a
+ * time through a buffered file channel, so the export is never held in memory as a whole. The records are read from a
+ * version of the list taken when the export starts, so the lists can be changed while the file is written.
+ * The file is written under a temporary name and only takes the place of an existing file once it is complete.
+ */
+public class Exporter {
+    public static final String JSON_LINES_EXTENSION = ".jsonl";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String[] PATIENT_HEADER = {"name", "gender", "dob", "id"};
+    private static final String[] VISIT_HEADER = {"id", "date", "time", "reason"};
+    private static final String[] PRESCRIPTION_HEADER = {"id", "medicine", "dosage", "interval", "active"};
+
+    private final PatientList patientList;
+    private final VisitList visitList;
+    private final PrescriptionList prescriptionList;
+
+    public Exporter(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList) {
+        this.patientList = patientList;
+        this.visitList = visitList;
+        this.prescriptionList = prescriptionList;
+    }
+
+    /**
+     * Export all patients, or a single patient.
+     * @param file is the file to write, in JSON Lines if its name ends with .jsonl and in CSV otherwise
+     * @param patientId is the ID of the patient to export, or null for all patients
+     * @return the number of patients written
+     */
+    public int exportPatients(File file, String patientId) throws OneDocException {
+        PersistentList<Patient> patients = patientList.getPatients();
+        int patientKey = patientId == null ? -1 : PatientKeys.findKey(patientId);
+        return export(file, PATIENT_HEADER, output -> {
+            int count = 0;
+            for (Patient patient : patients) {
+                if (!patient.isDeleted() && (patientId == null || patient.getKey() == patientKey)) {
+                    output.write(patient.getName(), patient.getGender(), patient.getBirthDate(), patient.getId());
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Export the visits matching every given filter, which are looked up in the indexes of the list.
+     * @param file is the file to write, in JSON Lines if its name ends with .jsonl and in CSV otherwise
+     * @param patientId is the ID of the patient, or null for visits of any patient
+     * @param fromDate is the earliest date of visit in the format DD-MM-YYYY, or null for no lower bound
+     * @param toDate is the latest date of visit in the format DD-MM-YYYY, or null for no upper bound
+     * @return the number of visits written
+     */
+    public int exportVisits(File file, String patientId, String fromDate, String toDate) throws OneDocException {
+        Selection<Visit> visits = visitList.select(patientId, fromDate, toDate, null);
+        return export(file, VISIT_HEADER, output -> {
+            for (int i = 0; i < visits.size(); i++) {
+                Visit visit = visits.get(i);
+                output.write(visit.getId(), visit.getDateOfVisit(), visit.getTimeOfVisit(), visit.getReason());
+            }
+            return visits.size();
+        });
+    }
+
+    /**
+     * Export the prescriptions matching every given filter, which are looked up in the indexes of the list.
+     * @param file is the file to write, in JSON Lines if its name ends with .jsonl and in CSV otherwise
+     * @param patientId is the ID of the patient, or null for prescriptions of any patient
+     * @param isActiveOnly is true if inactive prescriptions are left out
+     * @return the number of prescriptions written
+     */
+    public int exportPrescriptions(File file, String patientId, boolean isActiveOnly) throws OneDocException {
+        Selection<Prescription> prescriptions = prescriptionList.select(patientId, null, isActiveOnly);
+        return export(file, PRESCRIPTION_HEADER, output -> {
+            for (int i = 0; i < prescriptions.size(); i++) {
+                Prescription prescription = prescriptions.get(i);
+                output.write(prescription.getPatientId(), prescription.getMedicine(), prescription.getDosage(),
+                        prescription.getTimeInterval(), prescription.isActive());
+            }
+            return prescriptions.size();
+        });
+    }
+
+    public static boolean isJsonLines(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(JSON_LINES_EXTENSION);
+    }
+
+    private static int export(File file, String[] header, RecordSource source) throws OneDocException {
+        Path target = file.toPath().toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_FILE_SUFFIX);
+        boolean isJsonLines = isJsonLines(file);
+        int count;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1),
+                     BUFFER_SIZE)) {
+            if (!isJsonLines) {
+                Csv.appendRecord(writer, header);
+            }
+            count = source.writeTo(fields -> {
+                if (isJsonLines) {
+                    Json.appendObject(writer, header, fields);
+                    return;
+                }
+                for (int i = 0; i < fields.length; i++) {
+                    if (i > 0) {
+                        writer.append(',');
+                    }
+                    Csv.appendField(writer, String.valueOf(fields[i]));
+                }
+                writer.append(System.lineSeparator());
+            });
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // The temporary file is overwritten by the next export anyway.
+            }
+            throw new OneDocException(OneDocException.Type.FILE_ERROR,
+                    "The file " + file.getPath() + " could not be written! " + e.getMessage());
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new OneDocException(OneDocException.Type.FILE_ERROR, "The export could not be moved to "
+                    + file.getPath() + "! It was left in " + temporary);
+        }
+        return count;
+    }
+
+    /**
+     * RecordSource goes through the records to export, handing each one to an output.
+     */
+    private interface RecordSource {
+        int writeTo(RecordOutput output) throws IOException;
+    }
+
+    /**
+     * RecordOutput writes the fields of one record, in the order of the header.
+     */
+    private interface RecordOutput {
+        void write(Object... fields) throws IOException;
+    }
+}
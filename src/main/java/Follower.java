@@ -0,0 +1,68 @@
+/**
+ * Follower is a class that keeps a hot standby copy of the lists while another OneDoc, the primary, runs on the same
+ * data files. It reads the records the primary saves every few milliseconds, and takes over the data files as soon as
+ * the primary stops, so no reload is needed before serving the clinic.
+ * The primary is known to have stopped once the lock it holds on the data folder can be taken, see Storage.
+ */
+public class Follower {
+    private final Storage storage;
+    private final long interval;
+
+    /**
+     * Create a follower.
+     * @param storage is the storage of the data files to follow
+     * @param interval is how long to wait between looks at the data files, in milliseconds
+     */
+    public Follower(Storage storage, long interval) {
+        this.storage = storage;
+        this.interval = interval;
+    }
+
+    /**
+     * Follow the primary until it stops, then take over its data files. If this process is the only OneDoc running,
+     * it takes over right away. If the thread is interrupted while standing by, the data files are left to the
+     * primary, and the interrupt is kept on the thread for the caller to see.
+     * @param patientList is the list the patients are followed into
+     * @param visitList is the list the visits are followed into
+     * @param prescriptionList is the list the prescriptions are followed into
+     * @return true if the data files were taken over, or false if standing by was interrupted first
+     */
+    public boolean standBy(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList) {
+        if (!storage.isFollowable()) {
+            UI.printErrorMessage(UI.SHARDED_STANDBY_MESSAGE);
+            if (!waitForPrimary(() -> { })) {
+                return false;
+            }
+            storage.loadData(patientList, visitList, prescriptionList);
+            return true;
+        }
+        System.out.println(UI.STANDBY_MESSAGE);
+        if (!waitForPrimary(() -> storage.follow(patientList, visitList, prescriptionList))) {
+            return false;
+        }
+        // The primary may have saved once more between the last look and stopping.
+        storage.follow(patientList, visitList, prescriptionList);
+        storage.takeOver(patientList, visitList, prescriptionList);
+        System.out.println(UI.TAKEOVER_MESSAGE);
+        return true;
+    }
+
+    /**
+     * Wait until the lock of the primary can be taken.
+     * @param followStep is run after every look at the lock
+     * @return true if the lock is now held, or false if the wait was interrupted first
+     */
+    private boolean waitForPrimary(Runnable followStep) {
+        followStep.run();
+        while (!storage.tryLockPrimary()) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            followStep.run();
+        }
+        return true;
+    }
+}
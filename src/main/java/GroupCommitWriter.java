@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * GroupCommitWriter is a class that funnels every data file write through a single I/O thread.
+ * Writes requested while the thread is busy are queued into the next batch. Within a batch, a later write to the same
+ * data file supersedes an earlier one, so each file is written at most once per batch and all callers waiting on that
+ * batch are released together.
+ * Writes can also be submitted without waiting. The I/O thread then holds the batch back for a short debounce delay so
+ * that a burst of changes to the same file is written only once.
+ */
+public class GroupCommitWriter {
+    private static final String THREAD_NAME = "onedoc-storage-writer";
+
+    private final LinkedHashMap<String, Runnable> pendingWrites;
+    private final long debounceMillis;
+    private boolean isUrgent;
+    private long drainedBatch;
+    private long completedBatch;
+
+    public GroupCommitWriter() {
+        this(0);
+    }
+
+    public GroupCommitWriter(long debounceMillis) {
+        assert debounceMillis >= 0 : "debounce delay should not be negative!";
+        this.debounceMillis = debounceMillis;
+        pendingWrites = new LinkedHashMap<>();
+        isUrgent = false;
+        drainedBatch = 0;
+        completedBatch = 0;
+        Thread ioThread = new Thread(this::runIoLoop, THREAD_NAME);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Queue a write for a data file and wait until the batch containing it has been written.
+     * @param key identifies the data file, writes with the same key are coalesced
+     * @param write is the action that brings the data file up to date with the lists in memory
+     */
+    public synchronized void commit(String key, Runnable write) {
+        long batch = enqueue(key, write);
+        isUrgent = true;
+        awaitBatch(batch);
+    }
+
+    /**
+     * Mark a data file as dirty and return immediately.
+     * The write is run by the I/O thread once the debounce delay has passed.
+     * @param key identifies the data file, writes with the same key are coalesced
+     * @param write is the action that brings the data file up to date with the lists in memory
+     */
+    public synchronized void submit(String key, Runnable write) {
+        enqueue(key, write);
+    }
+
+    /**
+     * Wait until every write queued so far, including those still in their debounce delay, has been written.
+     */
+    public synchronized void flush() {
+        long batch = pendingWrites.isEmpty() ? drainedBatch : drainedBatch + 1;
+        isUrgent = true;
+        notifyAll();
+        awaitBatch(batch);
+    }
+
+    private long enqueue(String key, Runnable write) {
+        assert key != null : "key of write should not be null!";
+        assert write != null : "write should not be null!";
+        pendingWrites.put(key, write);
+        notifyAll();
+        return drainedBatch + 1;
+    }
+
+    private void awaitBatch(long batch) {
+        try {
+            while (completedBatch < batch) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized ArrayList<Runnable> takeBatch() throws InterruptedException {
+        while (pendingWrites.isEmpty()) {
+            wait();
+        }
+        long deadline = System.currentTimeMillis() + debounceMillis;
+        long remaining = debounceMillis;
+        while (!isUrgent && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        isUrgent = false;
+        ArrayList<Runnable> batch = new ArrayList<>(pendingWrites.values());
+        pendingWrites.clear();
+        drainedBatch++;
+        return batch;
+    }
+
+    private synchronized void completeBatch() {
+        completedBatch = drainedBatch;
+        notifyAll();
+    }
+
+    private void runIoLoop() {
+        while (true) {
+            ArrayList<Runnable> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Runnable write : batch) {
+                try {
+                    write.run();
+                } catch (RuntimeException e) {
+                    UI.printErrorMessage(UI.WRITE_ERROR_MESSAGE);
+                }
+            }
+            completeBatch();
+        }
+    }
+}
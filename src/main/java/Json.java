@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Json is a class that writes flat JSON objects, such as one record of an export, without building them in memory.
+ */
+public class Json {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Write a string as a quoted JSON string, escaping quotes, backslashes and control characters.
+     * @param output is where the string is written to
+     * @param value is the string to write
+     */
+    public static void appendString(Appendable output, String value) throws IOException {
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                output.append("\\\"");
+                break;
+            case '\\':
+                output.append("\\\\");
+                break;
+            case '\n':
+                output.append("\\n");
+                break;
+            case '\r':
+                output.append("\\r");
+                break;
+            case '\t':
+                output.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    output.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                } else {
+                    output.append(c);
+                }
+            }
+        }
+        output.append('"');
+    }
+
+    /**
+     * Write a string as a quoted JSON string into text held in memory.
+     * @param output is the text the string is added to
+     * @param value is the string to write
+     */
+    public static void appendString(StringBuilder output, String value) {
+        try {
+            appendString((Appendable) output, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("a StringBuilder should never fail to append", e);
+        }
+    }
+
+    /**
+     * Write a member of an object that already has a member before it, e.g. ,"name":"Alice".
+     * Booleans and numbers are written as they are, and any other value is written as a string.
+     * @param output is the text the member is added to
+     * @param key is the name of the member
+     * @param value is the value of the member
+     */
+    public static void appendMember(StringBuilder output, String key, Object value) {
+        output.append(',');
+        appendString(output, key);
+        output.append(':');
+        if (value instanceof Boolean || value instanceof Number) {
+            output.append(value);
+        } else {
+            appendString(output, String.valueOf(value));
+        }
+    }
+
+    /**
+     * Write a flat object on one line, followed by a line break.
+     * Booleans and numbers are written as they are, and any other value is written as a string.
+     * @param output is where the object is written to
+     * @param keys are the names of the members
+     * @param values are the values of the members, in the same order as the keys
+     */
+    public static void appendObject(Appendable output, String[] keys, Object... values) throws IOException {
+        assert keys.length == values.length : "every member should have a value";
+        output.append('{');
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                output.append(',');
+            }
+            appendString(output, keys[i]);
+            output.append(':');
+            if (values[i] instanceof Boolean || values[i] instanceof Number) {
+                output.append(values[i].toString());
+            } else {
+                appendString(output, String.valueOf(values[i]));
+            }
+        }
+        output.append('}').append('\n');
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * JsonLinesOutput is a class that prints the result of each command as one line of JSON instead of text, for scripts
+ * that drive OneDoc through its input, e.g. when running with -Donedoc.output=json. A line looks like
+ * {"records":[{"number":1,"name":"Alice",...}],"status":"ok","error":null,"message":"..."}.
+ * Records are written out as soon as they are shown, so that a large listing is never held in memory, which is why
+ * they come first. Any other text printed by the command is kept aside and given as the message, without the lines and
+ * tabs around it, and an error shown through UI turns the status into "error".
+ * The text printed while OneDoc starts is kept in the same way, and only given a line of its own, with the status
+ * "warning", if an error was shown, e.g. because a data file is corrupted.
+ * Each UI in the JSON Lines output mode has its own JsonLinesOutput, which prints its lines to System.out as it was
+ * when the UI was created. While one of its commands runs, System.out is replaced by the stream the message is kept
+ * in, and given back once the line of the command is printed.
+ */
+public class JsonLinesOutput {
+    private static final String OK_STATUS = "ok";
+    private static final String ERROR_STATUS = "error";
+    private static final String WARNING_STATUS = "warning";
+
+    private static JsonLinesOutput runningOutput;
+
+    private final ByteArrayOutputStream printed;
+    private final PrintStream printedStream;
+    private final OutputBuffer output;
+    private PrintStream replacedOutput;
+    private boolean isCommandRunning;
+    private boolean isStarting;
+    private int recordCount;
+    private String error;
+
+    /**
+     * Create the output of a UI, which keeps the text printed while OneDoc starts until its first command.
+     */
+    public JsonLinesOutput() {
+        printed = new ByteArrayOutputStream();
+        printedStream = new PrintStream(printed, true);
+        output = new OutputBuffer(System.out);
+        isStarting = true;
+        capture();
+    }
+
+    /**
+     * Retrieve the output whose command is running, which the errors printed through UI are kept by.
+     * @return the output, or null if no command is running in the JSON Lines output mode
+     */
+    public static JsonLinesOutput getRunningOutput() {
+        return runningOutput;
+    }
+
+    /**
+     * Start the line of a command, once it has been read. The text shown while OneDoc starts gets a line of its own
+     * first if an error was shown among it.
+     */
+    public void startCommand() {
+        finishCommand();
+        isCommandRunning = true;
+        output.getText().append("{\"records\":[");
+        capture();
+    }
+
+    /**
+     * Add a record to the line of the command.
+     * @param number is the number of the record, starting from 1
+     * @param record is the record, or null for an archived visit that could not be read back
+     */
+    public void appendRecord(int number, Renderable record) {
+        StringBuilder json = output.getText();
+        if (recordCount > 0) {
+            json.append(',');
+        }
+        recordCount++;
+        json.append("{\"number\":").append(number);
+        if (record == null) {
+            Json.appendMember(json, "missing", true);
+        } else {
+            record.appendJsonTo(json);
+        }
+        json.append('}');
+        output.flushIfFull();
+    }
+
+    /**
+     * Note that the command failed. Only the first error of a command is kept.
+     * @param message is the error shown to the user
+     */
+    public void setError(String message) {
+        if (error == null) {
+            error = message;
+        }
+    }
+
+    /**
+     * End the line of the command with its status and message, and print it.
+     */
+    public void finishCommand() {
+        if (isStarting) {
+            isStarting = false;
+            if (error != null) {
+                output.getText().append("{\"records\":[");
+                printLine(WARNING_STATUS);
+            }
+            release();
+            return;
+        }
+        if (!isCommandRunning) {
+            return;
+        }
+        isCommandRunning = false;
+        printLine(error == null ? OK_STATUS : ERROR_STATUS);
+        release();
+    }
+
+    /**
+     * Finish the command still running, which gives System.out back.
+     */
+    public void close() {
+        finishCommand();
+    }
+
+    private void printLine(String status) {
+        StringBuilder json = output.getText();
+        json.append("],\"status\":");
+        Json.appendString(json, status);
+        json.append(",\"error\":");
+        if (error == null) {
+            json.append("null");
+        } else {
+            Json.appendString(json, error);
+        }
+        json.append(",\"message\":");
+        Json.appendString(json, getMessage());
+        json.append('}').append('\n');
+        output.flush();
+    }
+
+    /**
+     * Keep what is printed from now on aside as the message, until release.
+     */
+    private void capture() {
+        printed.reset();
+        recordCount = 0;
+        error = null;
+        replacedOutput = System.out;
+        System.setOut(printedStream);
+        runningOutput = this;
+    }
+
+    private void release() {
+        if (runningOutput == this) {
+            runningOutput = null;
+        }
+        if (System.out == printedStream) {
+            System.setOut(replacedOutput);
+        }
+    }
+
+    private String getMessage() {
+        StringBuilder message = new StringBuilder();
+        for (String line : printed.toString().split("\\R")) {
+            String trimmedLine = line.trim();
+            if (trimmedLine.isEmpty() || trimmedLine.chars().allMatch(c -> c == '_')) {
+                continue;
+            }
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(trimmedLine);
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * LazyRecords is a class that keeps track of the records of a list that are still only in its data file, so that they
+ * can be read the first time they are needed instead of when OneDoc starts.
+ * For each such record only its place in the data file is kept, and its position is indexed by the key of its patient,
+ * whose ID is the first field of every record, and optionally by one other field, e.g. the date of a visit.
+ * Deleted records are noted as well, so that the list can count its records without reading them.
+ * The list calls every method while holding its own lock. The data file must not be rewritten while any record is
+ * still to be read, so DataFile reads them all before it rewrites the file.
+ */
+public class LazyRecords {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final DataFile dataFile;
+    private final DataFile.RecordLoader loader;
+    private final int keyField;
+    private final PositionIndex<Integer> patientIndex;
+    private final PositionIndex<String> keyIndex;
+    private final Predicate<String[]> isDeleted;
+    private final BitSet pendingPositions;
+    private final BitSet deletedPositions;
+    private final BlockCounter deletedCounts;
+    private long[] offsets;
+    private int[] lengths;
+    private int count;
+
+    /**
+     * Create an empty set of records to be read from a data file.
+     * @param dataFile is the data file the records are in
+     * @param loader loads each record into its position in the list once it is read
+     * @param keyField is the other field records can be looked up by, or -1 for none
+     * @param isDeleted checks if the fields of a record are those of a deleted record
+     */
+    public LazyRecords(DataFile dataFile, DataFile.RecordLoader loader, int keyField, Predicate<String[]> isDeleted) {
+        this.dataFile = dataFile;
+        this.loader = loader;
+        this.keyField = keyField;
+        this.isDeleted = isDeleted;
+        patientIndex = new PositionIndex<>();
+        keyIndex = new PositionIndex<>();
+        pendingPositions = new BitSet();
+        deletedPositions = new BitSet();
+        deletedCounts = new BlockCounter();
+        offsets = new long[INITIAL_CAPACITY];
+        lengths = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Note where the next record of the data file is, while the data file is first read.
+     * @param offset is where the record starts in the data file
+     * @param length is the number of bytes of the record
+     * @param fields are the fields of the record
+     */
+    public void add(long offset, int length, String[] fields) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        patientIndex.add(PatientKeys.getKey(fields[0]), count);
+        if (keyField >= 0 && keyField < fields.length) {
+            keyIndex.add(fields[keyField], count);
+        }
+        pendingPositions.set(count);
+        if (isDeleted.test(fields)) {
+            deletedPositions.set(count);
+            deletedCounts.add(count, 1);
+        }
+        count++;
+    }
+
+    /**
+     * Retrieve the number of records found in the data file, which the list keeps positions for.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Retrieve the number of deleted records that have not been read yet, which the list does not count on its own.
+     */
+    public int getPendingDeletedCount() {
+        return deletedCounts.getTotal();
+    }
+
+    /**
+     * Retrieve the number of deleted records that have not been read yet in a block of positions, see BlockCounter.
+     * @param block is the number of the block
+     */
+    public int getPendingDeletedCount(int block) {
+        return deletedCounts.get(block);
+    }
+
+    /**
+     * Check if a record that has not been read yet is a deleted record.
+     * @param position is the position of the record in the list
+     */
+    public boolean isPendingDeleted(int position) {
+        return deletedPositions.get(position);
+    }
+
+    /**
+     * Count the records that have not been read yet by their value in the other field records can be looked up by.
+     * @return the number of records left to read for each value that has any
+     */
+    public Map<String, Integer> countPendingByKey() {
+        HashMap<String, Integer> counts = new HashMap<>();
+        for (String key : keyIndex.getKeys()) {
+            int pendingCount = (int) Arrays.stream(keyIndex.get(key)).filter(pendingPositions::get).count();
+            if (pendingCount > 0) {
+                counts.put(key, pendingCount);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Forget a record that will not be read from the data file, because a newer version of it was loaded.
+     * @param position is the position of the record in the list
+     */
+    public void markLoaded(int position) {
+        clearPending(position);
+    }
+
+    /**
+     * Check if every record has been read.
+     * @return true if no record is left to read
+     */
+    public boolean isDone() {
+        return pendingPositions.isEmpty();
+    }
+
+    /**
+     * Read the records of a patient that have not been read yet.
+     * @param patientId is the ID of the patient, ignoring case
+     */
+    public void loadPatient(String patientId) {
+        load(patientIndex.get(PatientKeys.findKey(patientId)));
+    }
+
+    /**
+     * Read the records with a value in the other field records can be looked up by that have not been read yet.
+     * @param key is the value of the field
+     */
+    public void loadKey(String key) {
+        load(keyIndex.get(key));
+    }
+
+    /**
+     * Read the records with any of several values in the other field records can be looked up by, in one pass over
+     * the data file.
+     * @param keys are the values of the field
+     */
+    public void loadKeys(Collection<String> keys) {
+        load(keys.stream().flatMapToInt(key -> Arrays.stream(keyIndex.get(key))).sorted().toArray());
+    }
+
+    /**
+     * Read the record at a position if it has not been read yet.
+     * @param position is the position of the record in the list
+     */
+    public void loadPosition(int position) {
+        load(new int[] {position});
+    }
+
+    /**
+     * Read the records at several positions that have not been read yet, in one pass over the data file.
+     * @param positions are the positions of the records in ascending order
+     */
+    public void loadPositions(int[] positions) {
+        load(positions);
+    }
+
+    /**
+     * Read every record that has not been read yet, in the order of the data file.
+     */
+    public void loadAll() {
+        load(pendingPositions.stream().toArray());
+    }
+
+    private void load(int[] positions) {
+        int[] pending = Arrays.stream(positions).filter(pendingPositions::get).toArray();
+        if (pending.length == 0) {
+            return;
+        }
+        dataFile.readAt(offsets, lengths, pending, (position, fields, isTrusted) -> {
+            clearPending(position);
+            return loader.load(position, fields, isTrusted);
+        });
+        if (isDone()) {
+            offsets = new long[0];
+            lengths = new int[0];
+            patientIndex.clear();
+            keyIndex.clear();
+        }
+    }
+
+    private void clearPending(int position) {
+        pendingPositions.clear(position);
+        if (deletedPositions.get(position)) {
+            deletedPositions.clear(position);
+            deletedCounts.add(position, -1);
+        }
+    }
+}
@@ -17,9 +17,21 @@ public class OneDoc {
         visitsList = new VisitList();
         prescriptionsList = new PrescriptionList();
         storage = new Storage();
-        storage.loadData(patientsList, visitsList, prescriptionsList);
-        parser = new Parser(patientsList, visitsList, prescriptionsList, ui, storage);
         mainMenuState = MainMenuState.INVALID;
+        if (Settings.isFollower()) {
+            Follower follower = new Follower(storage, Settings.getFollowInterval());
+            if (!follower.standBy(patientsList, visitsList, prescriptionsList)) {
+                // The data files still belong to the other OneDoc, so this one must not run on them.
+                UI.printErrorMessage(UI.STANDBY_INTERRUPTED_MESSAGE);
+                mainMenuState = MainMenuState.EXIT;
+            }
+        } else {
+            if (!storage.tryLockPrimary()) {
+                UI.printErrorMessage(UI.PRIMARY_RUNNING_MESSAGE);
+            }
+            storage.loadData(patientsList, visitsList, prescriptionsList);
+        }
+        parser = new Parser(patientsList, visitsList, prescriptionsList, ui, storage);
     }
 
     public static void main(String[] args) {
@@ -83,9 +95,17 @@ public class OneDoc {
         }
     }
 
+    /**
+     * Run OneDoc until the user exits, making sure that every change is on disk before saying goodbye. Nothing is run
+     * if standing by for another OneDoc was stopped before the data files were taken over.
+     */
     public static void run() {
+        if (mainMenuState == MainMenuState.EXIT) {
+            return;
+        }
         ui.printWelcomeMessage();
         mainMenuRun();
+        storage.flush();
         ui.printExitMessage();
     }
 }
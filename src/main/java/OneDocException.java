@@ -1,6 +1,39 @@
+/**
+ * OneDocException is an error in a command or in a call to OneDocService, such as input in the wrong format or a
+ * record that does not exist. Its type tells a caller what went wrong without reading the message, which is written
+ * for the user.
+ */
 public class OneDocException extends Exception {
+    private final Type type;
 
     public OneDocException(String message) {
+        this(Type.INVALID_INPUT, message);
+    }
+
+    public OneDocException(Type type, String message) {
         super(message);
+        this.type = type;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Type is the kind of error a OneDocException is.
+     */
+    public enum Type {
+        /** The input is not in the format it should be in. */
+        INVALID_INPUT,
+        /** No record has the given ID or number. */
+        NOT_FOUND,
+        /** A record with the same details is already there. */
+        DUPLICATE,
+        /** The visit would overlap the slot of another visit. */
+        SLOT_TAKEN,
+        /** The visit has been archived and can no longer be changed. */
+        ARCHIVED,
+        /** A file could not be read or written. */
+        FILE_ERROR
     }
 }
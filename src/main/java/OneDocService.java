@@ -0,0 +1,427 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * OneDocService is a class that lets another program use OneDoc in-process, without going through its menus.
+ * Each method checks its input with the same rules as the commands, changes the lists and saves them, then returns the
+ * records or numbers involved. A call that cannot be done throws a OneDocException, whose type tells what went wrong
+ * and whose message is the one a user of the commands would see, and prints nothing.
+ * Reading and writing the data files is left to Storage as for the commands, though, so a data file or archive file
+ * that cannot be read or written is still reported on the console rather than thrown, and the change is kept in the
+ * lists.
+ * The batch methods check every record before adding any, so that either the whole batch is added and saved once, or
+ * nothing is. Records are numbered from 1 in the order they are added, as in the commands.
+ */
+public class OneDocService {
+    private static final String SEPARATOR_IN_FIELD = "Fields cannot contain |";
+    private static final String INVALID_PATIENT = "Invalid patient details";
+    private static final String INVALID_VISIT = "Invalid visit details";
+    private static final String INVALID_PRESCRIPTION = "Invalid prescription details";
+
+    private final PatientList patientList;
+    private final VisitList visitList;
+    private final PrescriptionList prescriptionList;
+    private final Storage storage;
+
+    public OneDocService(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList,
+                         Storage storage) {
+        this.patientList = patientList;
+        this.visitList = visitList;
+        this.prescriptionList = prescriptionList;
+        this.storage = storage;
+    }
+
+    /**
+     * Check that a patient ID is in use.
+     * @throws OneDocException of type NOT_FOUND if no patient has the ID
+     */
+    public void checkPatientExists(String patientId) throws OneDocException {
+        if (patientList.findPatient(patientId) == null) {
+            throw new OneDocException(OneDocException.Type.NOT_FOUND, UI.UNKNOWN_PATIENT_ID_MESSAGE);
+        }
+    }
+
+    /**
+     * Check that a patient ID is not in use yet.
+     * @throws OneDocException of type DUPLICATE if a patient has the ID
+     */
+    public void checkNewPatientId(String patientId) throws OneDocException {
+        if (patientList.findPatient(patientId) != null) {
+            throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_PATIENT_ID_MESSAGE);
+        }
+    }
+
+    /**
+     * Add a patient.
+     * @param gender is M or F
+     * @param birthDate is in the format DD-MM-YYYY
+     * @return the number of the patient
+     */
+    public int addPatient(String name, String birthDate, String gender, String patientId) throws OneDocException {
+        int number = patientList.add(toPatient(name, birthDate, gender, patientId));
+        storage.savePatientData(patientList);
+        return number;
+    }
+
+    /**
+     * Add a batch of patients, or none of them if any is invalid or its ID is taken.
+     * @param patients are the patients to add, in order
+     * @return the numbers of the patients, in the same order
+     */
+    public int[] addPatients(Collection<Patient> patients) throws OneDocException {
+        List<Patient> checkedPatients = new ArrayList<>(patients.size());
+        for (Patient patient : patients) {
+            checkedPatients.add(toPatient(patient.getName(), patient.getBirthDate(), patient.getGender(),
+                    patient.getId()));
+        }
+        int[] numbers = patientList.addAll(checkedPatients);
+        if (numbers.length > 0) {
+            storage.savePatientData(patientList);
+        }
+        return numbers;
+    }
+
+    private static Patient toPatient(String name, String birthDate, String gender, String patientId)
+            throws OneDocException {
+        String[] inputs = {name, birthDate, gender, toUpperCase(patientId)};
+        checkFields(inputs);
+        throwIfInvalid(DateTimeValidator.validateBirthDate(birthDate));
+        if (!Parser.isPatientInputValid(inputs)) {
+            throw new OneDocException(INVALID_PATIENT);
+        }
+        return new Patient(name, birthDate, gender, inputs[3]);
+    }
+
+    /**
+     * Retrieve a patient.
+     * @throws OneDocException of type NOT_FOUND if no patient has the ID
+     */
+    public Patient getPatient(String patientId) throws OneDocException {
+        Patient patient = patientList.findPatient(patientId);
+        if (patient == null) {
+            throw new OneDocException(OneDocException.Type.NOT_FOUND, UI.NO_PATIENT_FOUND_MESSAGE);
+        }
+        return patient;
+    }
+
+    /**
+     * Change the details of a patient. An empty detail is left as it is.
+     * @return the patient as changed
+     */
+    public Patient editPatient(String patientId, String name, String birthDate, String gender)
+            throws OneDocException {
+        checkFields(name, birthDate, gender);
+        if (!birthDate.isEmpty()) {
+            throwIfInvalid(DateTimeValidator.validateBirthDate(birthDate));
+        }
+        if (!gender.isEmpty() && !gender.equals("M") && !gender.equals("F")) {
+            throw new OneDocException(INVALID_PATIENT);
+        }
+        Patient patient = patientList.modify(patientId, name, birthDate, gender);
+        storage.savePatientData(patientList);
+        return patient;
+    }
+
+    /**
+     * Delete a patient along with their visits and prescriptions. The visits and prescriptions are saved first, so
+     * that a patient is never left out of the data files while records of theirs are still in them.
+     * @return the patient deleted and how many of their records went with them
+     * @throws OneDocException of type NOT_FOUND if no patient has the ID
+     */
+    public PatientDeletion deletePatient(String patientId) throws OneDocException {
+        checkPatientExists(patientId);
+        Patient patient = patientList.findPatient(patientId);
+        int visitCount = visitList.deletePatientVisits(patientId);
+        int prescriptionCount = prescriptionList.deletePatientPrescriptions(patientId);
+        int number = patientList.delete(patientId);
+        storage.saveVisitData(visitList);
+        storage.savePrescriptionData(prescriptionList);
+        storage.savePatientData(patientList);
+        return new PatientDeletion(patient, number, visitCount, prescriptionCount);
+    }
+
+    /**
+     * Take a run of the patients, as shown a page at a time by viewall.
+     * @param sortField is PatientList.SORT_BY_NAME or PatientList.SORT_BY_BIRTH_DATE, or null for the order added in
+     * @param isDescending is true to sort from the highest value down
+     * @param skip is the number of patients before the run
+     * @param count is the largest number of patients to take
+     */
+    public Selection<Patient> listPatients(String sortField, boolean isDescending, int skip, int count) {
+        return patientList.select(sortField, isDescending, skip, count);
+    }
+
+    /**
+     * Add a visit of a patient.
+     * @param reason is the reason of the visit, or null or empty if none is stated
+     * @return the number of the visit
+     * @throws OneDocException of type DUPLICATE or SLOT_TAKEN if the visit cannot be added
+     */
+    public int addVisit(String patientId, String dateOfVisit, String timeOfVisit, String reason)
+            throws OneDocException {
+        int number = visitList.add(toVisit(patientId, dateOfVisit, timeOfVisit, reason));
+        storage.saveVisitData(visitList);
+        return number;
+    }
+
+    /**
+     * Add a batch of visits, or none of them if any is invalid, already exists or takes the slot of another visit,
+     * either in the list or in the batch.
+     * @param visits are the visits to add, in order
+     * @return the numbers of the visits, in the same order
+     */
+    public int[] addVisits(Collection<Visit> visits) throws OneDocException {
+        List<Visit> checkedVisits = new ArrayList<>(visits.size());
+        for (Visit visit : visits) {
+            checkedVisits.add(toVisit(visit.getId(), visit.getDateOfVisit(), visit.getTimeOfVisit(),
+                    visit.getReason()));
+        }
+        int[] numbers = visitList.addAll(checkedVisits);
+        if (numbers.length > 0) {
+            storage.saveVisitData(visitList);
+        }
+        return numbers;
+    }
+
+    private Visit toVisit(String patientId, String dateOfVisit, String timeOfVisit, String reason)
+            throws OneDocException {
+        String[] inputs = {toUpperCase(patientId), reason == null ? "" : reason, dateOfVisit, timeOfVisit};
+        checkFields(inputs);
+        throwIfInvalid(DateTimeValidator.validateVisitDate(dateOfVisit));
+        throwIfInvalid(DateTimeValidator.validateTime(timeOfVisit));
+        checkPatientExists(inputs[0]);
+        if (!Parser.isVisitInputValid(inputs, patientList)) {
+            throw new OneDocException(INVALID_VISIT);
+        }
+        return new Visit(inputs[0], dateOfVisit, timeOfVisit, inputs[1]);
+    }
+
+    /**
+     * Retrieve a visit, reading it back from the archive if it has been archived.
+     * @param visitNumber is the number of the visit
+     * @return the visit, or null if it is archived and could not be read back
+     * @throws OneDocException of type NOT_FOUND if there is no such visit
+     */
+    public Visit getVisit(int visitNumber) throws OneDocException {
+        return visitList.get(visitNumber);
+    }
+
+    /**
+     * Change the reason of a visit.
+     * @return the visit as changed
+     * @throws OneDocException of type NOT_FOUND or ARCHIVED if the visit cannot be changed
+     */
+    public Visit editVisitReason(int visitNumber, String reason) throws OneDocException {
+        checkFields(reason);
+        if (reason.isEmpty()) {
+            throw new OneDocException("Please don't use edit to put in an empty reason! Use deleteReason");
+        }
+        Visit visit = visitList.editReason(visitNumber, reason);
+        storage.saveVisitData(visitList);
+        return visit;
+    }
+
+    /**
+     * Remove the reason of a visit.
+     * @return the visit as changed
+     * @throws OneDocException of type NOT_FOUND or ARCHIVED if the visit cannot be changed
+     */
+    public Visit deleteVisitReason(int visitNumber) throws OneDocException {
+        Visit visit = visitList.deleteReason(visitNumber);
+        storage.saveVisitData(visitList);
+        return visit;
+    }
+
+    /**
+     * Delete a visit. Its number is not given to another visit.
+     * @return the visit deleted
+     * @throws OneDocException of type NOT_FOUND or ARCHIVED if the visit cannot be deleted
+     */
+    public Visit deleteVisit(int visitNumber) throws OneDocException {
+        Visit visit = visitList.deleteVisit(visitNumber);
+        storage.saveVisitData(visitList);
+        return visit;
+    }
+
+    /**
+     * Find the visits matching every given condition, as the find command does. Archived visits are left out.
+     * @param patientId is the ID of the patient, or null for visits of any patient
+     * @param fromDate is the earliest date in the format DD-MM-YYYY, or null
+     * @param toDate is the latest date in the format DD-MM-YYYY, or null
+     * @param reason are words the reason must contain, or null
+     */
+    public Selection<Visit> findVisits(String patientId, String fromDate, String toDate, String reason) {
+        return visitList.select(patientId, fromDate, toDate, reason);
+    }
+
+    /**
+     * Take a run of the visits, as shown a page at a time by viewall. Archived visits are held as stand-ins, which
+     * getVisit reads back.
+     * @param sortField is VisitList.SORT_BY_DATE, or null for the order added in
+     * @param isDescending is true to sort from the highest value down
+     * @param skip is the number of visits before the run
+     * @param count is the largest number of visits to take
+     */
+    public Selection<Visit> listVisits(String sortField, boolean isDescending, int skip, int count) {
+        return visitList.select(sortField, isDescending, skip, count);
+    }
+
+    /**
+     * Add an active prescription of a patient.
+     * @return the number of the prescription
+     * @throws OneDocException of type DUPLICATE if the patient already has the same prescription
+     */
+    public int addPrescription(String patientId, String medicine, String dosage, String timeInterval)
+            throws OneDocException {
+        int number = prescriptionList.add(toPrescription(patientId, medicine, dosage, timeInterval));
+        storage.savePrescriptionData(prescriptionList);
+        return number;
+    }
+
+    /**
+     * Add a batch of active prescriptions, or none of them if any is invalid or already exists, either in the list
+     * or in the batch.
+     * @param prescriptions are the prescriptions to add, in order
+     * @return the numbers of the prescriptions, in the same order
+     */
+    public int[] addPrescriptions(Collection<Prescription> prescriptions) throws OneDocException {
+        List<Prescription> checkedPrescriptions = new ArrayList<>(prescriptions.size());
+        for (Prescription prescription : prescriptions) {
+            checkedPrescriptions.add(toPrescription(prescription.getPatientId(), prescription.getMedicine(),
+                    prescription.getDosage(), prescription.getTimeInterval()));
+        }
+        int[] numbers = prescriptionList.addAll(checkedPrescriptions);
+        if (numbers.length > 0) {
+            storage.savePrescriptionData(prescriptionList);
+        }
+        return numbers;
+    }
+
+    private Prescription toPrescription(String patientId, String medicine, String dosage, String timeInterval)
+            throws OneDocException {
+        String[] inputs = {toUpperCase(patientId), medicine, dosage, timeInterval, "T"};
+        checkFields(inputs);
+        checkPatientExists(inputs[0]);
+        if (!Parser.isPrescriptionInputValid(inputs, patientList)) {
+            throw new OneDocException(INVALID_PRESCRIPTION);
+        }
+        return new Prescription(inputs[0], medicine, dosage, timeInterval);
+    }
+
+    /**
+     * Retrieve a prescription.
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription
+     */
+    public Prescription getPrescription(int prescriptionNumber) throws OneDocException {
+        return prescriptionList.get(prescriptionNumber);
+    }
+
+    /**
+     * Change the details of a prescription. An empty detail is left as it is.
+     * @return the prescription as changed
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription, or DUPLICATE if the patient
+     *     already has the changed prescription
+     */
+    public Prescription editPrescription(int prescriptionNumber, String medicine, String dosage,
+            String timeInterval) throws OneDocException {
+        checkFields(medicine, dosage, timeInterval);
+        Prescription prescription = prescriptionList.edit(prescriptionNumber, medicine, dosage, timeInterval);
+        storage.savePrescriptionData(prescriptionList);
+        return prescription;
+    }
+
+    /**
+     * Activate or deactivate a prescription.
+     * @return the prescription as changed
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription
+     */
+    public Prescription setPrescriptionActive(int prescriptionNumber, boolean isActive) throws OneDocException {
+        Prescription prescription = prescriptionList.setActive(prescriptionNumber, isActive);
+        storage.savePrescriptionData(prescriptionList);
+        return prescription;
+    }
+
+    /**
+     * Delete a prescription. Its number is not given to another prescription.
+     * @return the prescription deleted
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription
+     */
+    public Prescription deletePrescription(int prescriptionNumber) throws OneDocException {
+        Prescription prescription = prescriptionList.delete(prescriptionNumber);
+        storage.savePrescriptionData(prescriptionList);
+        return prescription;
+    }
+
+    /**
+     * Find the prescriptions matching every given condition.
+     * @param patientId is the ID of the patient, or null for prescriptions of any patient
+     * @param medicine is the name of the medicine, ignoring case, or null for any medicine
+     * @param isActiveOnly is true if inactive prescriptions are left out
+     */
+    public Selection<Prescription> findPrescriptions(String patientId, String medicine, boolean isActiveOnly) {
+        return prescriptionList.select(patientId, medicine, isActiveOnly);
+    }
+
+    private static String toUpperCase(String patientId) {
+        return patientId == null ? null : patientId.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Check that every field is given and holds no |, which separates the fields in the data files.
+     */
+    private static void checkFields(String... inputs) throws OneDocException {
+        for (String input : inputs) {
+            if (input == null) {
+                throw new OneDocException("Every field must be given");
+            }
+            if (input.indexOf('|') >= 0) {
+                throw new OneDocException(SEPARATOR_IN_FIELD);
+            }
+        }
+    }
+
+    private static void throwIfInvalid(String errorMessage) throws OneDocException {
+        if (errorMessage != null) {
+            throw new OneDocException(errorMessage);
+        }
+    }
+
+    /**
+     * PatientDeletion holds a deleted patient, its number, and how many of their visits and prescriptions were deleted
+     * with them.
+     */
+    public static class PatientDeletion {
+        private final Patient patient;
+        private final int number;
+        private final int visitCount;
+        private final int prescriptionCount;
+
+        private PatientDeletion(Patient patient, int number, int visitCount, int prescriptionCount) {
+            this.patient = patient;
+            this.number = number;
+            this.visitCount = visitCount;
+            this.prescriptionCount = prescriptionCount;
+        }
+
+        public Patient getPatient() {
+            return patient;
+        }
+
+        /**
+         * Retrieve the number the patient had, starting from 1.
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        public int getVisitCount() {
+            return visitCount;
+        }
+
+        public int getPrescriptionCount() {
+            return prescriptionCount;
+        }
+    }
+}
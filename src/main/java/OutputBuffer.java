@@ -0,0 +1,105 @@
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * OutputBuffer is a class that collects the text of a listing, which records write themselves into, and writes it to
+ * the standard output in large pieces, so that showing many records makes no string or line of output for each one.
+ * The text, the characters being encoded and the bytes being written are all kept and reused for every listing.
+ * Text is written to a given stream, or to System.out as it is at the time, and only the thread running the commands
+ * uses the buffer.
+ */
+public class OutputBuffer {
+    private static final int FLUSH_SIZE = 8192;
+
+    private final PrintStream target;
+    private final StringBuilder text;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer bytes;
+    private char[] chars;
+    private CharBuffer charBuffer;
+
+    public OutputBuffer() {
+        this(null);
+    }
+
+    /**
+     * Create a buffer that writes to a given stream.
+     * @param target is the stream to write to, or null for System.out as it is at each write
+     */
+    public OutputBuffer(PrintStream target) {
+        this.target = target;
+        text = new StringBuilder(FLUSH_SIZE * 2);
+        encoder = getOutputCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocate(FLUSH_SIZE * 4);
+        chars = new char[FLUSH_SIZE * 2];
+        charBuffer = CharBuffer.wrap(chars);
+    }
+
+    private static Charset getOutputCharset() {
+        String encoding = System.getProperty("stdout.encoding");
+        try {
+            return encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
+    /**
+     * Retrieve the text not written yet, for a record to be added to.
+     */
+    public StringBuilder getText() {
+        return text;
+    }
+
+    /**
+     * Write the text out once enough of it has been collected. This is called after each record is added.
+     */
+    public void flushIfFull() {
+        if (text.length() >= FLUSH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all the text collected so far to the output, which must be done before anything else is printed to it.
+     */
+    public void flush() {
+        int length = text.length();
+        if (length == 0) {
+            return;
+        }
+        if (length > chars.length) {
+            chars = new char[length];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        text.getChars(0, length, chars, 0);
+        text.setLength(0);
+        charBuffer.clear();
+        charBuffer.limit(length);
+
+        PrintStream out = target == null ? System.out : target;
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(charBuffer, bytes, true);
+            writeBytes(out);
+        } while (result.isOverflow());
+        do {
+            result = encoder.flush(bytes);
+            writeBytes(out);
+        } while (result.isOverflow());
+        out.flush();
+    }
+
+    private void writeBytes(PrintStream out) {
+        out.write(bytes.array(), 0, bytes.position());
+        bytes.clear();
+    }
+}
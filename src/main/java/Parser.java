@@ -1,7 +1,5 @@
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.time.format.ResolverStyle;
-import java.util.Locale;
+import java.io.File;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,6 +10,9 @@ public class Parser {
     private final PrescriptionList prescriptionList;
     private final UI ui;
     private final Storage storage;
+    private final CsvImporter importer;
+    private final Exporter exporter;
+    private final OneDocService service;
 
     public Parser(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList, UI ui) {
         this.patientList = patientList;
@@ -19,6 +20,9 @@ public class Parser {
         this.prescriptionList = prescriptionList;
         this.ui = ui;
         this.storage = new Storage();
+        this.importer = new CsvImporter(patientList, visitList, prescriptionList, storage);
+        this.exporter = new Exporter(patientList, visitList, prescriptionList);
+        this.service = new OneDocService(patientList, visitList, prescriptionList, storage);
     }
 
     public Parser(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList, UI ui,
@@ -28,6 +32,9 @@ public class Parser {
         this.prescriptionList = prescriptionList;
         this.ui = ui;
         this.storage = storage;
+        this.importer = new CsvImporter(patientList, visitList, prescriptionList, storage);
+        this.exporter = new Exporter(patientList, visitList, prescriptionList);
+        this.service = new OneDocService(patientList, visitList, prescriptionList, storage);
     }
 
     /**
@@ -77,7 +84,10 @@ public class Parser {
             Matcher matcherAdd = patientAddMatcher(input);
             Matcher matcherRetrieve = patientRetrieveMatcher(input);
             Matcher matcherEdit = patientEditMatcher(input);
-            if (inputLower.startsWith(VIEW_ALL_COMMAND)) {
+            Matcher matcherDelete = patientDeleteMatcher(input);
+            if (inputLower.startsWith(VIEW_ALL_COMMAND) && hasViewAllOptions(inputLower)) {
+                parseViewAllPatients(input);
+            } else if (inputLower.startsWith(VIEW_ALL_COMMAND)) {
                 checkViewAllCommand(inputLower, "patient");
                 patientList.listPatients(ui);
             } else if (inputLower.startsWith(ADD_COMMAND)) {
@@ -91,16 +101,25 @@ public class Parser {
             } else if (inputLower.startsWith(RETRIEVE_PATIENT_COMMAND)) {
                 errorIfNoMatchPatient(matcherRetrieve, RETRIEVE_PATIENT_COMMAND);
                 patientList.retrievePatient(ui, matcherRetrieve.group(1).toUpperCase());
+            } else if (inputLower.startsWith(REPORT_COMMAND)) {
+                patientList.printReport(ui);
+            } else if (inputLower.startsWith(IMPORT_COMMAND)) {
+                ui.printImportResult(importer.importPatients(getImportFile(input)), UI.PATIENT);
+            } else if (inputLower.startsWith(EXPORT_COMMAND)) {
+                parseExportPatients(input);
             } else if (inputLower.startsWith(EDIT_COMMAND)) {
                 errorIfNoMatchPatient(matcherEdit, EDIT_COMMAND);
                 parseEditPatient(matcherEdit.group(1).toUpperCase(), matcherEdit.group(2), matcherEdit.group(3));
+            } else if (inputLower.startsWith(DELETE_COMMAND)) {
+                errorIfNoMatchPatient(matcherDelete, DELETE_COMMAND);
+                parseDeletePatient(matcherDelete.group(1).toUpperCase());
             } else {
                 errorIfNoMatchPatient(null, "default");
             }
         } catch (OneDocException e) {
             ui.printInvalidFormatMessage(e.getMessage());
         } catch (Exception e) {
-            System.out.println("Unexpected issue: " + e.getMessage());
+            ui.printUnexpectedIssue(e.getMessage());
         }
         return SubMenuState.IN_SUB_MENU;
     }
@@ -120,9 +139,12 @@ public class Parser {
             Matcher matcherAdd = addVisitMatcher(input);
             Matcher matcherEdit = editVisitMatcher(input);
             Matcher matcherDelete = deleteReasonMatcher(input);
+            Matcher matcherDeleteVisit = deleteVisitMatcher(input);
             Matcher matcherViewPatient = viewVisitPatientMatcher(input);
             Matcher matcherViewVisit = viewOneVisitMatcher(input);
-            if (inputLower.startsWith(VIEW_ALL_COMMAND)) {
+            if (inputLower.startsWith(VIEW_ALL_COMMAND) && hasViewAllOptions(inputLower)) {
+                parseViewAllVisits(input);
+            } else if (inputLower.startsWith(VIEW_ALL_COMMAND)) {
                 checkViewAllCommand(inputLower, "visit");
                 visitList.viewAll(ui);
             } else if (inputLower.startsWith(ADD_COMMAND)) {
@@ -137,6 +159,10 @@ public class Parser {
                 errorIfReasonEmpty(reason);
                 visitList.editReason(ui, Integer.parseInt(matcherEdit.group(1)), reason);
                 storage.saveVisitData(visitList);
+            } else if (inputLower.startsWith(DELETE_VISIT_COMMAND.toLowerCase())) {
+                errorIfNoMatchVisit(matcherDeleteVisit, DELETE_VISIT_COMMAND);
+                visitList.deleteVisit(ui, Integer.parseInt(matcherDeleteVisit.group(1)));
+                storage.saveVisitData(visitList);
             } else if (inputLower.startsWith(DELETE_REASON_COMMAND.toLowerCase())
                     || inputLower.startsWith("delete")) {
                 errorIfNoMatchVisit(matcherDelete, DELETE_REASON_COMMAND);
@@ -150,13 +176,23 @@ public class Parser {
             } else if (inputLower.startsWith(VIEW_VISIT_COMMAND.toLowerCase())) {
                 errorIfNoMatchVisit(matcherViewVisit, VIEW_VISIT_COMMAND);
                 visitList.viewVisit(ui, Integer.parseInt(matcherViewVisit.group(1)));
+            } else if (inputLower.startsWith(REPORT_COMMAND)) {
+                visitList.printReport(ui);
+            } else if (inputLower.startsWith(IMPORT_COMMAND)) {
+                ui.printImportResult(importer.importVisits(getImportFile(input)), UI.VISIT);
+            } else if (inputLower.startsWith(EXPORT_COMMAND)) {
+                parseExportVisits(input);
+            } else if (inputLower.startsWith(FIND_COMMAND)) {
+                parseFindVisits(input);
+            } else if (inputLower.startsWith(NEXT_FREE_COMMAND.toLowerCase())) {
+                parseNextFree(input);
             } else {
                 errorIfNoMatchVisit(null, "default");
             }
         } catch (OneDocException e) {
             ui.printInvalidFormatMessage(e.getMessage());
         } catch (Exception e) {
-            System.out.println("Unexpected issue: " + e.getMessage());
+            ui.printUnexpectedIssue(e.getMessage());
         }
 
         return SubMenuState.IN_SUB_MENU;
@@ -181,6 +217,7 @@ public class Parser {
             Matcher matcherViewActive = viewPrescriptionActiveMatcher(input);
             Matcher matcherChangeActive = changePrescriptionActiveMatcher(input);
             Matcher matcherChangeInactive = changePrescriptionInactiveMatcher(input);
+            Matcher matcherDelete = deletePrescriptionMatcher(input);
             if (inputLower.startsWith(VIEW_ALL_COMMAND)) {
                 checkViewAllCommand(inputLower, "prescription");
                 prescriptionList.viewAll(ui);
@@ -217,13 +254,25 @@ public class Parser {
                 errorIfNoMatchPrescription(matcherChangeInactive, DEACTIVATE_COMMAND);
                 prescriptionList.deactivatePrescription(ui, matcherChangeInactive.group(1));
                 storage.savePrescriptionData(prescriptionList);
+            } else if (inputLower.startsWith(DELETE_COMMAND)) {
+                errorIfNoMatchPrescription(matcherDelete, DELETE_COMMAND);
+                prescriptionList.delete(ui, matcherDelete.group(1));
+                storage.savePrescriptionData(prescriptionList);
+            } else if (inputLower.startsWith(REPORT_COMMAND)) {
+                prescriptionList.printReport(ui);
+            } else if (inputLower.startsWith(IMPORT_COMMAND)) {
+                ui.printImportResult(importer.importPrescriptions(getImportFile(input)), UI.PRESCRIPTION);
+            } else if (inputLower.startsWith(EXPORT_COMMAND)) {
+                parseExportPrescriptions(input);
+            } else if (inputLower.startsWith(FIND_COMMAND)) {
+                parseFindPrescriptions(input);
             } else {
                 errorIfNoMatchPrescription(null, "default");
             }
         } catch (OneDocException e) {
             ui.printInvalidFormatMessage(e.getMessage());
         } catch (Exception e) {
-            System.out.println("Unexpected issue: " + e.getMessage());
+            ui.printUnexpectedIssue(e.getMessage());
         }
 
         return SubMenuState.IN_SUB_MENU;
@@ -244,6 +293,10 @@ public class Parser {
                 throw new OneDocException(ERROR_MESSAGE + UI.PATIENT_RETRIEVE
                         + "\n\ti - The id can be a sequence of numbers or letters without any spaces"
                         + HELP_MESSAGE);
+            case DELETE_COMMAND:
+                throw new OneDocException(ERROR_MESSAGE + UI.PATIENT_DELETE
+                        + "\n\ti - The id can be a sequence of numbers or letters without any spaces"
+                        + HELP_MESSAGE);
             default:
                 throw new OneDocException("Your input is incorrect! Please format it as such:"
                         + UI.PATIENT_ADD
@@ -267,6 +320,10 @@ public class Parser {
                 throw new OneDocException(ERROR_MESSAGE + UI.VISIT_DELETE_REASON
                         + "\n\tx - The index should be a displayed number next to the visit"
                         + HELP_MESSAGE);
+            case DELETE_VISIT_COMMAND:
+                throw new OneDocException(ERROR_MESSAGE + UI.VISIT_DELETE
+                        + "\n\tx - The index should be a displayed number next to the visit"
+                        + HELP_MESSAGE);
             case VIEW_PATIENT_COMMAND:
                 throw new OneDocException(ERROR_MESSAGE + UI.VISIT_VIEW_PATIENT
                         + "\n\ti - The id can be a sequence of numbers or letters without any spaces"
@@ -318,6 +375,10 @@ public class Parser {
                 throw new OneDocException(ERROR_MESSAGE + UI.PRESCRIPTION_CHANGE_INACTIVE
                         + "\n\tx - The index should be a displayed number next to the prescription"
                         + HELP_MESSAGE);
+            case DELETE_COMMAND:
+                throw new OneDocException(ERROR_MESSAGE + UI.PRESCRIPTION_DELETE
+                        + "\n\tx - The index should be a displayed number next to the prescription"
+                        + HELP_MESSAGE);
             default:
                 throw new OneDocException("Your input is incorrect! Please format it as such:"
                         + UI.PRESCRIPTION_ADD
@@ -333,62 +394,21 @@ public class Parser {
         }
     }
 
-    private static void checkDate(int day, int month, String date) throws OneDocException {
-        try {
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd-MM-uuuu", Locale.US)
-                    .withResolverStyle(ResolverStyle.STRICT);
-            dateFormatter.parse(date);
-            if (day < MIN_DAY_RANGE || day > MAX_DAY_RANGE || month < MIN_MONTH_RANGE || MAX_MONTH_RANGE > 12) {
-                throw new OneDocException(UI.INVALID_DATE);
-            }
-        } catch (NumberFormatException e) {
-            throw new OneDocException(UI.INVALID_DATE_FORMAT);
-        } catch (DateTimeParseException e) {
-            throw new OneDocException(UI.DATE_DOESNT_EXIST);
-        }
-    }
-
     private static void checkDateForVisit(String date) throws OneDocException {
-        try {
-            String[] dateSplit = date.split("-");
-            checkDate(Integer.parseInt(dateSplit[0]),Integer.parseInt(dateSplit[1]),date);
-            int year = Integer.parseInt(dateSplit[2]);
-            if (year < MIN_YEAR_RANGE || year > MAX_YEAR_RANGE) {
-                throw new OneDocException(UI.INVALID_YEAR);
-            }
-        } catch (NumberFormatException e) {
-            throw new OneDocException(UI.INVALID_DATE_FORMAT);
-        }
+        throwIfInvalid(DateTimeValidator.validateVisitDate(date));
     }
 
     private static void checkBirthDate(String date) throws OneDocException {
-        try {
-            String[] dateSplit = date.split("-");
-            int day = Integer.parseInt(dateSplit[0]);
-            int month = Integer.parseInt(dateSplit[1]);
-            int year = Integer.parseInt(dateSplit[2]);
-            checkDate(day,month,date);
-            if ((day > java.time.LocalDate.now().getDayOfMonth() && month >= java.time.LocalDate.now().getMonthValue()
-                    && year >= java.time.LocalDate.now().getYear()) || year < MIN_DOB_YEAR_RANGE) {
-                throw new OneDocException(UI.INVALID_DOB);
-            }
-        } catch (NumberFormatException e) {
-            throw new OneDocException(UI.INVALID_DATE);
-        }
+        throwIfInvalid(DateTimeValidator.validateBirthDate(date));
     }
 
-
     private static void checkTime(String time) throws OneDocException {
-        try {
-            String[] timeSplit = time.split(":");
-            int hour = Integer.parseInt(timeSplit[0]);
-            int minute = Integer.parseInt(timeSplit[1]);
-            if (hour < MIN_TIME_RANGE || hour > MAX_HOUR_RANGE || minute < MIN_TIME_RANGE
-                    || minute > MAX_MINUTE_RANGE) {
-                throw new OneDocException(UI.INVALID_TIME);
-            }
-        } catch (NumberFormatException e) {
-            throw new OneDocException(UI.INVALID_TIME);
+        throwIfInvalid(DateTimeValidator.validateTime(time));
+    }
+
+    private static void throwIfInvalid(String errorMessage) throws OneDocException {
+        if (errorMessage != null) {
+            throw new OneDocException(errorMessage);
         }
     }
 
@@ -399,12 +419,66 @@ public class Parser {
         }
     }
 
+    private static boolean hasViewAllOptions(String inputLower) {
+        return inputLower.contains(SORT_OPTION) || inputLower.contains(PAGE_OPTION);
+    }
+
+    private void parseViewAllPatients(String input) throws OneDocException {
+        Matcher matcher = viewAllMatcher(input);
+        if (!matcher.find() || !isSortField(matcher.group(1), PatientList.SORT_BY_NAME, PatientList.SORT_BY_BIRTH_DATE)
+                || isPageZero(matcher)) {
+            throw new OneDocException(ERROR_MESSAGE + UI.PATIENT_VIEW_ALL + HELP_MESSAGE);
+        }
+        patientList.listPatients(ui, getSortField(matcher), isDescending(matcher), getPage(matcher),
+                Settings.getPageSize());
+    }
+
+    private void parseViewAllVisits(String input) throws OneDocException {
+        Matcher matcher = viewAllMatcher(input);
+        if (!matcher.find() || !isSortField(matcher.group(1), VisitList.SORT_BY_DATE) || isPageZero(matcher)) {
+            throw new OneDocException(ERROR_MESSAGE + UI.VISIT_VIEW_ALL + HELP_MESSAGE);
+        }
+        visitList.viewAll(ui, getSortField(matcher), isDescending(matcher), getPage(matcher), Settings.getPageSize());
+    }
+
+    private static Matcher viewAllMatcher(String input) {
+        return Pattern.compile("^" + VIEW_ALL_COMMAND + "(?:\\s+" + SORT_OPTION + "\\s*(\\w+)(?:\\s+(asc|desc))?)?"
+                + "(?:\\s+" + PAGE_OPTION + "\\s*(\\d{1,9}))?\\s*$", Pattern.CASE_INSENSITIVE).matcher(input.trim());
+    }
+
+    private static boolean isSortField(String field, String... sortFields) {
+        if (field == null) {
+            return true;
+        }
+        for (String sortField : sortFields) {
+            if (sortField.equalsIgnoreCase(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getSortField(Matcher matcher) {
+        return matcher.group(1) == null ? null : matcher.group(1).toLowerCase();
+    }
+
+    private static boolean isDescending(Matcher matcher) {
+        return "desc".equalsIgnoreCase(matcher.group(2));
+    }
+
+    private static int getPage(Matcher matcher) {
+        return matcher.group(3) == null ? 0 : Integer.parseInt(matcher.group(3));
+    }
+
+    private static boolean isPageZero(Matcher matcher) {
+        return matcher.group(3) != null && getPage(matcher) == 0;
+    }
+
     private void errorForPatientID(String patientId, boolean errorIfNotExist) throws OneDocException {
-        Patient patientIdFound = patientList.findPatient(patientId);
-        if (patientIdFound == null && errorIfNotExist) {
-            throw new OneDocException("That patient ID doesn't exist!");
-        } else if (patientIdFound != null && !errorIfNotExist) {
-            throw new OneDocException("That patient ID already exists! Please choose a new one");
+        if (errorIfNotExist) {
+            service.checkPatientExists(patientId);
+        } else {
+            service.checkNewPatientId(patientId);
         }
     }
 
@@ -415,6 +489,16 @@ public class Parser {
         }
     }
 
+    /**
+     * Delete a patient along with their visits and prescriptions, see OneDocService.deletePatient.
+     * @param patientId is the ID of the patient in upper case
+     */
+    private void parseDeletePatient(String patientId) throws OneDocException {
+        OneDocService.PatientDeletion deletion = service.deletePatient(patientId);
+        ui.printMessageAndObject(deletion.getPatient(), UI.PATIENT_DELETED, deletion.getNumber() - 1, UI.PATIENT);
+        ui.printDeletedPatientRecords(deletion.getVisitCount(), deletion.getPrescriptionCount());
+    }
+
     private void parseAddVisit(Matcher matcher, String patientId) throws OneDocException {
         String reason = matcher.group(4);
         checkDateForVisit(matcher.group(2));
@@ -443,6 +527,12 @@ public class Parser {
         return patientRetrievePattern.matcher(input);
     }
 
+    private static Matcher patientDeleteMatcher(String input) {
+        Pattern patientDeletePattern = Pattern.compile(
+                "^" + DELETE_COMMAND + "\\s*i/" + ID_REGEX + "$", Pattern.CASE_INSENSITIVE);
+        return patientDeletePattern.matcher(input);
+    }
+
     private static Matcher patientEditMatcher(String input) {
         Pattern patientEditPattern = Pattern.compile(
                 "^" + EDIT_COMMAND + "\\s*i/" + ID_REGEX + "(n|g|d)/\\s*([\\w-\\s]+)$",
@@ -488,6 +578,116 @@ public class Parser {
         }
     }
 
+    private static File getImportFile(String input) throws OneDocException {
+        Pattern importPattern = Pattern.compile("^" + IMPORT_COMMAND + "\\s*f/\\s*(.+?)\\s*$",
+                Pattern.CASE_INSENSITIVE);
+        Matcher matcher = importPattern.matcher(input);
+        if (!matcher.find()) {
+            throw new OneDocException(ERROR_MESSAGE + UI.IMPORT + HELP_MESSAGE);
+        }
+        return new File(matcher.group(1));
+    }
+
+    private void parseExportPatients(String input) throws OneDocException {
+        Matcher matcher = Pattern.compile("^" + EXPORT_COMMAND + EXPORT_FILE_REGEX + "(?:\\s+i/" + ID_REGEX + ")?$",
+                Pattern.CASE_INSENSITIVE).matcher(input);
+        if (!matcher.find()) {
+            throw new OneDocException(ERROR_MESSAGE + UI.PATIENT_EXPORT + HELP_MESSAGE);
+        }
+        String patientId = matcher.group(2);
+        if (patientId != null) {
+            errorForPatientID(patientId, true);
+        }
+        File file = new File(matcher.group(1));
+        ui.printExportResult(exporter.exportPatients(file, patientId), UI.PATIENT, file);
+    }
+
+    private void parseExportVisits(String input) throws OneDocException {
+        Matcher matcher = Pattern.compile("^" + EXPORT_COMMAND + EXPORT_FILE_REGEX + "(?:\\s+i/" + ID_REGEX + ")?"
+                + "(?:\\s+from/" + DATE_REGEX + ")?(?:\\s+to/" + DATE_REGEX + ")?$",
+                Pattern.CASE_INSENSITIVE).matcher(input);
+        if (!matcher.find()) {
+            throw new OneDocException(ERROR_MESSAGE + UI.VISIT_EXPORT + HELP_MESSAGE);
+        }
+        String patientId = matcher.group(2);
+        if (patientId != null) {
+            errorForPatientID(patientId, true);
+        }
+        String fromDate = matcher.group(3);
+        String toDate = matcher.group(4);
+        if (fromDate != null) {
+            checkDateForVisit(fromDate);
+        }
+        if (toDate != null) {
+            checkDateForVisit(toDate);
+        }
+        File file = new File(matcher.group(1));
+        ui.printExportResult(exporter.exportVisits(file, patientId, fromDate, toDate), UI.VISIT, file);
+    }
+
+    private void parseExportPrescriptions(String input) throws OneDocException {
+        Matcher matcher = Pattern.compile("^" + EXPORT_COMMAND + EXPORT_FILE_REGEX + "(?:\\s+i/" + ID_REGEX + ")?"
+                + "(?:\\s+s/\\s*(active)\\s*)?$", Pattern.CASE_INSENSITIVE).matcher(input);
+        if (!matcher.find()) {
+            throw new OneDocException(ERROR_MESSAGE + UI.PRESCRIPTION_EXPORT + HELP_MESSAGE);
+        }
+        String patientId = matcher.group(2);
+        if (patientId != null) {
+            errorForPatientID(patientId, true);
+        }
+        File file = new File(matcher.group(1));
+        ui.printExportResult(exporter.exportPrescriptions(file, patientId, matcher.group(3) != null),
+                UI.PRESCRIPTION, file);
+    }
+
+    private void parseFindVisits(String input) throws OneDocException {
+        Matcher matcher = Pattern.compile("^" + FIND_COMMAND + "(?:\\s+i/" + ID_REGEX + ")?"
+                + "(?:\\s+from/" + DATE_REGEX + ")?(?:\\s+to/" + DATE_REGEX + ")?(?:\\s+r/" + REASON_REGEX + ")?$",
+                Pattern.CASE_INSENSITIVE).matcher(input.trim());
+        if (!matcher.find() || isEveryGroupEmpty(matcher)) {
+            throw new OneDocException(ERROR_MESSAGE + UI.VISIT_FIND + HELP_MESSAGE);
+        }
+        String fromDate = matcher.group(2);
+        String toDate = matcher.group(3);
+        if (fromDate != null) {
+            checkDateForVisit(fromDate);
+        }
+        if (toDate != null) {
+            checkDateForVisit(toDate);
+        }
+        visitList.find(ui, matcher.group(1), fromDate, toDate, matcher.group(4));
+    }
+
+    private void parseNextFree(String input) throws OneDocException {
+        Matcher matcher = Pattern.compile("^" + NEXT_FREE_COMMAND + "\\s*d/" + DATE_REGEX + "t/" + TIME_REGEX + "$",
+                Pattern.CASE_INSENSITIVE).matcher(input);
+        if (!matcher.find()) {
+            throw new OneDocException(ERROR_MESSAGE + UI.VISIT_NEXT_FREE + HELP_MESSAGE);
+        }
+        checkDateForVisit(matcher.group(1));
+        checkTime(matcher.group(2));
+        visitList.nextFree(ui, matcher.group(1), matcher.group(2));
+    }
+
+    private void parseFindPrescriptions(String input) throws OneDocException {
+        Matcher matcher = Pattern.compile("^" + FIND_COMMAND + "(?:\\s+i/" + ID_REGEX + ")?"
+                + "(?:\\s+s/\\s*(active)\\s*)?(?:\\s+n/" + PRESCRIPTION_NAME_REGEX + ")?$",
+                Pattern.CASE_INSENSITIVE).matcher(input.trim());
+        if (!matcher.find() || isEveryGroupEmpty(matcher)) {
+            throw new OneDocException(ERROR_MESSAGE + UI.PRESCRIPTION_FIND + HELP_MESSAGE);
+        }
+        prescriptionList.find(ui, matcher.group(1), matcher.group(3), matcher.group(2) != null);
+    }
+
+    private static boolean isEveryGroupEmpty(Matcher matcher) {
+        for (int i = 1; i <= matcher.groupCount(); i++) {
+            if (matcher.group(i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static Matcher addVisitMatcher(String input) {
         Pattern addVisitPattern = Pattern.compile(
                 "^" + ADD_COMMAND + "\\s*i/" + ID_REGEX + "d/" + DATE_REGEX + "t/" + TIME_REGEX
@@ -509,6 +709,13 @@ public class Parser {
         return deleteReasonPattern.matcher(input);
     }
 
+    private static Matcher deleteVisitMatcher(String input) {
+        Pattern deleteVisitPattern = Pattern.compile(
+                "^" + DELETE_VISIT_COMMAND + "\\s*x/"
+                        + INDEX_REGEX + "$", Pattern.CASE_INSENSITIVE);
+        return deleteVisitPattern.matcher(input);
+    }
+
     private static Matcher viewVisitPatientMatcher(String input) {
         Pattern viewVisitPatientPattern = Pattern.compile(
                 "^" + VIEW_PATIENT_COMMAND + "\\s*i/"
@@ -566,6 +773,13 @@ public class Parser {
         return changePrescriptionInactivePattern.matcher(input);
     }
 
+    private static Matcher deletePrescriptionMatcher(String input) {
+        Pattern deletePrescriptionPattern = Pattern.compile(
+                "^" + DELETE_COMMAND + "\\s*x/" + INDEX_REGEX
+                        + "$", Pattern.CASE_INSENSITIVE);
+        return deletePrescriptionPattern.matcher(input);
+    }
+
     private void parseEditPrescription(int id, String type, String input) throws OneDocException {
         switch (type) {
         case "n":
@@ -617,15 +831,23 @@ public class Parser {
         if (!inputs[2].equals("M") && !inputs[2].equals("F")) {
             return false;
         }
-        try {
-            checkBirthDate(inputs[1]);
-        } catch (OneDocException e) {
+        if (DateTimeValidator.validateBirthDate(inputs[1]) != null) {
             return false;
         }
         return !inputs[0].isEmpty() && !inputs[1].isEmpty() && !inputs[3].isEmpty();
     }
 
     public static boolean isVisitInputValid(String[] inputs, PatientList patientList) {
+        return isVisitInputValid(inputs, patientList::containsPatientID);
+    }
+
+    /**
+     * Check the fields of a visit, looking up its patient ID through the given check.
+     * @param inputs are the ID, reason, date and time of the visit
+     * @param isKnownPatient tells whether a patient ID exists
+     * @return true if the visit is valid
+     */
+    public static boolean isVisitInputValid(String[] inputs, Predicate<String> isKnownPatient) {
         if (inputs == null) {
             return false;
         }
@@ -635,20 +857,23 @@ public class Parser {
         if (inputs[0].isEmpty() || inputs[2].isEmpty() || inputs[3].isEmpty()) {
             return false;
         }
-        try {
-            checkDateForVisit(inputs[2]);
-        } catch (OneDocException e) {
+        if (DateTimeValidator.validateVisitDate(inputs[2]) != null || DateTimeValidator.validateTime(inputs[3]) != null) {
             return false;
         }
-        try {
-            checkTime(inputs[3]);
-        } catch (OneDocException e) {
-            return false;
-        }
-        return patientList.containsPatientID(inputs[0]);
+        return isKnownPatient.test(inputs[0]);
     }
 
     public static boolean isPrescriptionInputValid(String[] inputs, PatientList patientList) {
+        return isPrescriptionInputValid(inputs, patientList::containsPatientID);
+    }
+
+    /**
+     * Check the fields of a prescription, looking up its patient ID through the given check.
+     * @param inputs are the patient ID, medicine, dosage, time interval and active status of the prescription
+     * @param isKnownPatient tells whether a patient ID exists
+     * @return true if the prescription is valid
+     */
+    public static boolean isPrescriptionInputValid(String[] inputs, Predicate<String> isKnownPatient) {
         if (inputs == null) {
             return false;
         }
@@ -661,7 +886,7 @@ public class Parser {
         if (inputs[0].isEmpty() || inputs[1].isEmpty() || inputs[2].isEmpty() || inputs[3].isEmpty()) {
             return false;
         }
-        return patientList.containsPatientID(inputs[0]);
+        return isKnownPatient.test(inputs[0]);
     }
 
     private static final String MAIN_PATIENT_COMMAND = "1";
@@ -674,13 +899,22 @@ public class Parser {
     private static final String ADD_COMMAND = "add";
     private static final String EDIT_COMMAND = "edit";
     private static final String RETRIEVE_PATIENT_COMMAND = "retrieve";
+    private static final String DELETE_COMMAND = "delete";
     private static final String DELETE_REASON_COMMAND = "deleteReason";
+    private static final String DELETE_VISIT_COMMAND = "deleteVisit";
     private static final String VIEW_PATIENT_COMMAND = "viewPatient";
     private static final String VIEW_PATIENT_PRES_COMMAND = "viewPatientPres";
     private static final String VIEW_ACT_PATIENT_PRES_COMMAND = "viewActPatientPres";
     private static final String ACTIVATE_COMMAND = "activate";
     private static final String DEACTIVATE_COMMAND = "deactivate";
     private static final String VIEW_VISIT_COMMAND = "viewVisit";
+    private static final String IMPORT_COMMAND = "import";
+    private static final String EXPORT_COMMAND = "export";
+    private static final String FIND_COMMAND = "find";
+    private static final String NEXT_FREE_COMMAND = "nextFree";
+    private static final String REPORT_COMMAND = "report";
+    private static final String SORT_OPTION = "sort/";
+    private static final String PAGE_OPTION = "page/";
     private static final String ID_REGEX = "\\s*(\\w+)\\s*";
     private static final String PATIENT_NAME_REGEX = "\\s*(\\w+\\s*\\w+|\\w+)\\s*";
     private static final String GENDER_REGEX = "\\s*(M|F)\\s*";
@@ -695,17 +929,8 @@ public class Parser {
             "(?:r/\\s*((?:\\w+\\s*)*\\w+))*\\s*";
     private static final String REASON_REGEX = "\\s*((?:\\w+\\s*)*\\w+)\\s*";
     private static final String INDEX_REGEX = "\\s*(\\d+)\\s*";
+    private static final String EXPORT_FILE_REGEX = "\\s*f/\\s*(.+?)\\s*";
 
     private static final String ERROR_MESSAGE = "Your input is incorrect! Please format it as such:";
     private static final String HELP_MESSAGE = "\nIf you want to see the whole list of commands, type help!";
-    private static final int MIN_DOB_YEAR_RANGE = 1922;
-    private static final int MIN_YEAR_RANGE = 2000;
-    private static final int MAX_YEAR_RANGE = 2050;
-    private static final int MIN_DAY_RANGE = 1;
-    private static final int MAX_DAY_RANGE = 31;
-    private static final int MIN_MONTH_RANGE = 1;
-    private static final int MAX_MONTH_RANGE = 12;
-    private static final int MIN_TIME_RANGE = 0;
-    private static final int MAX_HOUR_RANGE = 23;
-    private static final int MAX_MINUTE_RANGE = 59;
 }
@@ -1,11 +1,22 @@
-public class Patient {
-    private String name;
-    private String birthDate;
-    private String gender;
-    private final String id;
+/**
+ * Patient is a class that holds the details of a patient. It cannot be changed once created, so that a version of the
+ * patient list can be read while a newer one is being made; an edit makes a changed copy instead.
+ * The ID is kept as its key in PatientKeys, and so is in upper case.
+ */
+public class Patient implements Renderable {
+    public static final String DELETED = "deleted";
+
+    private final String name;
+    private final String birthDate;
+    private final String gender;
+    private final int key;
 
     public Patient(String name, String birthDate, String gender, String id) {
-        this.id = id;
+        this(name, birthDate, gender, PatientKeys.getKey(id));
+    }
+
+    private Patient(String name, String birthDate, String gender, int key) {
+        this.key = key;
         this.name = name;
         this.gender = gender;
         this.birthDate = birthDate;
@@ -15,16 +26,20 @@ public class Patient {
         return name;
     }
 
-    public void setName(String name) {
-        this.name = name;
+    public Patient withName(String name) {
+        return new Patient(name, birthDate, gender, key);
     }
 
-    public void setBirthDate(String birthDate) {
-        this.birthDate = birthDate;
+    public Patient withBirthDate(String birthDate) {
+        return new Patient(name, birthDate, gender, key);
     }
 
     public String getId() {
-        return id;
+        return PatientKeys.getId(key);
+    }
+
+    public int getKey() {
+        return key;
     }
 
     public String getBirthDate() {
@@ -35,20 +50,44 @@ public class Patient {
         return gender;
     }
 
-    public void setGender(String gender) {
-        this.gender = gender;
+    public Patient withGender(String gender) {
+        return new Patient(name, birthDate, gender, key);
+    }
+
+    /**
+     * Make the tombstone kept in the patient list in place of a deleted patient, so that no other patient takes its
+     * number. It keeps the key, so that the patient stays in the same shard, see DataFile.
+     * @return the tombstone, which is stored with its name and date of birth set to DELETED
+     */
+    public Patient toDeleted() {
+        return new Patient(DELETED, DELETED, "", key);
+    }
+
+    public boolean isDeleted() {
+        return DELETED.equals(birthDate);
+    }
+
+    @Override
+    public void appendTo(StringBuilder text) {
+        text.append("\tName: ").append(getName())
+                .append("\n\tGender: ").append(gender.equalsIgnoreCase("M") ? "Male" : "Female")
+                .append("\n\tDate of Birth: ").append(getBirthDate())
+                .append("\n\tID: ").append(getId());
+    }
+
+    @Override
+    public void appendJsonTo(StringBuilder json) {
+        Json.appendMember(json, "name", getName());
+        Json.appendMember(json, "gender", getGender());
+        Json.appendMember(json, "dob", getBirthDate());
+        Json.appendMember(json, "id", getId());
     }
 
     @Override
     public String toString() {
-        String message = "\t";
-        message += "Name: " + getName();
-        message += "\n\t";
-        message += "Gender: " + (gender.equalsIgnoreCase("M") ? "Male\n\t" : "Female\n\t");
-        message += "Date of Birth: " + getBirthDate();
-        message += "\n\t";
-        message += "ID: " + getId();
-        return message;
+        StringBuilder message = new StringBuilder();
+        appendTo(message);
+        return message.toString();
     }
 
 }
@@ -0,0 +1,53 @@
+import java.util.Locale;
+
+/**
+ * PatientKeys is a class that gives each patient ID a small number, its key, which patients, visits and prescriptions
+ * hold instead of the ID. IDs are compared ignoring case, so each is put in upper case once, when it is first given a
+ * key, and two records belong to the same patient exactly when their keys are equal.
+ * Keys are only ever added and are shared by every list, so they stay the same for as long as OneDoc runs. They are
+ * not written to the data files, which keep the IDs.
+ */
+public final class PatientKeys {
+    private static final StringDictionary IDS = new StringDictionary();
+
+    private PatientKeys() {
+    }
+
+    /**
+     * Retrieve the key of a patient ID, giving it the next key if it is new.
+     * @param id is the ID, ignoring case
+     * @return the key, starting from 0
+     */
+    public static synchronized int getKey(String id) {
+        return IDS.getId(normalize(id));
+    }
+
+    /**
+     * Find the key of a patient ID without adding it, e.g. to look up an ID entered by the user.
+     * @param id is the ID, ignoring case
+     * @return the key, or -1 if the ID has never been given one, in which case no record has it
+     */
+    public static synchronized int findKey(String id) {
+        return IDS.find(normalize(id));
+    }
+
+    /**
+     * Retrieve the ID with a key.
+     * @param key is the key given by getKey
+     * @return the ID in upper case
+     */
+    public static String getId(int key) {
+        return IDS.get(key);
+    }
+
+    /**
+     * Retrieve the number of keys given so far, which is one more than the highest key.
+     */
+    public static synchronized int size() {
+        return IDS.size();
+    }
+
+    private static String normalize(String id) {
+        return id.toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,98 +1,456 @@
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 
+/**
+ * PatientList is a class that holds the patients in a PersistentList.
+ * Changes are made one at a time while holding the lock of the list, and each one publishes a new version of the list.
+ * Listing and searching read the latest published version without taking the lock, so they are never held up by, nor
+ * see half of, a change.
+ * A patient is looked up by ID through an array holding the position of the patient with each key in PatientKeys. It
+ * is published after the list, and a position read from it is checked against the version of the list being read.
+ * A deleted patient leaves a tombstone in its position, so that the numbers of the other patients stay the same. It is
+ * left out of lookups, listings and counts.
+ * The patients are also indexed by name and by date of birth, which are kept up to date as patients are added, edited
+ * and deleted, so that the list can be shown sorted by either a page at a time without sorting it.
+ */
 public class PatientList {
-    private ArrayList<Patient> patients;
+    public static final String SORT_BY_NAME = "name";
+    public static final String SORT_BY_BIRTH_DATE = "dob";
+
+    private static final String MALE = "M";
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile PersistentList<Patient> patients;
+    private final ChangeTracker changeTracker;
+    private int maleCount;
+    private final BlockCounter deletedPositions;
+    private volatile int[] positionsByKey;
+    private final PositionIndex<String> nameIndex;
+    private final PositionIndex<Integer> birthDateIndex;
 
     public PatientList() {
-        patients = new ArrayList<>();
+        patients = PersistentList.empty();
+        changeTracker = new ChangeTracker();
+        deletedPositions = new BlockCounter();
+        positionsByKey = new int[INITIAL_CAPACITY];
+        nameIndex = new PositionIndex<>();
+        birthDateIndex = new PositionIndex<>();
     }
 
-    public void addPatient(UI ui, String name, String birthDate, String gender, String id) {
+    public synchronized void addPatient(UI ui, String name, String birthDate, String gender, String id) {
         assert name != null : "name of patient should not be null!";
         assert birthDate != null : "birthdate of patient should not be null!";
         assert gender != null : "gender of patient should not be null!";
         assert id != null : "id of patient should not be null!";
         Patient patient = new Patient(name, birthDate, gender, id);
-        patients.add(patient);
-        ui.printMessageAndObject(patient.toString(), UI.PATIENT_ADDED, patients.indexOf(patient), UI.PATIENT);
+        int index = appendNew(patient);
+        ui.printMessageAndObject(patient, UI.PATIENT_ADDED, index, UI.PATIENT);
+    }
+
+    /**
+     * Add a patient without printing it, unless another patient has the same ID.
+     * @param patient is the patient to add
+     * @return the number of the patient, starting from 1
+     * @throws OneDocException of type DUPLICATE if the ID is taken
+     */
+    public synchronized int add(Patient patient) throws OneDocException {
+        checkNewId(patient.getId());
+        return appendNew(patient) + 1;
+    }
+
+    /**
+     * Add a batch of patients without printing them. Either every patient is added or, if any of their IDs is taken
+     * in the list or earlier in the batch, none is.
+     * @param newPatients are the patients to add, in order
+     * @return the numbers of the patients, in the same order
+     * @throws OneDocException of type DUPLICATE for the first patient whose ID is taken
+     */
+    public synchronized int[] addAll(List<Patient> newPatients) throws OneDocException {
+        HashSet<Integer> batchKeys = new HashSet<>();
+        for (Patient patient : newPatients) {
+            checkNewId(patient.getId());
+            if (!batchKeys.add(patient.getKey())) {
+                throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_PATIENT_ID_MESSAGE);
+            }
+        }
+        int[] numbers = new int[newPatients.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = appendNew(newPatients.get(i)) + 1;
+        }
+        return numbers;
+    }
+
+    private void checkNewId(String id) throws OneDocException {
+        if (findPatientIndex(positionsByKey, patients, id) >= 0) {
+            throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_PATIENT_ID_MESSAGE);
+        }
+    }
+
+    private int appendNew(Patient patient) {
+        append(patient);
+        countGender(patient.getGender(), 1);
+        changeTracker.markChanged(patients.size() - 1);
+        return patients.size() - 1;
     }
 
-    public void loadPatient(String name, String birthDate, String gender, String id) {
+    /**
+     * Load a patient from the data file. The patient counts are not updated, as they are rebuilt once loading is done.
+     */
+    public synchronized void loadPatient(String name, String birthDate, String gender, String id) {
+        append(new Patient(name, birthDate, gender, id));
+    }
+
+    /**
+     * Load a patient into a given position, replacing the patient there or appending it at the end of the list.
+     * The patient counts are not updated, as they are rebuilt once loading is done.
+     * @param index is the position of the patient, ranging from 0 to the size of list
+     */
+    public synchronized void loadPatient(int index, String name, String birthDate, String gender, String id) {
+        assert index >= 0 && index <= patients.size() : "index of loaded patient should be within the list!";
         Patient patient = new Patient(name, birthDate, gender, id);
-        patients.add(patient);
+        if (index == patients.size()) {
+            append(patient);
+            return;
+        }
+        Patient replacedPatient = patients.get(index);
+        int replacedKey = replacedPatient.getKey();
+        patients = patients.set(index, patient);
+        removeFromSortIndexes(replacedPatient, index);
+        addToSortIndexes(patient, index);
+        if (positionsByKey[replacedKey] == index + 1) {
+            if (replacedKey != patient.getKey()) {
+                positionsByKey[replacedKey] = findPatientIndex(patients, replacedKey) + 1;
+            } else if (patient.isDeleted()) {
+                // Patients never share an ID, so no other patient is found by it.
+                positionsByKey[replacedKey] = 0;
+            }
+        }
+        indexPatient(patient, index);
     }
 
-    public void retrievePatient(UI ui, String id) {
-        for (Patient patient : patients) {
-            if (patient.getId().equalsIgnoreCase(id)) {
-                ui.printMessageAndObject(patient.toString(),
-                        UI.PATIENT_RETRIEVED, patients.indexOf(patient), UI.PATIENT);
-                return;
+    private void append(Patient patient) {
+        patients = patients.add(patient);
+        indexPatient(patient, patients.size() - 1);
+        addToSortIndexes(patient, patients.size() - 1);
+    }
+
+    private void addToSortIndexes(Patient patient, int index) {
+        if (!patient.isDeleted()) {
+            nameIndex.add(getNameKey(patient), index);
+            birthDateIndex.add(DateTimeValidator.toDateKey(patient.getBirthDate()), index);
+        }
+    }
+
+    private void removeFromSortIndexes(Patient patient, int index) {
+        if (!patient.isDeleted()) {
+            nameIndex.remove(getNameKey(patient), index);
+            birthDateIndex.remove(DateTimeValidator.toDateKey(patient.getBirthDate()), index);
+        }
+    }
+
+    private static String getNameKey(Patient patient) {
+        return patient.getName().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Note the position of a patient, unless a patient with the same ID comes before it, which is the one found.
+     */
+    private void indexPatient(Patient patient, int index) {
+        if (patient.isDeleted()) {
+            return;
+        }
+        int key = patient.getKey();
+        int[] positions = positionsByKey;
+        if (key >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(key + 1, positions.length * 2));
+        }
+        if (positions[key] == 0 || positions[key] > index + 1) {
+            positions[key] = index + 1;
+        }
+        positionsByKey = positions;
+    }
+
+    /**
+     * Add a patient from a bulk import without printing it. It is written to disk with the next save of the list.
+     */
+    public synchronized void importPatient(String name, String birthDate, String gender, String id) {
+        appendNew(new Patient(name, birthDate, gender, id));
+    }
+
+    /**
+     * Count the patients of each gender again, after patients were loaded from the data file.
+     */
+    public synchronized void rebuildCounts() {
+        maleCount = 0;
+        deletedPositions.clear();
+        for (int i = 0; i < patients.size(); i++) {
+            Patient patient = patients.get(i);
+            if (patient.isDeleted()) {
+                deletedPositions.add(i, 1);
+            } else {
+                countGender(patient.getGender(), 1);
             }
         }
-        ui.printNoPatientFound();
+    }
+
+    private void countGender(String gender, int change) {
+        if (gender.equalsIgnoreCase(MALE)) {
+            maleCount += change;
+        }
+    }
+
+    public synchronized int getMaleCount() {
+        return maleCount;
+    }
+
+    public synchronized int getFemaleCount() {
+        return patients.size() - deletedPositions.getTotal() - maleCount;
+    }
+
+    public void printReport(UI ui) {
+        ui.printPatientReport(getTotalNumberofPatients(), getMaleCount(), getFemaleCount());
+    }
+
+    public void retrievePatient(UI ui, String id) {
+        int[] positions = positionsByKey;
+        PersistentList<Patient> snapshot = patients;
+        int index = findPatientIndex(positions, snapshot, id);
+        if (index < 0) {
+            ui.printNoPatientFound();
+            return;
+        }
+        ui.printMessageAndObject(snapshot.get(index), UI.PATIENT_RETRIEVED, index, UI.PATIENT);
     }
 
     public Patient findPatient(String id) {
         assert id != null : "id of patient should not be null!";
-        for (Patient patient : patients) {
-            if (patient.getId().equalsIgnoreCase(id)) {
-                return patient;
+        int[] positions = positionsByKey;
+        PersistentList<Patient> snapshot = patients;
+        int index = findPatientIndex(positions, snapshot, id);
+        return index < 0 ? null : snapshot.get(index);
+    }
+
+    /**
+     * Find the first patient with an ID in a version of the list, ignoring case.
+     * @param positions is the array of positions by key, read before the version of the list
+     * @param snapshot is the version of the list
+     * @param id is the ID of the patient
+     * @return the position of the patient, or -1 if there is none
+     */
+    private static int findPatientIndex(int[] positions, PersistentList<Patient> snapshot, String id) {
+        int key = PatientKeys.findKey(id);
+        if (key < 0 || key >= positions.length || positions[key] == 0) {
+            return -1;
+        }
+        int index = positions[key] - 1;
+        if (index < snapshot.size() && snapshot.get(index).getKey() == key && !snapshot.get(index).isDeleted()) {
+            return index;
+        }
+        // The patient was replaced while following another OneDoc, after the array was read.
+        return findPatientIndex(snapshot, key);
+    }
+
+    private static int findPatientIndex(PersistentList<Patient> snapshot, int key) {
+        int index = 0;
+        for (Patient patient : snapshot) {
+            if (patient.getKey() == key && !patient.isDeleted()) {
+                return index;
             }
+            index++;
         }
-        return null;
+        return -1;
     }
 
-    public void modifyPatientDetails(UI ui, String id, String name, String birthDate, String gender) {
-        Patient patientToBeModified = findPatient(id);
-        if (patientToBeModified == null) {
+    public synchronized void modifyPatientDetails(UI ui, String id, String name, String birthDate, String gender) {
+        int index = findPatientIndex(positionsByKey, patients, id);
+        if (index < 0) {
             ui.printNoPatientFound();
             return;
         }
+        Patient patientModified = modifyAt(index, name, birthDate, gender);
+        ui.printMessageAndObject(patientModified,UI.PATIENT_EDITED, index, UI.PATIENT);
+    }
+
+    /**
+     * Change the details of a patient without printing it.
+     * @param id is the ID of the patient
+     * @param name is the new name, or empty to keep it
+     * @param birthDate is the new date of birth, or empty to keep it
+     * @param gender is the new gender, or empty to keep it
+     * @return the patient as changed
+     * @throws OneDocException of type NOT_FOUND if there is no such patient
+     */
+    public synchronized Patient modify(String id, String name, String birthDate, String gender)
+            throws OneDocException {
+        return modifyAt(toExistingIndex(id), name, birthDate, gender);
+    }
+
+    private Patient modifyAt(int index, String name, String birthDate, String gender) {
+        Patient patientModified = patients.get(index);
         if (!name.isEmpty()) {
-            patientToBeModified.setName(name);
+            patientModified = patientModified.withName(name);
         }
         if (!birthDate.isEmpty()) {
-            patientToBeModified.setBirthDate(birthDate);
+            patientModified = patientModified.withBirthDate(birthDate);
         }
         if (!gender.isEmpty()) {
-            patientToBeModified.setGender(gender);
+            countGender(patientModified.getGender(), -1);
+            patientModified = patientModified.withGender(gender);
+            countGender(gender, 1);
+        }
+        removeFromSortIndexes(patients.get(index), index);
+        patients = patients.set(index, patientModified);
+        addToSortIndexes(patientModified, index);
+        changeTracker.markChanged(index);
+        return patientModified;
+    }
+
+    /**
+     * Delete a patient, leaving a tombstone in its position. The visits and prescriptions of the patient are not
+     * touched, and should be deleted first.
+     * @param ui is the user interface of OneDoc
+     * @param id is the ID of the patient
+     * @return true if the patient was found and deleted
+     */
+    public synchronized boolean deletePatient(UI ui, String id) {
+        int index = findPatientIndex(positionsByKey, patients, id);
+        if (index < 0) {
+            ui.printNoPatientFound();
+            return false;
         }
-        ui.printMessageAndObject(patientToBeModified.toString(),UI.PATIENT_EDITED,
-                patients.indexOf(patientToBeModified), UI.PATIENT);
+        Patient patient = deleteAt(index);
+        ui.printMessageAndObject(patient, UI.PATIENT_DELETED, index, UI.PATIENT);
+        return true;
+    }
+
+    /**
+     * Delete a patient without printing it, leaving a tombstone in its position. The visits and prescriptions of the
+     * patient are not touched, and should be deleted first.
+     * @param id is the ID of the patient
+     * @return the number the patient had, starting from 1
+     * @throws OneDocException of type NOT_FOUND if there is no such patient
+     */
+    public synchronized int delete(String id) throws OneDocException {
+        int index = toExistingIndex(id);
+        deleteAt(index);
+        return index + 1;
+    }
+
+    private Patient deleteAt(int index) {
+        Patient patient = patients.get(index);
+        patients = patients.set(index, patient.toDeleted());
+        positionsByKey[patient.getKey()] = 0;
+        removeFromSortIndexes(patient, index);
+        countGender(patient.getGender(), -1);
+        deletedPositions.add(index, 1);
+        changeTracker.markChanged(index);
+        return patient;
+    }
+
+    /**
+     * Find the position of a patient by ID.
+     * @throws OneDocException of type NOT_FOUND if there is no such patient
+     */
+    private int toExistingIndex(String id) throws OneDocException {
+        int index = findPatientIndex(positionsByKey, patients, id);
+        if (index < 0) {
+            throw new OneDocException(OneDocException.Type.NOT_FOUND, UI.NO_PATIENT_FOUND_MESSAGE);
+        }
+        return index;
     }
 
     public boolean isEmpty() {
-        return patients.size() == 0;
+        return getTotalNumberofPatients() == 0;
     }
 
-    public int getTotalNumberofPatients() {
-        return patients.size();
+    /**
+     * Retrieve the number of patients, leaving out deleted ones.
+     */
+    public synchronized int getTotalNumberofPatients() {
+        return patients.size() - deletedPositions.getTotal();
     }
 
     public Patient getPatient(int patientNumber) {
         return patients.get(patientNumber);
     }
 
+    /**
+     * Check if a patient has an ID, ignoring case as findPatient does.
+     * @param id is the ID of the patient
+     * @return true if the patient is in the list
+     */
     public boolean containsPatientID(String id) {
-        for (Patient patient: patients) {
-            if (patient.getId().equals(id)) {
-                return true;
-            }
-        }
-        return false;
+        return findPatient(id) != null;
     }
 
     public void listPatients(UI ui) {
-        if (isEmpty()) {
+        listPatients(ui, null, false, 0, 0);
+    }
+
+    /**
+     * Show the patients, or a page of them, in the order they were added or sorted by name or date of birth.
+     * @param ui is the user interface of OneDoc
+     * @param sortField is SORT_BY_NAME or SORT_BY_BIRTH_DATE, or null for the order the patients were added in
+     * @param isDescending is true to sort from the highest value down
+     * @param page is the page to show, starting from 1, or 0 for every patient
+     * @param pageSize is the number of patients on each page
+     */
+    public void listPatients(UI ui, String sortField, boolean isDescending, int page, int pageSize) {
+        int total = getTotalNumberofPatients();
+        if (total == 0) {
             ui.printNoPatientsMessage();
             return;
         }
-        ui.printPatientList(this);
+        int pageCount = page > 0 ? (int) ((total + (long) pageSize - 1) / pageSize) : 0;
+        if (page > pageCount) {
+            ui.printNoSuchPage(page, pageCount);
+            return;
+        }
+        Selection<Patient> selection = page > 0
+                ? select(sortField, isDescending, (page - 1) * pageSize, pageSize)
+                : select(sortField, isDescending, 0, Integer.MAX_VALUE);
+        ui.printPatientList(selection, page, pageCount);
     }
 
-    public ArrayList<Patient> getPatients() {
+    /**
+     * Take a run of the patients, in the order they were added or in the order of the name or birth date index.
+     * @param sortField is SORT_BY_NAME or SORT_BY_BIRTH_DATE, or null for the order the patients were added in
+     * @param isDescending is true to sort from the highest value down
+     * @param skip is the number of patients before the run
+     * @param count is the largest number of patients to take
+     * @return the patients taken, in the order they are shown
+     */
+    public synchronized Selection<Patient> select(String sortField, boolean isDescending, int skip, int count) {
+        int[] positions;
+        if (SORT_BY_NAME.equals(sortField)) {
+            positions = nameIndex.getSorted(isDescending, skip, count, null);
+        } else if (SORT_BY_BIRTH_DATE.equals(sortField)) {
+            positions = birthDateIndex.getSorted(isDescending, skip, count, null);
+        } else {
+            positions = getLivePositions(skip, count);
+        }
+        return new Selection<>(patients, positions);
+    }
+
+    private int[] getLivePositions(int skip, int count) {
+        PersistentList<Patient> currentPatients = patients;
+        return BlockCounter.getUnmarkedRun(currentPatients.size(), skip, count,
+                deletedPositions.getTotal() == 0 ? null : deletedPositions::get,
+                position -> currentPatients.get(position).isDeleted());
+    }
+
+    /**
+     * Retrieve the latest version of the list, which stays the same however the list is changed afterwards.
+     * @return the patients at the time of the call
+     */
+    public PersistentList<Patient> getPatients() {
         return patients;
     }
 
+    public ChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
 }
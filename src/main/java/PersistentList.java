@@ -0,0 +1,179 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentList is an immutable list, where adding or replacing a record gives a new version of the list and leaves
+ * the old version untouched. A version can therefore be read by any number of threads without locks, while a writer
+ * builds and publishes the next one.
+ * The records are kept in a tree of nodes with 32 slots each, plus a tail node for the last records. Versions share
+ * every node except those on the path to the changed record, so a change copies about log32(n) small arrays, and
+ * appending usually only copies the tail.
+ * @param <T> is the type of the records, which should be immutable themselves
+ */
+public final class PersistentList<T> implements RecordList<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentList<?> EMPTY = new PersistentList<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentList(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retrieve the record at a position.
+     * @param index is the position of the record, starting from 0
+     * @return the record
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        checkIndex(index);
+        return (T) getNode(index)[index & MASK];
+    }
+
+    /**
+     * Make a version of the list with a record added at the end.
+     * @param item is the record to add
+     * @return the new version
+     */
+    public PersistentList<T> add(T item) {
+        if (size - getTailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = item;
+            return new PersistentList<>(size + 1, shift, root, newTail);
+        }
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root);
+        }
+        return new PersistentList<>(size + 1, newShift, newRoot, new Object[] {item});
+    }
+
+    /**
+     * Make a version of the list with the record at a position replaced.
+     * @param index is the position of the record, starting from 0
+     * @param item is the record to put there
+     * @return the new version
+     */
+    public PersistentList<T> set(int index, T item) {
+        checkIndex(index);
+        if (index >= getTailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = item;
+            return new PersistentList<>(size, shift, root, newTail);
+        }
+        return new PersistentList<>(size, shift, setInNode(shift, root, index, item), tail);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index;
+            private Object[] node;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if ((index & MASK) == 0 || node == null) {
+                    node = getNode(index);
+                }
+                return (T) node[index++ & MASK];
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    private int getTailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] getNode(int index) {
+        if (index >= getTailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    /**
+     * Copy the path to the rightmost leaf, hanging the full tail below it as a new leaf.
+     */
+    private Object[] pushTail(int level, Object[] parent) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+        if (level == BITS) {
+            result[subIndex] = tail;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            result[subIndex] = child == null ? newPath(level - BITS, tail) : pushTail(level - BITS, child);
+        }
+        return result;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] result = new Object[WIDTH];
+        result[0] = newPath(level - BITS, node);
+        return result;
+    }
+
+    private static Object[] setInNode(int level, Object[] node, int index, Object item) {
+        Object[] result = node.clone();
+        if (level == 0) {
+            result[index & MASK] = item;
+        } else {
+            int subIndex = (index >>> level) & MASK;
+            result[subIndex] = setInNode(level - BITS, (Object[]) node[subIndex], index, item);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * PositionIndex is a class that maps a key, such as a patient ID or a date, to the positions in a list of the records
+ * having that key. Keys are kept in order, so that the positions of a range of keys can be found as well.
+ * The positions of each key are stored in a growable int array, which stays sorted as records are appended.
+ * As the keys are kept in order as records are added and changed, the index doubles as the list sorted by key, which
+ * can be read a page at a time without sorting anything but the records sharing a key on that page.
+ * @param <K> is the type of the keys
+ */
+public class PositionIndex<K extends Comparable<K>> {
+    private static final int[] NO_POSITIONS = new int[0];
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final TreeMap<K, Positions> positionsByKey;
+
+    public PositionIndex() {
+        positionsByKey = new TreeMap<>();
+    }
+
+    /**
+     * Record that the record at a position has a key.
+     * @param key is the key of the record
+     * @param position is the position of the record in its list
+     */
+    public void add(K key, int position) {
+        positionsByKey.computeIfAbsent(key, k -> new Positions()).add(position);
+    }
+
+    /**
+     * Forget that the record at a position has a key, e.g. because it was replaced.
+     * @param key is the key the record had
+     * @param position is the position of the record in its list
+     */
+    public void remove(K key, int position) {
+        Positions positions = positionsByKey.get(key);
+        if (positions == null) {
+            return;
+        }
+        positions.remove(position);
+        if (positions.size == 0) {
+            positionsByKey.remove(key);
+        }
+    }
+
+    /**
+     * Forget the records at several positions under every key, e.g. because they were moved out of the list.
+     * This goes through the whole index once, however many positions are removed.
+     * @param removedPositions are the positions of the records in ascending order
+     */
+    public void removeAll(int[] removedPositions) {
+        Iterator<Positions> iterator = positionsByKey.values().iterator();
+        while (iterator.hasNext()) {
+            Positions positions = iterator.next();
+            positions.removeAll(removedPositions);
+            if (positions.size == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        positionsByKey.clear();
+    }
+
+    /**
+     * Retrieve the keys that have records, in ascending order.
+     */
+    public Set<K> getKeys() {
+        return Collections.unmodifiableSet(positionsByKey.keySet());
+    }
+
+    /**
+     * Retrieve the positions of the records with a key.
+     * @param key is the key to look up
+     * @return the positions in ascending order
+     */
+    public int[] get(K key) {
+        Positions positions = positionsByKey.get(key);
+        return positions == null ? NO_POSITIONS : Arrays.copyOf(positions.items, positions.size);
+    }
+
+    /**
+     * Count the records with a key without copying their positions.
+     * @param key is the key to look up
+     * @return the number of records with the key
+     */
+    public int count(K key) {
+        Positions positions = positionsByKey.get(key);
+        return positions == null ? 0 : positions.size;
+    }
+
+    /**
+     * Count the records with a key in a range without copying their positions.
+     * @param from is the lowest key, or null for no lower bound
+     * @param to is the highest key, or null for no upper bound
+     * @return the number of records with a key in the range
+     */
+    public int countRange(K from, K to) {
+        int total = 0;
+        for (Positions positions : getRangeValues(from, to)) {
+            total += positions.size;
+        }
+        return total;
+    }
+
+    /**
+     * Retrieve the positions of the records with a key in a range.
+     * @param from is the lowest key, or null for no lower bound
+     * @param to is the highest key, or null for no upper bound
+     * @return the positions in ascending order
+     */
+    public int[] getRange(K from, K to) {
+        Collection<Positions> ranges = getRangeValues(from, to);
+        int total = 0;
+        for (Positions positions : ranges) {
+            total += positions.size;
+        }
+        int[] result = new int[total];
+        int offset = 0;
+        for (Positions positions : ranges) {
+            System.arraycopy(positions.items, 0, result, offset, positions.size);
+            offset += positions.size;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Retrieve a run of positions in the order of their keys, as if the records were sorted by key. The keys before the
+     * run are skipped by their number of records, without copying their positions.
+     * @param isDescending is true to start from the highest key, with the records of each key in reverse order too
+     * @param skip is the number of positions before the run
+     * @param count is the largest number of positions to retrieve
+     * @param tieOrder orders the records with the same key, or null to keep them in the order of their positions
+     * @return the positions of the run
+     */
+    public int[] getSorted(boolean isDescending, int skip, int count, Comparator<Integer> tieOrder) {
+        Collection<Positions> sortedPositions = isDescending
+                ? positionsByKey.descendingMap().values()
+                : positionsByKey.values();
+        int[] result = NO_POSITIONS;
+        int size = 0;
+        int toSkip = skip;
+        for (Positions positions : sortedPositions) {
+            if (size == count) {
+                break;
+            }
+            if (toSkip >= positions.size) {
+                toSkip -= positions.size;
+                continue;
+            }
+            int[] keyPositions = positions.getOrdered(isDescending, tieOrder);
+            int taken = Math.min(keyPositions.length - toSkip, count - size);
+            if (size + taken > result.length) {
+                result = Arrays.copyOf(result, Math.max(size + taken, result.length * 2));
+            }
+            System.arraycopy(keyPositions, toSkip, result, size, taken);
+            size += taken;
+            toSkip = 0;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private Collection<Positions> getRangeValues(K from, K to) {
+        if (from == null && to == null) {
+            return positionsByKey.values();
+        } else if (from == null) {
+            return positionsByKey.headMap(to, true).values();
+        } else if (to == null) {
+            return positionsByKey.tailMap(from, true).values();
+        } else if (from.compareTo(to) > 0) {
+            return Collections.emptyList();
+        } else {
+            return positionsByKey.subMap(from, true, to, true).values();
+        }
+    }
+
+    /**
+     * Keep the positions found in both of two lists of positions.
+     * @param first is a list of positions in ascending order
+     * @param second is another list of positions in ascending order
+     * @return the positions in both lists, in ascending order
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Positions is a growable array of positions kept in ascending order.
+     */
+    private static class Positions {
+        private int[] items = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private void add(int position) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int index = size;
+            while (index > 0 && items[index - 1] > position) {
+                items[index] = items[index - 1];
+                index--;
+            }
+            items[index] = position;
+            size++;
+        }
+
+        private void remove(int position) {
+            int index = Arrays.binarySearch(items, 0, size, position);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(items, index + 1, items, index, size - index - 1);
+            size--;
+        }
+
+        private int[] getOrdered(boolean isDescending, Comparator<Integer> tieOrder) {
+            int[] ordered = Arrays.copyOf(items, size);
+            if (tieOrder != null) {
+                // The sort is stable, so records the order does not tell apart stay in the order of their positions.
+                Integer[] boxed = Arrays.stream(ordered).boxed().toArray(Integer[]::new);
+                Arrays.sort(boxed, tieOrder);
+                ordered = Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+            }
+            if (isDescending) {
+                for (int i = 0, j = ordered.length - 1; i < j; i++, j--) {
+                    int position = ordered[i];
+                    ordered[i] = ordered[j];
+                    ordered[j] = position;
+                }
+            }
+            return ordered;
+        }
+
+        private void removeAll(int[] removedPositions) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                while (j < removedPositions.length && removedPositions[j] < items[i]) {
+                    j++;
+                }
+                if (j == removedPositions.length || removedPositions[j] != items[i]) {
+                    items[kept++] = items[i];
+                }
+            }
+            size = kept;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * PositionQuery is a class that finds the positions of the records in a list matching several conditions at once.
+ * Conditions backed by an index know roughly how many records they match. The one matching the fewest records is looked
+ * up first, and the others are intersected with it as long as their lists are not much longer than the result so far.
+ * Any remaining conditions are then checked record by record on the few positions left, so the whole list is only
+ * scanned if no condition has an index.
+ */
+public class PositionQuery {
+    private static final int MAX_INTERSECT_RATIO = 8;
+
+    private final ArrayList<IndexedCondition> indexedConditions;
+    private final ArrayList<IntPredicate> checks;
+
+    public PositionQuery() {
+        indexedConditions = new ArrayList<>();
+        checks = new ArrayList<>();
+    }
+
+    /**
+     * Add a condition that can be looked up in an index.
+     * @param estimate is the number of records the index says match the condition
+     * @param lookup gives the positions matching the condition in ascending order
+     * @param check tells if the record at a position matches the condition, for when looking it up is not worth it
+     * @return this query
+     */
+    public PositionQuery addIndexed(int estimate, Supplier<int[]> lookup, IntPredicate check) {
+        indexedConditions.add(new IndexedCondition(estimate, lookup, check));
+        return this;
+    }
+
+    /**
+     * Add a condition that can only be checked record by record.
+     * @param check tells if the record at a position matches the condition
+     * @return this query
+     */
+    public PositionQuery addCheck(IntPredicate check) {
+        checks.add(check);
+        return this;
+    }
+
+    /**
+     * Find the positions matching every condition.
+     * @param size is the number of records in the list
+     * @return the matching positions in ascending order
+     */
+    public int[] run(int size) {
+        ArrayList<IntPredicate> remainingChecks = new ArrayList<>(checks);
+        int[] positions;
+        if (indexedConditions.isEmpty()) {
+            positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = i;
+            }
+        } else {
+            indexedConditions.sort(Comparator.comparingInt(condition -> condition.estimate));
+            positions = indexedConditions.get(0).lookup.get();
+            for (int i = 1; i < indexedConditions.size(); i++) {
+                IndexedCondition condition = indexedConditions.get(i);
+                if (condition.estimate <= (long) positions.length * MAX_INTERSECT_RATIO) {
+                    positions = PositionIndex.intersect(positions, condition.lookup.get());
+                } else {
+                    remainingChecks.add(condition.check);
+                }
+            }
+        }
+        if (remainingChecks.isEmpty()) {
+            return positions;
+        }
+        int matches = 0;
+        for (int position : positions) {
+            if (isMatch(position, remainingChecks)) {
+                positions[matches++] = position;
+            }
+        }
+        return Arrays.copyOf(positions, matches);
+    }
+
+    private static boolean isMatch(int position, ArrayList<IntPredicate> checks) {
+        for (IntPredicate check : checks) {
+            if (!check.test(position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class IndexedCondition {
+        private final int estimate;
+        private final Supplier<int[]> lookup;
+        private final IntPredicate check;
+
+        private IndexedCondition(int estimate, Supplier<int[]> lookup, IntPredicate check) {
+            this.estimate = estimate;
+            this.lookup = lookup;
+            this.check = check;
+        }
+    }
+}
@@ -1,12 +1,20 @@
 /**
  * Prescription is a class that represents a Prescription object and specify what are the parameters a prescription has.
+ * It cannot be changed once created, so that a version of the prescription list can be read while a newer one is being
+ * made; an edit makes a changed copy instead.
+ * The medicine, dosage and time interval repeat across many prescriptions, so each is kept as its number in a
+ * TermDictionary shared by every prescription, and two prescriptions are compared by the keys of their terms. The ID
+ * of the patient is likewise kept as its key in PatientKeys, and so is in upper case.
  */
-public class Prescription {
-    private String medicine;
-    private String timeInterval;
-    private final String patientId;
-    private String dosage;
-    private boolean isActive;
+public class Prescription implements Renderable {
+    private static final TermDictionary TERMS = new TermDictionary();
+
+    private final int medicine;
+    private final int timeInterval;
+    private final int patientKey;
+    private final int dosage;
+    private final boolean isActive;
+    private final boolean isDeleted;
 
     private static final String ACTIVE = "Active";
     private static final String INACTIVE = "Inactive";
@@ -16,47 +24,85 @@ public class Prescription {
     }
 
     public Prescription(String patientId, String medicine, String dosage, String timeInterval, boolean isActive) {
-        this.patientId = patientId;
+        this(PatientKeys.getKey(patientId), TERMS.getCode(medicine), TERMS.getCode(dosage),
+                TERMS.getCode(timeInterval), isActive);
+    }
+
+    private Prescription(int patientKey, int medicine, int dosage, int timeInterval, boolean isActive) {
+        this(patientKey, medicine, dosage, timeInterval, isActive, false);
+    }
+
+    private Prescription(int patientKey, int medicine, int dosage, int timeInterval, boolean isActive,
+                         boolean isDeleted) {
+        this.patientKey = patientKey;
         this.medicine = medicine;
         this.dosage = dosage;
         this.timeInterval = timeInterval;
         this.isActive = isActive;
+        this.isDeleted = isDeleted;
+    }
+
+    /**
+     * Make the tombstone kept in the prescription list in place of a deleted prescription, so that no other
+     * prescription takes its number. It keeps the patient key, so that it stays in the same shard, see DataFile.
+     * @param patientId is the ID of the patient the prescription belonged to
+     * @return the tombstone, which is inactive and has empty terms
+     */
+    public static Prescription deleted(String patientId) {
+        int noTerm = TERMS.getCode("");
+        return new Prescription(PatientKeys.getKey(patientId), noTerm, noTerm, noTerm, false, true);
+    }
+
+    /**
+     * Find the key shared by every medicine name equal to a given one, ignoring case.
+     * @param medicine is the name of the medicine
+     * @return the key, or -1 if no prescription has ever had the medicine
+     */
+    public static int findMedicineKey(String medicine) {
+        return TERMS.findKey(medicine);
     }
 
     public String getPatientId() {
-        return patientId;
+        return PatientKeys.getId(patientKey);
+    }
+
+    public int getPatientKey() {
+        return patientKey;
     }
 
     public String getTimeInterval() {
-        return timeInterval;
+        return TERMS.get(timeInterval);
     }
 
-    public void setTimeInterval(String timeInterval) {
-        this.timeInterval = timeInterval;
+    public Prescription withTimeInterval(String timeInterval) {
+        return new Prescription(patientKey, medicine, dosage, TERMS.getCode(timeInterval), isActive);
     }
 
     public String getDosage() {
-        return dosage;
+        return TERMS.get(dosage);
     }
 
-    public void setDosage(String dosage) {
-        this.dosage = dosage;
+    public Prescription withDosage(String dosage) {
+        return new Prescription(patientKey, medicine, TERMS.getCode(dosage), timeInterval, isActive);
     }
 
     public String getMedicine() {
-        return medicine;
+        return TERMS.get(medicine);
     }
 
-    public void setMedicine(String medicine) {
-        this.medicine = medicine;
+    /**
+     * Retrieve the key of the medicine, which is the same for every prescription of the medicine, ignoring case.
+     */
+    public int getMedicineKey() {
+        return TERMS.getKey(medicine);
     }
 
-    public void setActive() {
-        isActive = true;
+    public Prescription withMedicine(String medicine) {
+        return new Prescription(patientKey, TERMS.getCode(medicine), dosage, timeInterval, isActive);
     }
 
-    public void setInactive() {
-        isActive = false;
+    public Prescription withActive(boolean isActive) {
+        return new Prescription(patientKey, medicine, dosage, timeInterval, isActive);
     }
 
     private String getStatusString() {
@@ -64,7 +110,7 @@ public class Prescription {
     }
 
     public boolean isMatchedPatient(String patientId) {
-        return this.patientId.equalsIgnoreCase(patientId);
+        return patientKey == PatientKeys.findKey(patientId);
     }
 
     public boolean isMatchedPatientActive(String patientId) {
@@ -75,13 +121,34 @@ public class Prescription {
         return isActive;
     }
 
+    public boolean isDeleted() {
+        return isDeleted;
+    }
+
+    @Override
+    public void appendTo(StringBuilder text) {
+        String lineSeparator = System.lineSeparator();
+        text.append("\tID: ").append(getPatientId()).append(lineSeparator)
+                .append("\tMedicine: ").append(getMedicine()).append(lineSeparator)
+                .append("\tDosage: ").append(getDosage()).append(lineSeparator)
+                .append("\tTime Interval: ").append(getTimeInterval()).append(lineSeparator)
+                .append("\tStatus: ").append(getStatusString());
+    }
+
+    @Override
+    public void appendJsonTo(StringBuilder json) {
+        Json.appendMember(json, "id", getPatientId());
+        Json.appendMember(json, "medicine", getMedicine());
+        Json.appendMember(json, "dosage", getDosage());
+        Json.appendMember(json, "interval", getTimeInterval());
+        Json.appendMember(json, "active", isActive());
+    }
+
     @Override
     public String toString() {
-        return "\tID: " + patientId + System.lineSeparator()
-                + "\tMedicine: " + medicine + System.lineSeparator()
-                + "\tDosage: " + dosage + System.lineSeparator()
-                + "\tTime Interval: " + timeInterval + System.lineSeparator()
-                + "\tStatus: " + getStatusString();
+        StringBuilder message = new StringBuilder();
+        appendTo(message);
+        return message.toString();
     }
 
     @Override
@@ -96,9 +163,9 @@ public class Prescription {
 
         Prescription otherPrescription = (Prescription)other;
 
-        return patientId.equalsIgnoreCase(otherPrescription.getPatientId())
-                && medicine.equalsIgnoreCase(otherPrescription.getMedicine())
-                && dosage.equalsIgnoreCase(otherPrescription.getDosage())
-                && timeInterval.equalsIgnoreCase(otherPrescription.getTimeInterval());
+        return patientKey == otherPrescription.patientKey
+                && TERMS.getKey(medicine) == TERMS.getKey(otherPrescription.medicine)
+                && TERMS.getKey(dosage) == TERMS.getKey(otherPrescription.dosage)
+                && TERMS.getKey(timeInterval) == TERMS.getKey(otherPrescription.timeInterval);
     }
 }
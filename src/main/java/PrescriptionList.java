@@ -1,19 +1,91 @@
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * PrescriptionList is a class that handles the array operations for Prescription objects.
+ * The prescriptions are held in a PersistentList, and each change publishes a new version of it while holding the lock
+ * of the list. Viewing prescriptions reads a published version without the lock, so it never holds up a change.
+ * When loaded lazily, positions whose prescriptions have not been read from the data file yet hold null, see
+ * LazyRecords. Each method first reads the prescriptions it needs: those of one patient or one position where it can,
+ * and every prescription otherwise.
+ * A deleted prescription leaves a tombstone in its position, so that the numbers of the other prescriptions stay the
+ * same. It is left out of the indexes and listings.
  */
 public class PrescriptionList {
-    private final ArrayList<Prescription> prescriptionsList;
+    private volatile PersistentList<Prescription> prescriptionsList;
+    private final ChangeTracker changeTracker;
+    private final PositionIndex<Integer> patientIndex;
+    private final PositionIndex<Integer> medicineIndex;
+    private int activeCount;
+    private int deletedCount;
+    private LazyRecords lazyRecords;
 
     public PrescriptionList() {
-        prescriptionsList = new ArrayList<>();
+        prescriptionsList = PersistentList.empty();
+        changeTracker = new ChangeTracker();
+        patientIndex = new PositionIndex<>();
+        medicineIndex = new PositionIndex<>();
     }
 
-    public ArrayList<Prescription> getPrescriptions() {
+    /**
+     * Retrieve the latest version of the list, which stays the same however the list is changed afterwards.
+     * @return the prescriptions at the time of the call
+     */
+    public PersistentList<Prescription> getPrescriptions() {
         return prescriptionsList;
     }
 
+    public ChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * Keep positions for prescriptions that are still to be read from the data file.
+     * @param count is the number of positions to add at the end of the list
+     */
+    public synchronized void reserve(int count) {
+        for (int i = 0; i < count; i++) {
+            prescriptionsList = prescriptionsList.add(null);
+        }
+    }
+
+    /**
+     * Leave the prescriptions in reserved positions to be read the first time they are needed.
+     * @param lazyRecords are the prescriptions still to be read, or null if every prescription has been loaded
+     */
+    public synchronized void setLazyRecords(LazyRecords lazyRecords) {
+        this.lazyRecords = lazyRecords == null || lazyRecords.isDone() ? null : lazyRecords;
+    }
+
+    /**
+     * Read every prescription that is still to be read from the data file.
+     */
+    public synchronized void loadAll() {
+        readLazily(LazyRecords::loadAll);
+    }
+
+    /**
+     * Read prescriptions from the data file. The numbers of active and deleted prescriptions are rebuilt once all of
+     * them are in.
+     */
+    private void readLazily(Consumer<LazyRecords> reader) {
+        if (lazyRecords != null) {
+            reader.accept(lazyRecords);
+            if (lazyRecords.isDone()) {
+                lazyRecords = null;
+                rebuildCounts();
+            }
+        }
+    }
+
+    private void readPosition(int index) {
+        if (index >= 0 && index < prescriptionsList.size()) {
+            readLazily(records -> records.loadPosition(index));
+        }
+    }
+
     /**
      * Add a new prescription to the list.
      * It will only be added successfully if the prescription does not previously exist in the list.
@@ -23,31 +95,274 @@ public class PrescriptionList {
      * @param dosage is a String of the dosage
      * @param timeInterval is a String of the time interval
      */
-    public void add(UI ui, String patientId, String medicine, String dosage, String timeInterval) {
+    public synchronized void add(UI ui, String patientId, String medicine, String dosage, String timeInterval) {
         assert patientId != null : "ID should not be null";
         assert medicine != null : "medicine should not be null";
         assert dosage != null : "dosage should not be null";
         assert timeInterval != null : "time interval should not be null";
         Prescription prescription = new Prescription(patientId, medicine, dosage, timeInterval);
 
-        if (!prescriptionsList.contains(prescription)) {
-            prescriptionsList.add(prescription);
-            ui.printMessageAndObject(prescription.toString(),UI.ADD_PRESCRIPTION,
-                    prescriptionsList.indexOf(prescription), UI.PRESCRIPTION);
-        } else {
-            ui.printMessageAndObject(prescription.toString(),UI.DUPLICATE_PRESCRIPTION_MESSAGE,
-                    prescriptionsList.indexOf(prescription), UI.PRESCRIPTION);
+        try {
+            int prescriptionNumber = add(prescription);
+            ui.printMessageAndObject(prescription,UI.ADD_PRESCRIPTION,
+                    prescriptionNumber - 1, UI.PRESCRIPTION);
+        } catch (OneDocException e) {
+            ui.printMessageAndObject(prescription,UI.DUPLICATE_PRESCRIPTION_MESSAGE,
+                    findDuplicate(prescription), UI.PRESCRIPTION);
+        }
+    }
+
+    /**
+     * Add a new prescription without printing it, unless the patient already has the same prescription.
+     * @param prescription is the prescription to add
+     * @return the number of the prescription
+     * @throws OneDocException of type DUPLICATE if the prescription already exists
+     */
+    public synchronized int add(Prescription prescription) throws OneDocException {
+        checkNotDuplicate(prescription);
+        appendNew(prescription);
+        return prescriptionsList.size();
+    }
+
+    /**
+     * Add a batch of new prescriptions without printing them. Either every prescription is added or, if any of them
+     * already exists in the list or earlier in the batch, none is.
+     * @param prescriptions are the prescriptions to add, in order
+     * @return the numbers of the prescriptions, in the same order
+     * @throws OneDocException of type DUPLICATE for the first prescription that already exists
+     */
+    public synchronized int[] addAll(List<Prescription> prescriptions) throws OneDocException {
+        HashMap<Integer, List<Prescription>> batchByPatient = new HashMap<>();
+        for (Prescription prescription : prescriptions) {
+            checkNotDuplicate(prescription);
+            List<Prescription> patientBatch = batchByPatient.computeIfAbsent(prescription.getPatientKey(),
+                    key -> new ArrayList<>());
+            if (patientBatch.contains(prescription)) {
+                throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_PRESCRIPTION_MESSAGE);
+            }
+            patientBatch.add(prescription);
         }
+        int[] prescriptionNumbers = new int[prescriptions.size()];
+        for (int i = 0; i < prescriptionNumbers.length; i++) {
+            appendNew(prescriptions.get(i));
+            prescriptionNumbers[i] = prescriptionsList.size();
+        }
+        return prescriptionNumbers;
+    }
+
+    private void checkNotDuplicate(Prescription prescription) throws OneDocException {
+        readLazily(records -> records.loadPatient(prescription.getPatientId()));
+        if (findDuplicate(prescription) >= 0) {
+            throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_PRESCRIPTION_MESSAGE);
+        }
+    }
+
+    private void appendNew(Prescription prescription) {
+        append(prescription);
+        if (prescription.isActive()) {
+            activeCount++;
+        }
+        changeTracker.markChanged(prescriptionsList.size() - 1);
     }
 
-    public void loadPrescription(String patientID,
+    /**
+     * Load a prescription from the data file. The number of active prescriptions is not updated, as it is rebuilt once
+     * loading is done.
+     */
+    public synchronized void loadPrescription(String patientID,
                                  String medicine, String dosage, String timeInterval, boolean active) {
         Prescription prescription = new Prescription(patientID, medicine, dosage, timeInterval, active);
-        prescriptionsList.add(prescription);
+        append(prescription);
+    }
+
+    /**
+     * Load a prescription into a given position, replacing the prescription there or appending it at the end of the
+     * list. The number of active prescriptions is not updated, as it is rebuilt once loading is done.
+     * @param index is the position of the prescription, ranging from 0 to the size of list
+     */
+    public synchronized void loadPrescription(int index, String patientID,
+                                              String medicine, String dosage, String timeInterval, boolean active) {
+        assert index >= 0 && index <= prescriptionsList.size() : "index of loaded prescription should be within list!";
+        Prescription prescription = new Prescription(patientID, medicine, dosage, timeInterval, active);
+        load(index, prescription);
+    }
+
+    /**
+     * Load the tombstone of a deleted prescription into a given position, replacing the prescription there or
+     * appending it at the end of the list.
+     * @param index is the position of the prescription, ranging from 0 to the size of list
+     * @param patientId is the ID of the patient the prescription belonged to
+     */
+    public synchronized void loadDeletedPrescription(int index, String patientId) {
+        assert index >= 0 && index <= prescriptionsList.size() : "index of loaded prescription should be within list!";
+        load(index, Prescription.deleted(patientId));
+    }
+
+    private void load(int index, Prescription prescription) {
+        if (index == prescriptionsList.size()) {
+            append(prescription);
+        } else {
+            Prescription replacedPrescription = prescriptionsList.get(index);
+            prescriptionsList = prescriptionsList.set(index, prescription);
+            removeFromIndexes(replacedPrescription, index);
+            addToIndexes(prescription, index);
+            if (replacedPrescription != null && replacedPrescription.isDeleted()) {
+                deletedCount--;
+            }
+        }
+        if (prescription.isDeleted()) {
+            deletedCount++;
+        }
+    }
+
+    private void append(Prescription prescription) {
+        prescriptionsList = prescriptionsList.add(prescription);
+        addToIndexes(prescription, prescriptionsList.size() - 1);
+    }
+
+    private void removeFromIndexes(Prescription prescription, int index) {
+        if (prescription != null && !prescription.isDeleted()) {
+            patientIndex.remove(prescription.getPatientKey(), index);
+            medicineIndex.remove(prescription.getMedicineKey(), index);
+        }
+    }
+
+    private void addToIndexes(Prescription prescription, int index) {
+        if (prescription.isDeleted()) {
+            return;
+        }
+        patientIndex.add(prescription.getPatientKey(), index);
+        medicineIndex.add(prescription.getMedicineKey(), index);
+    }
+
+    /**
+     * Find a prescription equal to a given one among the prescriptions of its patient, which must have been read.
+     * @return the position of the first such prescription, or -1 if there is none
+     */
+    private int findDuplicate(Prescription prescription) {
+        for (int position : patientIndex.get(prescription.getPatientKey())) {
+            if (prescription.equals(prescriptionsList.get(position))) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static int getPatientKey(String patientId) {
+        return PatientKeys.findKey(patientId);
+    }
+
+    /**
+     * Find the prescriptions of a patient through the patient index, ignoring the case of the ID.
+     * @param patientId is the ID of the patient
+     * @return the positions of the prescriptions in ascending order, starting from 0
+     */
+    public synchronized int[] getPatientPositions(String patientId) {
+        readLazily(records -> records.loadPatient(patientId));
+        return patientIndex.get(getPatientKey(patientId));
+    }
+
+    /**
+     * Find the prescriptions matching every given condition, looking each condition up in its index where that helps.
+     * @param patientId is the ID of the patient, or null for prescriptions of any patient
+     * @param medicine is the name of the medicine, ignoring case, or null for any medicine
+     * @param isActiveOnly is true if inactive prescriptions are left out
+     * @return the positions of the prescriptions in ascending order, starting from 0
+     */
+    public synchronized int[] findPositions(String patientId, String medicine, boolean isActiveOnly) {
+        // Every prescription matching the conditions belongs to the given patient, if there is one.
+        readLazily(patientId != null ? records -> records.loadPatient(patientId) : LazyRecords::loadAll);
+        PositionQuery query = new PositionQuery();
+        if (patientId != null) {
+            int patientKey = getPatientKey(patientId);
+            query.addIndexed(patientIndex.count(patientKey), () -> patientIndex.get(patientKey),
+                    i -> prescriptionsList.get(i).getPatientKey() == patientKey);
+        }
+        if (medicine != null) {
+            int medicineKey = Prescription.findMedicineKey(medicine);
+            query.addIndexed(medicineIndex.count(medicineKey), () -> medicineIndex.get(medicineKey),
+                    i -> prescriptionsList.get(i).getMedicineKey() == medicineKey);
+        }
+        if (isActiveOnly) {
+            query.addCheck(i -> prescriptionsList.get(i).isActive());
+        } else if (deletedCount > 0) {
+            query.addCheck(i -> !prescriptionsList.get(i).isDeleted());
+        }
+        return query.run(prescriptionsList.size());
+    }
+
+    /**
+     * Take the prescriptions matching every given condition, together with the version of the list they were found in.
+     * @param patientId is the ID of the patient, or null for prescriptions of any patient
+     * @param medicine is the name of the medicine, ignoring case, or null for any medicine
+     * @param isActiveOnly is true if inactive prescriptions are left out
+     * @return the prescriptions found, in the order of the list
+     */
+    public synchronized Selection<Prescription> select(String patientId, String medicine, boolean isActiveOnly) {
+        return new Selection<>(prescriptionsList, findPositions(patientId, medicine, isActiveOnly));
+    }
+
+    /**
+     * Show the prescriptions matching every given condition.
+     * @param ui is the user interface instance.
+     * @param patientId is the ID of the patient, or null for prescriptions of any patient
+     * @param medicine is the name of the medicine, ignoring case, or null for any medicine
+     * @param isActiveOnly is true if inactive prescriptions are left out
+     */
+    public void find(UI ui, String patientId, String medicine, boolean isActiveOnly) {
+        Selection<Prescription> prescriptions = select(patientId, medicine, isActiveOnly);
+        if (prescriptions.isEmpty()) {
+            ui.printNoFoundPrescriptionMessage();
+            return;
+        }
+
+        ui.printFoundPrescriptionsMessage(prescriptions.size());
+        printSelection(ui, prescriptions);
+    }
+
+    private static void printSelection(UI ui, Selection<Prescription> prescriptions) {
+        for (int i = 0; i < prescriptions.size(); i++) {
+            ui.appendPrescription(prescriptions.getPosition(i) + 1, prescriptions.get(i));
+        }
+        ui.flushOutput();
+    }
+
+    /**
+     * Add a prescription from a bulk import without printing it. It is written to disk with the next save of the list.
+     */
+    public synchronized void importPrescription(String patientId, String medicine, String dosage,
+                                                String timeInterval) {
+        append(new Prescription(patientId, medicine, dosage, timeInterval));
+        activeCount++;
+        changeTracker.markChanged(prescriptionsList.size() - 1);
+    }
+
+    /**
+     * Count the active prescriptions again, after prescriptions were loaded from the data file.
+     */
+    public synchronized void rebuildCounts() {
+        activeCount = 0;
+        deletedCount = 0;
+        for (Prescription prescription : prescriptionsList) {
+            if (prescription != null && prescription.isActive()) {
+                activeCount++;
+            } else if (prescription != null && prescription.isDeleted()) {
+                deletedCount++;
+            }
+        }
+    }
+
+    public synchronized int getActiveCount() {
+        readLazily(LazyRecords::loadAll);
+        return activeCount;
+    }
+
+    public void printReport(UI ui) {
+        ui.printPrescriptionReport(getTotalPrescriptions(), getActiveCount());
     }
 
     public boolean isEmpty() {
-        return prescriptionsList.isEmpty();
+        return getTotalPrescriptions() == 0;
     }
 
     /**
@@ -60,10 +375,16 @@ public class PrescriptionList {
             return;
         }
 
+        loadAll();
         ui.printViewAllPrescriptionsMessage();
-        for (int i = 0; i < prescriptionsList.size(); i++) {
-            ui.printPrescriptionWithIndex(i + 1, prescriptionsList.get(i).toString());
+        int index = 0;
+        for (Prescription prescription : prescriptionsList) {
+            index++;
+            if (!prescription.isDeleted()) {
+                ui.appendPrescription(index, prescription);
+            }
         }
+        ui.flushOutput();
     }
 
     /**
@@ -72,17 +393,14 @@ public class PrescriptionList {
      * @param patientId is the ID of the patient.
      */
     public void viewPatientPrescription(UI ui, String patientId) {
-        if (isEmpty() || !hasPatientPrescription(patientId)) {
+        Selection<Prescription> prescriptions = select(patientId, null, false);
+        if (prescriptions.isEmpty()) {
             ui.printNoMatchingPrescriptionMessage();
             return;
         }
 
         ui.printViewAllPrescriptionsMessage();
-        for (int i = 0; i < prescriptionsList.size(); i++) {
-            if (prescriptionsList.get(i).isMatchedPatient(patientId)) {
-                ui.printPrescriptionWithIndex(i + 1, prescriptionsList.get(i).toString());
-            }
-        }
+        printSelection(ui, prescriptions);
     }
 
     /**
@@ -91,17 +409,14 @@ public class PrescriptionList {
      * @param patientId is the ID of the patient.
      */
     public void viewActivePatientPrescription(UI ui, String patientId) {
-        if (isEmpty() || !hasActivePatientPrescription(patientId)) {
+        Selection<Prescription> prescriptions = select(patientId, null, true);
+        if (prescriptions.isEmpty()) {
             ui.printNoMatchingActivePrescriptionMessage();
             return;
         }
 
         ui.printViewAllActivePrescriptionsMessage();
-        for (int i = 0; i < prescriptionsList.size(); i++) {
-            if (prescriptionsList.get(i).isMatchedPatientActive(patientId)) {
-                ui.printPrescriptionWithIndex(i + 1, prescriptionsList.get(i).toString());
-            }
-        }
+        printSelection(ui, prescriptions);
     }
 
     /**
@@ -113,67 +428,72 @@ public class PrescriptionList {
      * @param dosage is a String of the dosage
      * @param timeInterval is a String of the time interval
      */
-    public void edit(UI ui, int prescriptionNumber, String medicine, String dosage, String timeInterval) {
+    public synchronized void edit(UI ui, int prescriptionNumber, String medicine, String dosage, String timeInterval) {
+        try {
+            Prescription prescriptionEdited = edit(prescriptionNumber, medicine, dosage, timeInterval);
+            ui.printMessageAndObject(prescriptionEdited,UI.EDIT_PRESCRIPTION,prescriptionNumber - 1, UI.PRESCRIPTION);
+        } catch (OneDocException e) {
+            if (e.getType() != OneDocException.Type.DUPLICATE) {
+                ui.printIndexOutOfRangeErrorMessage();
+                return;
+            }
+            Prescription newPrescription = getEdited(prescriptionsList.get(prescriptionNumber - 1), medicine, dosage,
+                    timeInterval);
+            ui.printMessageAndObject(newPrescription,UI.DUPLICATE_PRESCRIPTION_MESSAGE,
+                    findDuplicate(newPrescription),UI.PRESCRIPTION);
+        }
+    }
+
+    /**
+     * Edit an existing prescription's detail without printing it.
+     * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
+     * @param medicine is a String of medicine name, or empty to keep it
+     * @param dosage is a String of the dosage, or empty to keep it
+     * @param timeInterval is a String of the time interval, or empty to keep it
+     * @return the prescription as edited
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription, or DUPLICATE if the edited
+     *     prescription already exists
+     */
+    public synchronized Prescription edit(int prescriptionNumber, String medicine, String dosage, String timeInterval)
+            throws OneDocException {
         assert medicine != null : "medicine should not be null";
         assert dosage != null : "dosage should not be null";
         assert timeInterval != null : "time interval should not be null";
 
-        int index = prescriptionNumber - 1;
-
-        if (isInvalidIndex(index)) {
-            ui.printIndexOutOfRangeErrorMessage();
-            return;
-        }
-
+        int index = toExistingPosition(prescriptionNumber);
         Prescription prescriptionEdited = prescriptionsList.get(index);
-
-        String newMedicine = medicine.isEmpty() ? prescriptionEdited.getMedicine() : medicine;
-        String newDosage = dosage.isEmpty() ? prescriptionEdited.getDosage() : dosage;
-        String newTimeInterval = timeInterval.isEmpty() ? prescriptionEdited.getTimeInterval() : timeInterval;
-
-        Prescription newPrescription = new Prescription(prescriptionEdited.getPatientId(), newMedicine, newDosage,
-                newTimeInterval);
+        String patientId = prescriptionEdited.getPatientId();
+        readLazily(records -> records.loadPatient(patientId));
 
         // Check if the updated record has a duplicate in the list already.
-        if (prescriptionsList.contains(newPrescription)) {
-            ui.printMessageAndObject(newPrescription.toString(),UI.DUPLICATE_PRESCRIPTION_MESSAGE,
-                    prescriptionsList.indexOf(newPrescription),UI.PRESCRIPTION);
-            return;
+        if (findDuplicate(getEdited(prescriptionEdited, medicine, dosage, timeInterval)) >= 0) {
+            throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_PRESCRIPTION_MESSAGE);
         }
 
         if (!medicine.isEmpty()) {
-            prescriptionEdited.setMedicine(medicine);
+            medicineIndex.remove(prescriptionEdited.getMedicineKey(), index);
+            prescriptionEdited = prescriptionEdited.withMedicine(medicine);
+            medicineIndex.add(prescriptionEdited.getMedicineKey(), index);
         }
 
         if (!dosage.isEmpty()) {
-            prescriptionEdited.setDosage(dosage);
+            prescriptionEdited = prescriptionEdited.withDosage(dosage);
         }
 
         if (!timeInterval.isEmpty()) {
-            prescriptionEdited.setTimeInterval(timeInterval);
-        }
-
-        ui.printMessageAndObject(prescriptionEdited.toString(),UI.EDIT_PRESCRIPTION,index, UI.PRESCRIPTION);
-    }
-
-    private boolean hasPatientPrescription(String patientId) {
-        for (Prescription prescription : prescriptionsList) {
-            if (prescription.isMatchedPatient(patientId)) {
-                return true;
-            }
+            prescriptionEdited = prescriptionEdited.withTimeInterval(timeInterval);
         }
-
-        return false;
+        prescriptionsList = prescriptionsList.set(index, prescriptionEdited);
+        changeTracker.markChanged(index);
+        return prescriptionEdited;
     }
 
-    private boolean hasActivePatientPrescription(String patientId) {
-        for (Prescription prescription : prescriptionsList) {
-            if (prescription.isMatchedPatientActive(patientId)) {
-                return true;
-            }
-        }
-
-        return false;
+    private static Prescription getEdited(Prescription prescription, String medicine, String dosage,
+            String timeInterval) {
+        String newMedicine = medicine.isEmpty() ? prescription.getMedicine() : medicine;
+        String newDosage = dosage.isEmpty() ? prescription.getDosage() : dosage;
+        String newTimeInterval = timeInterval.isEmpty() ? prescription.getTimeInterval() : timeInterval;
+        return new Prescription(prescription.getPatientId(), newMedicine, newDosage, newTimeInterval);
     }
 
     /**
@@ -182,16 +502,14 @@ public class PrescriptionList {
      * @param ui is the user interface of OneDoc
      * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
      */
-    public void activatePrescription(UI ui, String prescriptionNumber) {
+    public synchronized void activatePrescription(UI ui, String prescriptionNumber) {
         Integer index = getIndex(ui, prescriptionNumber);
         if (index == null) {
             return;
         }
 
-        Prescription prescriptionEdited = prescriptionsList.get(index);
-        prescriptionEdited.setActive();
-
-        ui.printMessageAndObject(prescriptionEdited.toString(),UI.ACTIVATE_PRESCRIPTION,index,UI.PRESCRIPTION);
+        Prescription prescriptionEdited = setActiveAt(index, true);
+        ui.printMessageAndObject(prescriptionEdited,UI.ACTIVATE_PRESCRIPTION,index,UI.PRESCRIPTION);
     }
 
     /**
@@ -200,40 +518,148 @@ public class PrescriptionList {
      * @param ui is the user interface of OneDoc
      * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
      */
-    public void deactivatePrescription(UI ui, String prescriptionNumber) {
+    public synchronized void deactivatePrescription(UI ui, String prescriptionNumber) {
         Integer index = getIndex(ui, prescriptionNumber);
         if (index == null) {
             return;
         }
 
+        Prescription prescriptionEdited = setActiveAt(index, false);
+        ui.printMessageAndObject(prescriptionEdited,UI.DEACTIVATE_PRESCRIPTION, index, UI.PRESCRIPTION);
+    }
+
+    /**
+     * Set the status of a prescription without printing it.
+     * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
+     * @param isActive is true to activate the prescription and false to deactivate it
+     * @return the prescription as changed
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription
+     */
+    public synchronized Prescription setActive(int prescriptionNumber, boolean isActive) throws OneDocException {
+        return setActiveAt(toExistingPosition(prescriptionNumber), isActive);
+    }
+
+    private Prescription setActiveAt(int index, boolean isActive) {
         Prescription prescriptionEdited = prescriptionsList.get(index);
-        prescriptionEdited.setInactive();
-        ui.printMessageAndObject(prescriptionEdited.toString(),UI.DEACTIVATE_PRESCRIPTION,
-                prescriptionsList.indexOf(prescriptionEdited), UI.PRESCRIPTION);
+        if (prescriptionEdited.isActive() != isActive) {
+            activeCount += isActive ? 1 : -1;
+        }
+        prescriptionEdited = prescriptionEdited.withActive(isActive);
+        prescriptionsList = prescriptionsList.set(index, prescriptionEdited);
+        changeTracker.markChanged(index);
+        return prescriptionEdited;
+    }
+
+    /**
+     * Delete a prescription, leaving a tombstone in its position. The tombstone is written with the next save of the
+     * list.
+     * @param ui is the user interface of OneDoc
+     * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
+     */
+    public synchronized void delete(UI ui, String prescriptionNumber) {
+        Integer index = getIndex(ui, prescriptionNumber);
+        if (index == null) {
+            return;
+        }
+
+        Prescription prescription = prescriptionsList.get(index);
+        setDeleted(index);
+        ui.printMessageAndObject(prescription, UI.PRESCRIPTION_DELETED, index, UI.PRESCRIPTION);
+    }
+
+    /**
+     * Delete a prescription without printing it, leaving a tombstone in its position.
+     * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
+     * @return the prescription deleted
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription
+     */
+    public synchronized Prescription delete(int prescriptionNumber) throws OneDocException {
+        int index = toExistingPosition(prescriptionNumber);
+        Prescription prescription = prescriptionsList.get(index);
+        setDeleted(index);
+        return prescription;
+    }
+
+    /**
+     * Retrieve a prescription without printing it.
+     * @param prescriptionNumber is the prescription index shown to user in viewings, ranging from 1 to the size of list
+     * @return the prescription
+     * @throws OneDocException of type NOT_FOUND if there is no such prescription
+     */
+    public synchronized Prescription get(int prescriptionNumber) throws OneDocException {
+        return prescriptionsList.get(toExistingPosition(prescriptionNumber));
+    }
+
+    /**
+     * Delete every prescription of a patient, going only through the prescriptions of the patient.
+     * @param patientId is the ID of the patient
+     * @return the number of prescriptions deleted
+     */
+    public synchronized int deletePatientPrescriptions(String patientId) {
+        int[] positions = getPatientPositions(patientId);
+        for (int position : positions) {
+            setDeleted(position);
+        }
+        return positions.length;
+    }
+
+    private void setDeleted(int index) {
+        Prescription prescription = prescriptionsList.get(index);
+        if (prescription.isActive()) {
+            activeCount--;
+        }
+        removeFromIndexes(prescription, index);
+        prescriptionsList = prescriptionsList.set(index, Prescription.deleted(prescription.getPatientId()));
+        deletedCount++;
+        changeTracker.markChanged(index);
     }
 
     private Integer getIndex(UI ui, String prescriptionNumber) {
         int index;
 
         try {
-            index = Integer.parseInt(prescriptionNumber) - 1;
+            index = toPosition(Integer.parseInt(prescriptionNumber));
         } catch (NumberFormatException e) {
             // Parser class have blocked all inputs that are not integer.
             return null;
         }
 
-        if (isInvalidIndex(index)) {
+        if (index < 0) {
             ui.printIndexOutOfRangeErrorMessage();
             return null;
         }
         return index;
     }
 
-    private boolean isInvalidIndex(int index) {
-        return (index < 0 || index >= prescriptionsList.size());
+    private int toExistingPosition(int prescriptionNumber) throws OneDocException {
+        int index = toPosition(prescriptionNumber);
+        if (index < 0) {
+            throw new OneDocException(OneDocException.Type.NOT_FOUND, UI.INDEX_OUT_OF_RANGE_MESSAGE);
+        }
+        return index;
     }
 
-    public int getTotalPrescriptions() {
-        return prescriptionsList.size();
+    /**
+     * Find the position of a prescription from its number, which is the ID the prescription is known by.
+     * Prescriptions are numbered from 1 in the order they are added and never move, so a number is never given to
+     * another prescription.
+     * @param prescriptionNumber is the number of the prescription
+     * @return the position of the prescription, which has been read, or -1 if it does not exist or was deleted
+     */
+    private int toPosition(int prescriptionNumber) {
+        int index = prescriptionNumber - 1;
+        if (index < 0 || index >= prescriptionsList.size()) {
+            return -1;
+        }
+        readPosition(index);
+        return prescriptionsList.get(index).isDeleted() ? -1 : index;
+    }
+
+    /**
+     * Retrieve the number of prescriptions, leaving out deleted ones, including those still to be read.
+     */
+    public synchronized int getTotalPrescriptions() {
+        int pendingDeletedCount = lazyRecords == null ? 0 : lazyRecords.getPendingDeletedCount();
+        return prescriptionsList.size() - deletedCount - pendingDeletedCount;
     }
 }
@@ -0,0 +1,18 @@
+/**
+ * RecordList is a version of a list of records that can be read without locks, as it never changes once made.
+ * @param <T> is the type of the records
+ */
+public interface RecordList<T> extends Iterable<T> {
+    int size();
+
+    /**
+     * Retrieve the record at a position.
+     * @param index is the position of the record, starting from 0
+     * @return the record
+     */
+    T get(int index);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Renderable is a record that writes itself into the output, as text in a listing or as the members of a JSON object
+ * in the JSON Lines output mode, without making a string of itself first.
+ */
+public interface Renderable {
+    /**
+     * Write the details of the record, as shown to the user, at the end of some text.
+     * @param text is the text to add the details to
+     */
+    void appendTo(StringBuilder text);
+
+    /**
+     * Write the fields of the record as members of a JSON object that already has a member before them, under the
+     * same names as in a JSON Lines export.
+     * @param json is the text of the object to add the members to
+     */
+    void appendJsonTo(StringBuilder json);
+}
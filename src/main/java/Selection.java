@@ -0,0 +1,46 @@
+/**
+ * Selection is a class that holds the positions of the records found by a search, together with the version of the
+ * list they were found in. It is taken while the list is locked, and can then be shown or written without the lock, as
+ * later changes to the list make a new version rather than changing this one.
+ * @param <T> is the type of the records
+ */
+public class Selection<T> {
+    private final RecordList<T> records;
+    private final int[] positions;
+
+    /**
+     * Create a selection.
+     * @param records is the version of the list that was searched
+     * @param positions are the positions of the records found, in the order they are shown
+     */
+    public Selection(RecordList<T> records, int[] positions) {
+        this.records = records;
+        this.positions = positions;
+    }
+
+    public int size() {
+        return positions.length;
+    }
+
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    /**
+     * Retrieve the position in the list of a record found.
+     * @param index is the index of the record in the selection, starting from 0
+     * @return the position of the record in the list, starting from 0
+     */
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Retrieve a record found.
+     * @param index is the index of the record in the selection, starting from 0
+     * @return the record, as it was when the selection was taken
+     */
+    public T get(int index) {
+        return records.get(positions[index]);
+    }
+}
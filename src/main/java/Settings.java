@@ -0,0 +1,140 @@
+/**
+ * Settings is a class that reads the optional switches of OneDoc from Java system properties,
+ * e.g. running with -Donedoc.writeBehind=true. Each setting falls back to the original behaviour when it is not given.
+ */
+public class Settings {
+    private static final String WRITE_BEHIND_PROPERTY = "onedoc.writeBehind";
+    private static final String WRITE_BEHIND_DELAY_PROPERTY = "onedoc.writeBehindDelay";
+    private static final long DEFAULT_WRITE_BEHIND_DELAY = 200;
+    private static final String SHARDS_PROPERTY = "onedoc.shards";
+    private static final int DEFAULT_SHARD_COUNT = 1;
+    private static final int MAX_SHARD_COUNT = 1024;
+    private static final String FORMAT_PROPERTY = "onedoc.format";
+    private static final String BINARY_FORMAT = "binary";
+    private static final String SLOT_MINUTES_PROPERTY = "onedoc.slotMinutes";
+    private static final int DEFAULT_SLOT_MINUTES = 0;
+    private static final int MAX_SLOT_MINUTES = 24 * 60;
+    private static final String FOLLOW_PROPERTY = "onedoc.follow";
+    private static final String FOLLOW_INTERVAL_PROPERTY = "onedoc.followInterval";
+    private static final long DEFAULT_FOLLOW_INTERVAL = 100;
+    private static final String ARCHIVE_DAYS_PROPERTY = "onedoc.archiveDays";
+    private static final String ARCHIVE_CACHE_PROPERTY = "onedoc.archiveCache";
+    private static final int DEFAULT_ARCHIVE_CACHE = 64;
+    private static final String LAZY_PROPERTY = "onedoc.lazy";
+    private static final String PAGE_SIZE_PROPERTY = "onedoc.pageSize";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String OUTPUT_PROPERTY = "onedoc.output";
+    private static final String JSON_OUTPUT = "json";
+
+    /**
+     * Check if saves should be persisted in the background instead of blocking the prompt.
+     * @return true if write-behind mode is switched on
+     */
+    public static boolean isWriteBehind() {
+        return Boolean.getBoolean(WRITE_BEHIND_PROPERTY);
+    }
+
+    /**
+     * Retrieve how long a dirty data file waits for further changes before it is written in write-behind mode.
+     * @return the debounce delay in milliseconds
+     */
+    public static long getWriteBehindDelay() {
+        return getLong(WRITE_BEHIND_DELAY_PROPERTY, DEFAULT_WRITE_BEHIND_DELAY);
+    }
+
+    /**
+     * Retrieve how many files each list is spread across, by hash of patient ID.
+     * @return the number of shards, where 1 keeps each list in a single data file
+     */
+    public static int getShardCount() {
+        long shardCount = getLong(SHARDS_PROPERTY, DEFAULT_SHARD_COUNT);
+        return (int) Math.min(MAX_SHARD_COUNT, Math.max(DEFAULT_SHARD_COUNT, shardCount));
+    }
+
+    /**
+     * Check if the data files should be stored in the binary format instead of " | "-separated text.
+     * @return true if the format is set to binary
+     */
+    public static boolean isBinaryFormat() {
+        return BINARY_FORMAT.equalsIgnoreCase(System.getProperty(FORMAT_PROPERTY, "").trim());
+    }
+
+    /**
+     * Retrieve how long each visit keeps the clinic busy, so that a visit starting within that time of another one is
+     * refused as a conflict.
+     * @return the length of a slot in minutes, where 0, the default, switches conflict checks off
+     */
+    public static int getSlotMinutes() {
+        return (int) Math.min(MAX_SLOT_MINUTES, getLong(SLOT_MINUTES_PROPERTY, DEFAULT_SLOT_MINUTES));
+    }
+
+    /**
+     * Check if OneDoc should stand by as a follower of another OneDoc running on the same data files, taking over once
+     * it stops.
+     * @return true if follower mode is switched on
+     */
+    public static boolean isFollower() {
+        return Boolean.getBoolean(FOLLOW_PROPERTY);
+    }
+
+    /**
+     * Retrieve how often a follower looks for changes written by the OneDoc it follows.
+     * @return the interval in milliseconds
+     */
+    public static long getFollowInterval() {
+        return Math.max(1, getLong(FOLLOW_INTERVAL_PROPERTY, DEFAULT_FOLLOW_INTERVAL));
+    }
+
+    /**
+     * Retrieve how old a visit has to be before it is moved out of memory into the archive on disk.
+     * @return the age in days, where 0 keeps every visit in memory
+     */
+    public static int getArchiveDays() {
+        return (int) Math.min(Integer.MAX_VALUE, getLong(ARCHIVE_DAYS_PROPERTY, 0));
+    }
+
+    /**
+     * Retrieve how many patients' archived visits are kept in memory after being looked up.
+     * @return the number of patients, at least 1
+     */
+    public static int getArchiveCacheSize() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, getLong(ARCHIVE_CACHE_PROPERTY, DEFAULT_ARCHIVE_CACHE)));
+    }
+
+    /**
+     * Check if visits and prescriptions should be read from their data files the first time they are needed, instead
+     * of all at once when OneDoc starts.
+     * @return true if lazy loading is switched on
+     */
+    public static boolean isLazy() {
+        return Boolean.getBoolean(LAZY_PROPERTY);
+    }
+
+    /**
+     * Retrieve how many records are shown on each page of a viewall command given a page.
+     * @return the number of records, at least 1
+     */
+    public static int getPageSize() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, getLong(PAGE_SIZE_PROPERTY, DEFAULT_PAGE_SIZE)));
+    }
+
+    /**
+     * Check if the result of each command should be printed as one line of JSON for scripts, instead of as text.
+     * @return true if the output is set to json
+     */
+    public static boolean isJsonOutput() {
+        return JSON_OUTPUT.equalsIgnoreCase(System.getProperty(OUTPUT_PROPERTY, "").trim());
+    }
+
+    private static long getLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * SlotIndex is a class that keeps, for each date with visits, a bitmap of the minutes of the day the clinic is busy.
+ * A visit keeps the clinic busy from its time for the length of a slot, so checking if a time is free only looks at the
+ * bits of one slot, and finding the next free time only looks at the bits of one day.
+ */
+public class SlotIndex {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int slotMinutes;
+    private final HashMap<Integer, BitSet> busyMinutesByDate;
+
+    /**
+     * Create an empty slot index.
+     * @param slotMinutes is how many minutes each visit keeps the clinic busy, where 0 never makes it busy
+     */
+    public SlotIndex(int slotMinutes) {
+        assert slotMinutes >= 0 && slotMinutes <= MINUTES_PER_DAY : "a slot should fit within a day";
+        this.slotMinutes = slotMinutes;
+        busyMinutesByDate = new HashMap<>();
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    /**
+     * Mark the slot of a visit as busy.
+     * @param date is the date of the visit, as given by DateTimeValidator.toDateKey
+     * @param minute is the time of the visit in minutes after midnight
+     */
+    public void occupy(int date, int minute) {
+        if (slotMinutes == 0) {
+            return;
+        }
+        busyMinutesByDate.computeIfAbsent(date, d -> new BitSet(MINUTES_PER_DAY))
+                .set(minute, Math.min(minute + slotMinutes, MINUTES_PER_DAY));
+    }
+
+    /**
+     * Forget every busy slot of a date, so that the slots of the visits left on it can be marked again.
+     * @param date is the date, as given by DateTimeValidator.toDateKey
+     */
+    public void clear(int date) {
+        busyMinutesByDate.remove(date);
+    }
+
+    /**
+     * Check if a visit could start at a time without overlapping the slot of another visit.
+     * @param date is the date, as given by DateTimeValidator.toDateKey
+     * @param minute is the time in minutes after midnight
+     * @return true if the whole slot starting at the time is free
+     */
+    public boolean isFree(int date, int minute) {
+        BitSet busyMinutes = busyMinutesByDate.get(date);
+        if (busyMinutes == null || slotMinutes == 0) {
+            return true;
+        }
+        int busyMinute = busyMinutes.nextSetBit(minute);
+        return busyMinute < 0 || busyMinute >= minute + slotMinutes;
+    }
+
+    /**
+     * Find the earliest time on a date, from a given time on, at which a whole slot is free.
+     * @param date is the date, as given by DateTimeValidator.toDateKey
+     * @param fromMinute is the earliest time wanted in minutes after midnight
+     * @return the free time in minutes after midnight, or -1 if no slot is free for the rest of the day
+     */
+    public int findFree(int date, int fromMinute) {
+        BitSet busyMinutes = busyMinutesByDate.get(date);
+        int minute = fromMinute;
+        while (minute + slotMinutes <= MINUTES_PER_DAY) {
+            int busyMinute = busyMinutes == null ? -1 : busyMinutes.nextSetBit(minute);
+            if (busyMinute < 0 || busyMinute >= minute + slotMinutes) {
+                return minute;
+            }
+            minute = busyMinutes.nextClearBit(busyMinute);
+        }
+        return -1;
+    }
+}
@@ -1,35 +1,82 @@
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.nio.file.Paths;
-import java.util.Scanner;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Storage {
-    private static final String PATIENT_FILE_NAME = "/patient.txt";
-    private static final String VISIT_FILE_NAME = "/visit.txt";
-    private static final String PRESCRIPTION_FILE_NAME = "/prescription.txt";
+    private static final String PATIENT_FILE_NAME = "/patient";
+    private static final String VISIT_FILE_NAME = "/visit";
+    private static final String PRESCRIPTION_FILE_NAME = "/prescription";
+    private static final String TEXT_FILE_EXTENSION = ".txt";
+    private static final String BINARY_FILE_EXTENSION = ".bin";
+    private static final String LOCK_FILE_NAME = "/onedoc.lock";
+    private static final String VISIT_ARCHIVE_FOLDER_NAME = "/visit_archive";
+    private static final int PATIENT_FIELD_COUNT = 4;
+    private static final int VISIT_FIELD_COUNT = 4;
+    private static final int PRESCRIPTION_FIELD_COUNT = 5;
+    private static final int VISIT_DATE_FIELD = 2;
+    private static final int NO_KEY_FIELD = -1;
+    private static final String DELETED_STATUS = "D";
+    private static final GroupCommitWriter WRITER = new GroupCommitWriter(Settings.getWriteBehindDelay());
 
-    private File patientFile;
-    private File visitFile;
-    private File prescriptionFile;
+    private static FileLock primaryLock;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(WRITER::flush));
+    }
+
+    private final DataFile patientData;
+    private final DataFile visitData;
+    private final DataFile prescriptionData;
+    private final DataFile otherFormatPatientData;
+    private final DataFile otherFormatVisitData;
+    private final DataFile otherFormatPrescriptionData;
+    private final File lockFile;
+    private final VisitArchive visitArchive;
+    private final boolean isWriteBehind;
+    private final boolean isBinary;
+    private LocalDate lastArchiveDate;
 
     public Storage() {
-        String filePath = retrieveFilePath();
-        patientFile = new File(filePath + PATIENT_FILE_NAME);
-        visitFile = new File(filePath + VISIT_FILE_NAME);
-        prescriptionFile = new File(filePath + PRESCRIPTION_FILE_NAME);
+        this(retrieveDataFolder());
     }
 
-    private static String retrieveFilePath() {
-        Path path = Paths.get("src", "main", "java", "data");
-        boolean directoryExists = Files.exists(path);
-        if (!directoryExists) {
-            new File(path.toString()).mkdirs();
-        }
-        return path.toString();
+    /**
+     * Create the storage of the data files in a given folder, e.g. a temporary folder in tests.
+     * @param dataFolder is the folder of the data files, which is created if it does not exist
+     */
+    public Storage(File dataFolder) {
+        isWriteBehind = Settings.isWriteBehind();
+        isBinary = Settings.isBinaryFormat();
+        dataFolder.mkdirs();
+        String filePath = dataFolder.getPath();
+        lockFile = new File(filePath + LOCK_FILE_NAME);
+        visitArchive = new VisitArchive(new File(filePath + VISIT_ARCHIVE_FOLDER_NAME), Settings.getArchiveCacheSize());
+        int shardCount = Settings.getShardCount();
+        patientData = newDataFile(filePath + PATIENT_FILE_NAME, PATIENT_FIELD_COUNT, shardCount, isBinary);
+        visitData = newDataFile(filePath + VISIT_FILE_NAME, VISIT_FIELD_COUNT, shardCount, isBinary);
+        prescriptionData = newDataFile(filePath + PRESCRIPTION_FILE_NAME, PRESCRIPTION_FIELD_COUNT, shardCount,
+                isBinary);
+        otherFormatPatientData = newDataFile(filePath + PATIENT_FILE_NAME, PATIENT_FIELD_COUNT, shardCount,
+                !isBinary);
+        otherFormatVisitData = newDataFile(filePath + VISIT_FILE_NAME, VISIT_FIELD_COUNT, shardCount, !isBinary);
+        otherFormatPrescriptionData = newDataFile(filePath + PRESCRIPTION_FILE_NAME, PRESCRIPTION_FIELD_COUNT,
+                shardCount, !isBinary);
+    }
+
+    private static DataFile newDataFile(String fileName, int fieldCount, int shardCount, boolean isBinary) {
+        String extension = isBinary ? BINARY_FILE_EXTENSION : TEXT_FILE_EXTENSION;
+        return new DataFile(new File(fileName + extension), fieldCount, shardCount, isBinary);
+    }
+
+    private static File retrieveDataFolder() {
+        return Paths.get("src", "main", "java", "data").toFile();
     }
 
     private void createDataFile(File file) {
@@ -40,226 +87,373 @@ public class Storage {
         }
     }
 
+    /**
+     * Load every list from its data files.
+     * If a list has no files in the chosen format but has files in the other one, it is loaded from those and
+     * converted, so switching between text and binary storage keeps the data.
+     * Records from files that match their checksum are trusted and skip validation, except visits and prescriptions
+     * whose patients were not all trusted. A list is only rewritten afterwards if it was converted or its files need
+     * to be brought back in line, see DataFile.
+     * Loading skips the counts kept for reports, which are rebuilt once per list when its records are all in.
+     * @param patientList is the list the patients are loaded into
+     * @param visitList is the list the visits are loaded into
+     * @param prescriptionList is the list the prescriptions are loaded into
+     */
     public void loadData(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList) {
-        if (!patientFile.exists()) {
-            createDataFile(patientFile);
+        visitList.setArchive(visitArchive);
+        DataFile patientSource = selectSource(patientData, otherFormatPatientData);
+        DataFile.LoadResult patientResult = loadPatients(patientSource, patientList);
+        patientList.rebuildCounts();
+        boolean isPatientListTrusted = patientResult.isTrusted() && !patientResult.isInvalid();
+        DataFile visitSource = selectSource(visitData, otherFormatVisitData);
+        loadVisits(visitSource, visitList, patientList, isPatientListTrusted);
+        DataFile prescriptionSource = selectSource(prescriptionData, otherFormatPrescriptionData);
+        loadPrescriptions(prescriptionSource, prescriptionList, patientList, isPatientListTrusted);
+        prescriptionList.rebuildCounts();
+
+        if (patientSource != patientData) {
+            patientData.requestRewrite();
+        }
+        savePatientData(patientList);
+        if (visitSource != visitData) {
+            visitData.requestRewrite();
         }
-        loadPatients(patientList);
+        saveVisitData(visitList);
+        if (prescriptionSource != prescriptionData) {
+            prescriptionData.requestRewrite();
+        }
+        savePrescriptionData(prescriptionList);
+        finishConversion(patientSource, patientData);
+        finishConversion(visitSource, visitData);
+        finishConversion(prescriptionSource, prescriptionData);
+    }
 
-        if (!visitFile.exists()) {
-            createDataFile(visitFile);
+    /**
+     * Try to become the only OneDoc writing to the data files, by taking a lock on the lock file in the data folder.
+     * The lock is let go by the operating system when the process stops, however it stops, which is how a follower
+     * knows to take over. It is kept for as long as this process runs.
+     * @return true if this process holds the lock, or if locks are not supported
+     */
+    public boolean tryLockPrimary() {
+        synchronized (Storage.class) {
+            if (primaryLock != null) {
+                return true;
+            }
+            try {
+                FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+                primaryLock = channel.tryLock();
+                if (primaryLock == null) {
+                    channel.close();
+                }
+                return primaryLock != null;
+            } catch (IOException | OverlappingFileLockException e) {
+                // Without a working lock, OneDoc runs as it did before there were followers.
+                return true;
+            }
         }
-        loadVisits(visitList, patientList);
+    }
 
-        if (!prescriptionFile.exists()) {
-            createDataFile(prescriptionFile);
+    /**
+     * Bring the lists of a follower up to date with what the primary OneDoc has written to the data files so far,
+     * see DataFile for how the files are followed. The first call loads every list.
+     * @param patientList is the list the patients are loaded into
+     * @param visitList is the list the visits are loaded into
+     * @param prescriptionList is the list the prescriptions are loaded into
+     */
+    public void follow(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList) {
+        visitList.setArchive(visitArchive);
+        if (patientData.follow((index, inputs, isTrusted) -> loadPatient(patientList, index, inputs, isTrusted))) {
+            patientList.rebuildCounts();
+        }
+        visitData.follow((index, inputs, isTrusted) -> loadVisit(visitList, patientList, index, inputs, isTrusted));
+        if (prescriptionData.follow((index, inputs, isTrusted) ->
+                loadPrescription(prescriptionList, patientList, index, inputs, isTrusted))) {
+            prescriptionList.rebuildCounts();
         }
-        loadPrescriptions(prescriptionList, patientList);
+    }
+
+    /**
+     * Take over the data files from a primary OneDoc that has stopped, once its last changes have been followed.
+     * Every list is rewritten from memory, which also drops a record the primary may have left half written.
+     */
+    public void takeOver(PatientList patientList, VisitList visitList, PrescriptionList prescriptionList) {
+        patientData.requestRewrite();
         savePatientData(patientList);
+        visitData.requestRewrite();
         saveVisitData(visitList);
+        prescriptionData.requestRewrite();
         savePrescriptionData(prescriptionList);
     }
 
+    public boolean isFollowable() {
+        return !patientData.isSharded();
+    }
 
-    private void loadPatients(PatientList patientList) {
-        Scanner fileScanner = setScanner(patientFile);
-        if (fileScanner == null) {
-            return;
-        }
-        boolean loaded = false;
-        boolean invalid = false;
-        while (fileScanner.hasNext()) {
-            String input = fileScanner.nextLine().trim();
-            String[] inputs = input.split(" \\| ", 4);
-            if (Parser.isPatientInputValid(inputs)) {
-                patientList.loadPatient(inputs[0], inputs[1], inputs[2], inputs[3]);
-                loaded = true;
-            } else {
-                invalid = true;
-            }
+    private DataFile selectSource(DataFile dataFile, DataFile otherFormatData) {
+        if (!dataFile.exists() && otherFormatData.exists()) {
+            return otherFormatData;
         }
-        if (invalid) {
-            System.out.println(UI.INVALID_PATIENT_DATA_MESSAGE);
-        }
-        if (loaded) {
-            System.out.println(UI.PATIENT_LOADED_MESSAGE);
+        if (!isBinary && !dataFile.isSharded() && !dataFile.getFile().exists()) {
+            createDataFile(dataFile.getFile());
         }
+        return dataFile;
     }
 
-    private void loadVisits(VisitList visitList, PatientList patientList) {
-        Scanner fileScanner = setScanner(visitFile);
-        if (fileScanner == null) {
+    /**
+     * Remove the files a list was converted from, once it has been written in the chosen format.
+     */
+    private void finishConversion(DataFile source, DataFile dataFile) {
+        if (source == dataFile) {
             return;
         }
-        boolean loaded = false;
-        boolean invalid = false;
-        while (fileScanner.hasNext()) {
-            String input = fileScanner.nextLine().trim();
-            String[] inputs = input.split(" \\| ", 4);
-            if (Parser.isVisitInputValid(inputs, patientList)) {
-                visitList.loadVisit(inputs[0], inputs[2], inputs[3], inputs[1]);
-                loaded = true;
-            } else {
-                invalid = true;
-            }
+        WRITER.flush();
+        if (!dataFile.isRewritePending()) {
+            source.delete();
         }
-        if (invalid) {
-            System.out.println(UI.INVALID_VISIT_DATA_MESSAGE);
+    }
+
+    private DataFile.LoadResult loadPatients(DataFile source, PatientList patientList) {
+        DataFile.LoadResult result = source.load(expected -> { },
+            (index, inputs, isTrusted) -> loadPatient(patientList, index, inputs, isTrusted));
+        printLoadResult(result, UI.INVALID_PATIENT_DATA_MESSAGE, UI.PATIENT_LOADED_MESSAGE);
+        return result;
+    }
+
+    private boolean loadPatient(PatientList patientList, int index, String[] inputs, boolean isTrusted) {
+        if (index > patientList.getPatients().size()) {
+            return false;
         }
-        if (loaded) {
-            System.out.println(UI.VISIT_LOADED_MESSAGE);
+        boolean isDeleted = inputs.length == PATIENT_FIELD_COUNT && inputs[1].equals(Patient.DELETED);
+        if (!isDeleted && !isTrusted && !Parser.isPatientInputValid(inputs)) {
+            return false;
         }
+        patientList.loadPatient(index, inputs[0], inputs[1], inputs[2], inputs[3]);
+        return true;
     }
 
-    private void loadPrescriptions(PrescriptionList prescriptionList, PatientList patientList) {
-        Scanner fileScanner = setScanner(prescriptionFile);
-        if (fileScanner == null) {
-            return;
+    private void loadVisits(DataFile source, VisitList visitList, PatientList patientList,
+                            boolean isPatientListTrusted) {
+        DataFile.RecordLoader loader = (index, inputs, isTrusted) ->
+            loadVisit(visitList, patientList, index, inputs, isTrusted && isPatientListTrusted);
+        DataFile.LoadResult result = isLazy(source, isPatientListTrusted)
+                ? source.loadLazily(visitList::reserve, loader, VISIT_DATE_FIELD, Storage::isDeletedVisit)
+                : source.load(expected -> { }, loader);
+        visitList.setLazyRecords(result.getLazyRecords());
+        printLoadResult(result, UI.INVALID_VISIT_DATA_MESSAGE, UI.VISIT_LOADED_MESSAGE);
+    }
+
+    /**
+     * Check if a list can be loaded lazily, which needs its records to be in the chosen format and its patients to be
+     * trusted, as the records read later are not validated against the patients again.
+     */
+    private boolean isLazy(DataFile source, boolean isPatientListTrusted) {
+        return Settings.isLazy() && isPatientListTrusted && (source == visitData || source == prescriptionData);
+    }
+
+    private boolean loadVisit(VisitList visitList, PatientList patientList, int index, String[] inputs,
+                              boolean isTrusted) {
+        if (index > visitList.getVisits().size()) {
+            return false;
         }
-        boolean loaded = false;
-        boolean invalid = false;
-        while (fileScanner.hasNext()) {
-            String input =  fileScanner.nextLine().trim();
-            String[] inputs = input.split(" \\| ", 5);
-            if (Parser.isPrescriptionInputValid(inputs, patientList)) {
-                boolean active = (inputs[4].equals("T"));
-                prescriptionList.loadPrescription(inputs[0], inputs[1], inputs[2], inputs[3], active);
-                loaded = true;
-            } else {
-                invalid = true;
-            }
+        boolean hasAllFields = inputs.length == VISIT_FIELD_COUNT;
+        if (hasAllFields && inputs[2].equals(Visit.ARCHIVED)) {
+            visitList.loadArchivedVisit(index, inputs[0]);
+            return true;
         }
-        if (invalid) {
-            System.out.println(UI.INVALID_PRESCRIPTION_DATA_MESSAGE);
+        if (isDeletedVisit(inputs)) {
+            visitList.loadDeletedVisit(index, inputs[0]);
+            return true;
         }
-        if (loaded) {
-            System.out.println(UI.PRESCRIPTION_LOADED_MESSAGE);
+        if (!isTrusted && !Parser.isVisitInputValid(inputs, patientList)) {
+            return false;
         }
+        visitList.loadVisit(index, inputs[0], inputs[2], inputs[3], inputs[1]);
+        return true;
     }
 
-    private Scanner setScanner(File file) {
-        Scanner fileScanner = null;
-        try {
-            fileScanner = new Scanner(file);
-        } catch (FileNotFoundException e) {
-            UI.printErrorMessage(UI.MISSING_DATA_FILES_ERROR_MESSAGE);
-        }
-        return fileScanner;
+    private static boolean isDeletedVisit(String[] inputs) {
+        return inputs.length == VISIT_FIELD_COUNT && inputs[2].equals(Visit.DELETED);
     }
 
-    public void savePatientData(PatientList patientList) {
-        FileWriter fileWriter = null;
-        try {
-            fileWriter = new FileWriter(patientFile);
-        } catch (IOException e) {
-            UI.printErrorMessage(UI.FILE_WRITER_CREATION_ERROR_MESSAGE);
-            return;
-        }
+    private void loadPrescriptions(DataFile source, PrescriptionList prescriptionList, PatientList patientList,
+                                   boolean isPatientListTrusted) {
+        DataFile.RecordLoader loader = (index, inputs, isTrusted) ->
+            loadPrescription(prescriptionList, patientList, index, inputs, isTrusted && isPatientListTrusted);
+        DataFile.LoadResult result = isLazy(source, isPatientListTrusted)
+                ? source.loadLazily(prescriptionList::reserve, loader, NO_KEY_FIELD,
+                        Storage::isDeletedPrescription)
+                : source.load(expected -> { }, loader);
+        prescriptionList.setLazyRecords(result.getLazyRecords());
+        printLoadResult(result, UI.INVALID_PRESCRIPTION_DATA_MESSAGE, UI.PRESCRIPTION_LOADED_MESSAGE);
+    }
 
-        try {
-            logPatients(patientList, fileWriter);
-        } catch (IOException e) {
-            UI.printErrorMessage(UI.WRITE_ERROR_MESSAGE);
-        } finally {
-            closeFileWriter(fileWriter);
+    private boolean loadPrescription(PrescriptionList prescriptionList, PatientList patientList, int index,
+                                     String[] inputs, boolean isTrusted) {
+        if (index > prescriptionList.getPrescriptions().size()) {
+            return false;
         }
+        if (isDeletedPrescription(inputs)) {
+            prescriptionList.loadDeletedPrescription(index, inputs[0]);
+            return true;
+        }
+        if (!isTrusted && !Parser.isPrescriptionInputValid(inputs, patientList)) {
+            return false;
+        }
+        boolean active = (inputs[4].equals("T"));
+        prescriptionList.loadPrescription(index, inputs[0], inputs[1], inputs[2], inputs[3], active);
+        return true;
     }
 
-    private void logPatients(PatientList patientList, FileWriter fileWriter) throws IOException {
-        for (Patient patient : patientList.getPatients()) {
-            logPatientIntoDataFile(fileWriter, patient);
-        }
+    private static boolean isDeletedPrescription(String[] inputs) {
+        return inputs.length == PRESCRIPTION_FIELD_COUNT && inputs[4].equals(DELETED_STATUS);
     }
 
-    private static void closeFileWriter(FileWriter fileWriter) {
-        try {
-            fileWriter.close();
-        } catch (IOException e) {
-            UI.printErrorMessage(UI.FILE_WRITER_CLOSURE_ERROR_MESSAGE);
+    private static void printLoadResult(DataFile.LoadResult result, String invalidMessage, String loadedMessage) {
+        if (result.isInvalid()) {
+            System.out.println(invalidMessage);
+        }
+        if (result.isLoaded()) {
+            System.out.println(loadedMessage);
         }
     }
 
+    /**
+     * Save the patients that were added or edited since the last save.
+     * Only the changed records are written, see DataFile for how they are stored.
+     * The write is handed to the shared I/O thread and may be deferred in write-behind mode.
+     * @param patientList is the list of patients to be saved
+     */
+    public void savePatientData(PatientList patientList) {
+        persist(patientData, patientList, patientList.getChangeTracker(),
+                getRecords(patientList::getPatients, () -> { }, (patients, index) -> patients.get(index).getId(),
+                        Storage::getPatientFields));
+    }
+
+    /**
+     * Save the prescriptions that were added, edited, activated or deactivated since the last save.
+     * Only the changed records are written, see DataFile for how they are stored.
+     * The write is handed to the shared I/O thread and may be deferred in write-behind mode.
+     * @param prescriptionList is the list of prescriptions to be saved
+     */
     public void savePrescriptionData(PrescriptionList prescriptionList) {
-        FileWriter fileWriter = null;
-        try {
-            fileWriter = new FileWriter(prescriptionFile);
-        } catch (IOException e) {
-            UI.printErrorMessage(UI.FILE_WRITER_CREATION_ERROR_MESSAGE);
+        persist(prescriptionData, prescriptionList, prescriptionList.getChangeTracker(),
+                getRecords(prescriptionList::getPrescriptions, prescriptionList::loadAll,
+                        (prescriptions, index) -> prescriptions.get(index).getPatientId(),
+                        Storage::getPrescriptionFields));
+    }
+
+    /**
+     * Save the visits that were added or edited since the last save.
+     * Only the changed records are written, see DataFile for how they are stored.
+     * The write is handed to the shared I/O thread and may be deferred in write-behind mode.
+     * If archiving is turned on, visits older than the configured number of days are first moved into the archive,
+     * at most once a day.
+     * @param visitList is the list of visits to be saved
+     */
+    public void saveVisitData(VisitList visitList) {
+        archiveOldVisits(visitList);
+        persist(visitData, visitList, visitList.getChangeTracker(),
+                getRecords(visitList::getVisits, visitList::loadAll, VisitColumns::getPatientId,
+                        Storage::getVisitFields));
+    }
+
+    private void archiveOldVisits(VisitList visitList) {
+        int archiveDays = Settings.getArchiveDays();
+        LocalDate today = LocalDate.now();
+        if (archiveDays == 0 || today.equals(lastArchiveDate)) {
             return;
         }
-
+        lastArchiveDate = today;
         try {
-            logPrescriptions(prescriptionList, fileWriter);
+            visitList.archiveBefore(today.minusDays(archiveDays));
         } catch (IOException e) {
-            UI.printErrorMessage(UI.WRITE_ERROR_MESSAGE);
-        } finally {
-            closeFileWriter(fileWriter);
+            UI.printErrorMessage(UI.ARCHIVE_WRITE_ERROR_MESSAGE + e.getMessage());
         }
     }
 
-    private void logPrescriptions(PrescriptionList prescriptionList, FileWriter fileWriter) throws IOException {
-        for (Prescription prescription: prescriptionList.getPrescriptions()) {
-            logPrescriptionIntoDataFile(fileWriter, prescription);
+    /**
+     * Hand the save of a list to the shared I/O thread.
+     * By default this waits until the changes are on disk. In write-behind mode the file is only marked as dirty and
+     * the I/O thread writes it after a short debounce delay, so the prompt does not wait on the size of the data.
+     */
+    private void persist(DataFile dataFile, Object list, ChangeTracker changeTracker, DataFile.Records records) {
+        Runnable write = () -> dataFile.save(list, changeTracker, records);
+        if (isWriteBehind) {
+            WRITER.submit(dataFile.getKey(), write);
+        } else {
+            WRITER.commit(dataFile.getKey(), write);
         }
     }
 
-    public void saveVisitData(VisitList visitList) {
-        FileWriter fileWriter = null;
-        try {
-            fileWriter = new FileWriter(visitFile);
-        } catch (IOException e) {
-            UI.printErrorMessage(UI.FILE_WRITER_CREATION_ERROR_MESSAGE);
-            return;
-        }
+    /**
+     * Wait until all pending writes, including those held back in write-behind mode, are on disk.
+     */
+    public void flush() {
+        WRITER.flush();
+    }
 
-        try {
-            logVisits(visitList, fileWriter);
-        } catch (IOException e) {
-            UI.printErrorMessage(UI.WRITE_ERROR_MESSAGE);
-        } finally {
-            closeFileWriter(fileWriter);
-        }
+    /**
+     * Give access to the records of a list for saving, where a snapshot reads a single version of the list.
+     * @param list gives the latest version of the list
+     * @param allLoader reads the records the list has not read from its data file yet
+     * @param patientIdGetter gives the ID of the patient the record at a position of a version belongs to
+     * @param fieldsGetter gives the fields of a record as they are stored
+     */
+    private static <L extends RecordList<T>, T> DataFile.Records getRecords(Supplier<L> list, Runnable allLoader,
+            PatientIdGetter<L> patientIdGetter, Function<T, String[]> fieldsGetter) {
+        return new DataFile.Records() {
+            @Override
+            public int size() {
+                return list.get().size();
+            }
+
+            @Override
+            public String getPatientId(int index) {
+                return patientIdGetter.get(list.get(), index);
+            }
+
+            @Override
+            public String[] getFields(int index) {
+                return fieldsGetter.apply(list.get().get(index));
+            }
+
+            @Override
+            public DataFile.Records snapshot() {
+                L records = list.get();
+                return getRecords(() -> records, allLoader, patientIdGetter, fieldsGetter);
+            }
+
+            @Override
+            public void loadAll() {
+                allLoader.run();
+            }
+        };
     }
 
-    private void logVisits(VisitList visitList, FileWriter fileWriter) throws IOException {
-        for (Visit visit: visitList.getVisits()) {
-            logVisitIntoDataFile(fileWriter, visit);
-        }
+    /**
+     * PatientIdGetter gives the ID of the patient of the record at a position of a version of a list, which a list
+     * stored by column can give without making the record.
+     * @param <L> is the type of the versions of the list
+     */
+    private interface PatientIdGetter<L> {
+        String get(L list, int index);
     }
 
-    private void logVisitIntoDataFile(FileWriter fileWriter, Visit visit) throws IOException {
-        fileWriter.write(visit.getId());
-        fileWriter.write(" | ");
-        fileWriter.write(visit.getReason());
-        fileWriter.write(" | ");
-        fileWriter.write(visit.getDateOfVisit());
-        fileWriter.write(" | ");
-        fileWriter.write(visit.getTimeOfVisit());
-        fileWriter.write(System.lineSeparator());
-    }
-
-    private void logPrescriptionIntoDataFile(FileWriter fileWriter, Prescription prescription) throws IOException {
-        fileWriter.write(prescription.getPatientId());
-        fileWriter.write(" | ");
-        fileWriter.write(prescription.getMedicine());
-        fileWriter.write(" | ");
-        fileWriter.write(prescription.getDosage());
-        fileWriter.write(" | ");
-        fileWriter.write(prescription.getTimeInterval());
-        fileWriter.write(" | ");
+    private static String[] getVisitFields(Visit visit) {
+        return new String[] {visit.getId(), visit.getReason(), visit.getDateOfVisit(), visit.getTimeOfVisit()};
+    }
+
+    private static String[] getPrescriptionFields(Prescription prescription) {
+        if (prescription.isDeleted()) {
+            return new String[] {prescription.getPatientId(), "", "", "", DELETED_STATUS};
+        }
         String activeStatus = prescription.isActive() ? "T" : "F";
-        fileWriter.write(activeStatus);
-        fileWriter.write(System.lineSeparator());
-    }
-
-    private void logPatientIntoDataFile(FileWriter fileWriter, Patient patient) throws IOException {
-        fileWriter.write(patient.getName());
-        fileWriter.write(" | ");
-        fileWriter.write(patient.getBirthDate());
-        fileWriter.write(" | ");
-        fileWriter.write(patient.getGender());
-        fileWriter.write(" | ");
-        fileWriter.write(patient.getId());
-        fileWriter.write(System.lineSeparator());
+        return new String[] {prescription.getPatientId(), prescription.getMedicine(), prescription.getDosage(),
+            prescription.getTimeInterval(), activeStatus};
+    }
+
+    private static String[] getPatientFields(Patient patient) {
+        return new String[] {patient.getName(), patient.getBirthDate(), patient.getGender(), patient.getId()};
     }
 }
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * StringDictionary is a class that gives each distinct string a small number, so that a column of strings repeating
+ * the same few values can be stored as a column of ints.
+ * Strings are only ever added, under a lock held by the owner of the dictionary, such as the list using it. A number
+ * is only handed out after its string can be read, so readers can look numbers up without the lock.
+ */
+public class StringDictionary {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final HashMap<String, Integer> ids;
+    private volatile String[] values;
+    private int size;
+
+    public StringDictionary() {
+        ids = new HashMap<>();
+        values = new String[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Retrieve the number of a string, giving it the next number if it is new.
+     * @param value is the string
+     * @return the number of the string, starting from 0
+     */
+    public int getId(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        String[] currentValues = values;
+        if (size == currentValues.length) {
+            currentValues = Arrays.copyOf(currentValues, size * 2);
+        }
+        currentValues[size] = value;
+        values = currentValues;
+        ids.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Find the number of a string without adding it.
+     * @param value is the string
+     * @return the number of the string, or -1 if it has not been added
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retrieve the string with a number.
+     * @param id is the number given by getId
+     * @return the string
+     */
+    public String get(int id) {
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * TermDictionary is a class that gives each distinct term, such as the name of a medicine, a number, so that records
+ * repeating the same few terms hold one int each instead of a string.
+ * Terms differing only in case get different numbers, so each is shown as it was entered, but share a key, so that
+ * comparing two terms ignoring case is comparing their keys.
+ * Terms are only ever added, and a number is handed out only after its term can be read, so terms and keys can be
+ * looked up by number without the lock.
+ */
+public class TermDictionary {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final StringDictionary terms;
+    private final StringDictionary foldedTerms;
+    private volatile int[] keys;
+
+    public TermDictionary() {
+        terms = new StringDictionary();
+        foldedTerms = new StringDictionary();
+        keys = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Retrieve the number of a term, giving it the next number if it is new.
+     * @param term is the term
+     * @return the number of the term, starting from 0
+     */
+    public synchronized int getCode(String term) {
+        int count = terms.size();
+        int code = terms.getId(term);
+        if (code < count) {
+            return code;
+        }
+        int[] currentKeys = keys;
+        if (code == currentKeys.length) {
+            currentKeys = Arrays.copyOf(currentKeys, code * 2);
+        }
+        currentKeys[code] = foldedTerms.getId(fold(term));
+        keys = currentKeys;
+        return code;
+    }
+
+    /**
+     * Retrieve the term with a number.
+     * @param code is the number given by getCode
+     * @return the term
+     */
+    public String get(int code) {
+        return terms.get(code);
+    }
+
+    /**
+     * Retrieve the key of a term, which is the same for every term equal to it ignoring case.
+     * @param code is the number given by getCode
+     * @return the key of the term
+     */
+    public int getKey(int code) {
+        return keys[code];
+    }
+
+    /**
+     * Find the key of a term without adding it.
+     * @param term is the term, ignoring case
+     * @return the key of the term, or -1 if no term equal to it ignoring case has been added
+     */
+    public synchronized int findKey(String term) {
+        return foldedTerms.find(fold(term));
+    }
+
+    private static String fold(String term) {
+        return term.toLowerCase(Locale.ROOT);
+    }
+}
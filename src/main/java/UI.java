@@ -1,3 +1,5 @@
+import java.io.File;
+import java.util.Map;
 import java.util.Scanner;
 
 public class UI {
@@ -16,13 +18,33 @@ public class UI {
     public static final String INVALID_PATIENT_DATA_MESSAGE =
             "Invalid lines detected while reading patient.txt! They will be discarded.";
     public static final String FILE_CREATION_ERROR_MESSAGE = "Error! Data files could not be created";
+    public static final String ARCHIVE_READ_ERROR_MESSAGE = "Error! Archived visits could not be read from ";
+    public static final String ARCHIVE_WRITE_ERROR_MESSAGE = "Error! Old visits could not be archived, so they are "
+            + "kept in memory for now. ";
+    public static final String MISSING_ARCHIVED_VISIT_MESSAGE = "\tThis visit was archived but could not be read back.";
+    public static final String PRIMARY_RUNNING_MESSAGE = "Warning! Another OneDoc is already running on these data "
+            + "files. Run OneDoc with -Donedoc.follow=true to stand by for it instead.";
+    public static final String STANDBY_MESSAGE =
+            "Standing by as a follower of the OneDoc running on these data files...";
+    public static final String SHARDED_STANDBY_MESSAGE = "Sharded data files cannot be followed, so they will only be "
+            + "loaded once the other OneDoc stops.";
+    public static final String TAKEOVER_MESSAGE = "The other OneDoc has stopped. Taking over!";
+    public static final String STANDBY_INTERRUPTED_MESSAGE = "Error! Standing by was stopped before the other OneDoc "
+            + "stopped, so its data files were not taken over.";
     public static final String PATIENT_RETRIEVED =
             "The patient with the supplied ID was found! Here are the details of the patient: ";
+    public static final String NO_PATIENT_FOUND_MESSAGE =
+            "Sorry! No patient exists in the system with the supplied ID!";
+    public static final String UNKNOWN_PATIENT_ID_MESSAGE = "That patient ID doesn't exist!";
+    public static final String DUPLICATE_PATIENT_ID_MESSAGE = "That patient ID already exists! Please choose a new one";
     public static final String INCORRECT_FORMAT = "Incorrect format: ";
     public static final String HASHTAG = " #";
     public static final String TAB = "\t";
     public static final String NO_PATIENTS_IN_THE_SYSTEM = "There are no patients in the system right now!";
+    private static final String LINE = TAB + "_".repeat(60);
     private static Scanner scanner;
+    private JsonLinesOutput jsonOutput;
+    private final OutputBuffer output = new OutputBuffer();
 
     protected static final String LOGO =
             System.lineSeparator()
@@ -47,7 +69,7 @@ public class UI {
 
     // General Invalid Error Message
     private static final String INVALID_MAIN_MENU_COMMAND_MESSAGE = "Incorrect input. Please type 1, 2, 3 or bye";
-    private static final String INDEX_OUT_OF_RANGE_MESSAGE = "The index number is out of range. Try again.";
+    public static final String INDEX_OUT_OF_RANGE_MESSAGE = "The index number is out of range. Try again.";
 
     // Patient
     private static final String PATIENT_START_MESSAGE = "This is the Patient Main Menu!";
@@ -56,6 +78,10 @@ public class UI {
             + UI.PATIENT_VIEW_ALL
             + UI.PATIENT_RETRIEVE
             + UI.PATIENT_EDIT
+            + UI.PATIENT_DELETE
+            + UI.REPORT
+            + UI.IMPORT
+            + UI.PATIENT_EXPORT
             + UI.RETURN_TO_MAIN
             + UI.EXIT_PROGRAM;
 
@@ -70,10 +96,16 @@ public class UI {
                     + UI.PRESCRIPTION_VIEW_ACTIVE
                     + UI.PRESCRIPTION_CHANGE_ACTIVE
                     + UI.PRESCRIPTION_CHANGE_INACTIVE
+                    + UI.PRESCRIPTION_DELETE
+                    + UI.PRESCRIPTION_FIND
+                    + UI.REPORT
+                    + UI.IMPORT
+                    + UI.PRESCRIPTION_EXPORT
                     + UI.RETURN_TO_MAIN
                     + UI.EXIT_PROGRAM;
     private static final String NO_MATCHING_PRESCRIPTION_MESSAGE = "There are currently no prescriptions from this "
             + "patient.";
+    private static final String NO_FOUND_PRESCRIPTION_MESSAGE = "There are no prescriptions matching your search.";
     private static final String NO_MATCHING_ACTIVE_PRESCRIPTION_MESSAGE = "There are currently no active prescriptions "
             + "from this patient.";
 
@@ -88,12 +120,22 @@ public class UI {
                     + UI.VISIT_ADD
                     + UI.VISIT_EDIT
                     + UI.VISIT_DELETE_REASON
+                    + UI.VISIT_DELETE
                     + UI.VISIT_VIEW_ALL
                     + UI.VISIT_VIEW_PATIENT
                     + UI.VISIT_VIEW
+                    + UI.VISIT_FIND
+                    + UI.VISIT_NEXT_FREE
+                    + UI.REPORT
+                    + UI.IMPORT
+                    + UI.VISIT_EXPORT
                     + UI.RETURN_TO_MAIN
                     + UI.EXIT_PROGRAM;
 
+    public static final String SLOT_TAKEN_MESSAGE = "That time overlaps another visit on the same day, "
+            + "so the visit was not added.";
+    public static final String SLOT_CHECKS_OFF_MESSAGE = "Slot checks are off, so there are no slots to search. "
+            + "Run OneDoc with -Donedoc.slotMinutes=N to give each visit a slot of N minutes.";
     public static final String DUPLICATE_VISIT_MESSAGE =
             "There is already an existing visit record with the same ID, date, and time."
                     + System.lineSeparator()
@@ -104,27 +146,87 @@ public class UI {
                     + "Else, please try adding another visit with unique details.";
 
     public UI() {
+        this(Settings.isJsonOutput());
+    }
+
+    /**
+     * Create the user interface, printing either text or one line of JSON for each command.
+     * @param isJsonOutput is true to print each command as one line of JSON, until printExitMessage, and to keep the
+     *     text printed from now until the first command as a line of its own if it holds an error
+     */
+    public UI(boolean isJsonOutput) {
         scanner = new Scanner(System.in);
+        jsonOutput = isJsonOutput ? new JsonLinesOutput() : null;
     }
 
+    /**
+     * Read the next command. In the JSON Lines output mode, this ends the line of the command before.
+     * @return the command, without spaces around it
+     */
     public String readLine() {
-        return scanner.nextLine().trim();
+        finishCommand();
+        String input = scanner.nextLine().trim();
+        startCommand();
+        return input;
+    }
+
+    /**
+     * Start showing the result of a command, which is only needed in the JSON Lines output mode.
+     */
+    public void startCommand() {
+        if (jsonOutput != null) {
+            jsonOutput.startCommand();
+        }
+    }
+
+    /**
+     * Print the result of the command being shown, which is only needed in the JSON Lines output mode.
+     */
+    public void finishCommand() {
+        if (jsonOutput != null) {
+            jsonOutput.finishCommand();
+        }
     }
 
     public void printWelcomeMessage() {
-        System.out.println(WELCOME_MESSAGE);
+        if (jsonOutput == null) {
+            System.out.println(WELCOME_MESSAGE);
+        }
     }
 
     public void printMainMenu() {
-        System.out.println(MAIN_MENU);
+        if (jsonOutput == null) {
+            System.out.println(MAIN_MENU);
+        }
     }
 
     public void printInvalidMainMenuErrorMessage() {
-        System.out.println(INVALID_MAIN_MENU_COMMAND_MESSAGE);
+        printError(INVALID_MAIN_MENU_COMMAND_MESSAGE);
     }
 
     public void printIndexOutOfRangeErrorMessage() {
-        System.out.println(INDEX_OUT_OF_RANGE_MESSAGE);
+        printError(INDEX_OUT_OF_RANGE_MESSAGE);
+    }
+
+    /**
+     * Print a problem that was not expected while running a command.
+     * @param message is the message of the exception
+     */
+    public void printUnexpectedIssue(String message) {
+        printError("Unexpected issue: " + message);
+    }
+
+    /**
+     * Print an error on a line of its own, or keep it as the error of the command in the JSON Lines output mode.
+     * @param errorMessage is the error shown to the user
+     */
+    public static void printError(String errorMessage) {
+        JsonLinesOutput runningOutput = JsonLinesOutput.getRunningOutput();
+        if (runningOutput != null) {
+            runningOutput.setError(errorMessage.trim());
+        } else {
+            System.out.println(errorMessage);
+        }
     }
 
     /**
@@ -132,6 +234,9 @@ public class UI {
      * @param mainMenuState is an enum representing which sub menu the program is at.
      */
     public void printSubMenuStart(MainMenuState mainMenuState) {
+        if (jsonOutput != null) {
+            return;
+        }
         switch (mainMenuState) {
         case PATIENT:
             printPatientStartMessage();
@@ -152,6 +257,9 @@ public class UI {
      * @param mainMenuState is an enum representing which sub menu the program is at.
      */
     public void printSubMenu(MainMenuState mainMenuState) {
+        if (jsonOutput != null) {
+            return;
+        }
         switch (mainMenuState) {
         case PATIENT:
             printPatientMenu();
@@ -175,16 +283,64 @@ public class UI {
     }
 
 
-    public void printPatientList(PatientList patientList) {
+    /**
+     * Print the patients taken from the list, each with its number in the list.
+     * @param patients are the patients in the order they are shown
+     * @param page is the page the patients are on, starting from 1, or 0 if they are every patient
+     * @param pageCount is the number of pages
+     */
+    public void printPatientList(Selection<Patient> patients, int page, int pageCount) {
         System.out.println("Here are the list of patients in the system:");
-        for (int i = 0; i < patientList.getTotalNumberofPatients(); i++) {
-            printObject(patientList.getPatient(i).toString(), i, UI.PATIENT);
+        StringBuilder text = output.getText();
+        for (int i = 0; i < patients.size(); i++) {
+            if (jsonOutput != null) {
+                jsonOutput.appendRecord(patients.getPosition(i) + 1, patients.get(i));
+                continue;
+            }
+            appendHeading(text, PATIENT, patients.getPosition(i) + 1);
+            patients.get(i).appendTo(text);
+            text.append(System.lineSeparator());
+            output.flushIfFull();
         }
+        output.flush();
+        printLine();
+        if (page > 0) {
+            printPageNumber(page, pageCount);
+        }
+    }
+
+    public void printPageNumber(int page, int pageCount) {
+        System.out.println("Page " + page + " of " + pageCount);
+        printLine();
+    }
+
+    /**
+     * Print how many archived visits were left out of a list of visits sorted by date.
+     * @param count is the number of archived visits left out
+     */
+    public void printArchivedVisitsNotShown(int count) {
+        System.out.println(count + " archived visit(s) not shown, as they are left out when sorting by date.");
+        printLine();
+    }
+
+    public void printNoSuchPage(int page, int pageCount) {
+        printError("There is no page " + page + ", as there are only " + pageCount + " page(s)!");
+        printLine();
+    }
+
+    /**
+     * Print how many records of a deleted patient were deleted along with it.
+     * @param visitCount is the number of visits deleted
+     * @param prescriptionCount is the number of prescriptions deleted
+     */
+    public void printDeletedPatientRecords(int visitCount, int prescriptionCount) {
+        System.out.println("Their " + visitCount + " visit(s) and " + prescriptionCount
+                + " prescription(s) were deleted as well.");
         printLine();
     }
 
     public void printNoPatientFound() {
-        System.out.println("Sorry! No patient exists in the system with the supplied ID!");
+        printError(NO_PATIENT_FOUND_MESSAGE);
         printLine();
     }
 
@@ -196,9 +352,13 @@ public class UI {
         System.out.println(PATIENT_MAIN_MENU);
     }
 
-    public void printMessageAndObject(String object, String message, int index, String type) {
+    public void printMessageAndObject(Renderable object, String message, int index, String type) {
         System.out.println(message);
-        printObject(object, index, type);
+        if (jsonOutput != null) {
+            jsonOutput.appendRecord(index + 1, object);
+        } else {
+            printObject(object.toString(), index, type);
+        }
         printLine();
     }
 
@@ -208,15 +368,81 @@ public class UI {
         System.out.println(object);
     }
 
+    /**
+     * Print a visit shown on its own.
+     * @param number is the number of the visit, starting from 1
+     * @param visit is the visit, or null for an archived visit that could not be read back
+     */
+    public void printVisit(int number, Visit visit) {
+        if (jsonOutput != null) {
+            jsonOutput.appendRecord(number, visit);
+        } else {
+            System.out.println(visit == null ? MISSING_ARCHIVED_VISIT_MESSAGE : visit);
+        }
+    }
+
+    /**
+     * Add a visit to the listing being shown, under a line and its number. The listing is only printed by flushOutput.
+     * @param number is the number of the visit, starting from 1
+     * @param visit is the visit, or null for an archived visit that could not be read back
+     */
+    public void appendVisit(int number, Visit visit) {
+        if (jsonOutput != null) {
+            jsonOutput.appendRecord(number, visit);
+            return;
+        }
+        StringBuilder text = output.getText();
+        appendHeading(text, VISIT, number);
+        if (visit == null) {
+            text.append(MISSING_ARCHIVED_VISIT_MESSAGE);
+        } else {
+            visit.appendTo(text);
+        }
+        text.append(System.lineSeparator());
+        output.flushIfFull();
+    }
+
+    /**
+     * Add a prescription to the listing being shown, under its number and above a line. The listing is only printed
+     * by flushOutput.
+     * @param number is the number of the prescription, starting from 1
+     * @param prescription is the prescription
+     */
+    public void appendPrescription(int number, Prescription prescription) {
+        if (jsonOutput != null) {
+            jsonOutput.appendRecord(number, prescription);
+            return;
+        }
+        String lineSeparator = System.lineSeparator();
+        StringBuilder text = output.getText();
+        text.append(TAB).append(PRESCRIPTION_INDEX_FORMAT).append(number).append(lineSeparator);
+        prescription.appendTo(text);
+        text.append(lineSeparator).append(LINE).append(lineSeparator);
+        output.flushIfFull();
+    }
+
+    /**
+     * Print the records added to the listing being shown, which must be done before anything else is printed.
+     */
+    public void flushOutput() {
+        output.flush();
+    }
+
+    private static void appendHeading(StringBuilder text, String type, int number) {
+        String lineSeparator = System.lineSeparator();
+        text.append(LINE).append(lineSeparator)
+                .append(TAB).append(type).append(HASHTAG).append(number).append(lineSeparator);
+    }
+
     public static void printErrorMessage(String errorMessage) {
         printLine();
-        System.out.println(TAB + errorMessage);
+        printError(TAB + errorMessage);
         printLine();
     }
 
     public static void printInvalidFormatMessage(String errorMessage) {
         printLine();
-        System.out.println(INCORRECT_FORMAT + errorMessage);
+        printError(INCORRECT_FORMAT + errorMessage);
         printLine();
     }
 
@@ -246,6 +472,11 @@ public class UI {
         printLine();
     }
 
+    public void printFoundPrescriptionsMessage(int count) {
+        System.out.println("Here are the " + count + " prescription(s) matching your search:");
+        printLine();
+    }
+
     public void printViewAllActivePrescriptionsMessage() {
         System.out.println(ALL_ACTIVE_PRESCRIPTIONS_HEADING);
         printLine();
@@ -253,14 +484,14 @@ public class UI {
 
     public void printExitMessage() {
         System.out.println(EXIT_MESSAGE);
+        if (jsonOutput != null) {
+            jsonOutput.close();
+            jsonOutput = null;
+        }
     }
 
     public static void printLine() {
-        System.out.print(TAB);
-        for (int i = 0; i < 60; i++) {
-            System.out.print("_");
-        }
-        System.out.println();
+        System.out.println(LINE);
     }
 
     // Patient commands
@@ -272,9 +503,14 @@ public class UI {
     public static final String PATIENT_EDIT = "\n* To edit a patient's information: "
             + "edit i/[ID] (n/[name] or g/[M/F] or d/[DOB])"
             + "\n\tn/g/d - Please edit only one aspect of a patient at a time";
+    public static final String PATIENT_DELETE = "\n* To delete a patient with their visits and prescriptions:"
+            + " delete i/[ID]";
     public static final String PATIENT_RETRIEVE = "\n* To retrieve information about a specific patient:"
             + " retrieve i/[ID]";
-    public static final String PATIENT_VIEW_ALL = "\n* To list all patients: viewall";
+    public static final String PATIENT_VIEW_ALL = "\n* To list all patients: viewall "
+            + "(optional: sort/[name or dob] [asc or desc] page/[page])"
+            + "\n\tsort - Sort by name or date of birth, from the lowest up unless desc is given"
+            + "\n\tpage - Show one page of the list at a time, starting from page 1";
 
     // Visit commands
     public static final String VISIT_ADD = "\n* To add a visit: add i/[ID] d/[date] t/[time] (optional: r/[reason])"
@@ -285,20 +521,34 @@ public class UI {
             + "\n\tx - The index should be a displayed number next to the visit"
             + "\n\tr - The reason can be added or edited with any number of words";
     public static final String VISIT_DELETE_REASON = "\n* To delete a visit's reason: deleteReason x/[index]";
-    public static final String VISIT_VIEW_ALL = "\n* To list all visits: viewall";
+    public static final String VISIT_DELETE = "\n* To delete a visit: deleteVisit x/[index]";
+    public static final String VISIT_VIEW_ALL = "\n* To list all visits: viewall "
+            + "(optional: sort/date [asc or desc] page/[page])"
+            + "\n\tsort - Sort by date and time, from the earliest unless desc is given, leaving out archived visits"
+            + "\n\tpage - Show one page of the list at a time, starting from page 1";
     public static final String VISIT_VIEW_PATIENT = "\n* To list all visits of one patient: viewPatient i/[ID]";
     public static final String VISIT_VIEW = "\n* To view a patient's specific visit: viewVisit x/[index]";
+    public static final String VISIT_NEXT_FREE = "\n* To find the next free slot for a visit: nextFree d/[date] t/[time]"
+            + "\n\td/t - The earliest date and time wanted, formatted as DD-MM-YYYY and HH:MM";
+    public static final String VISIT_FIND = "\n* To search visits: find (any of: i/[ID] from/[date] to/[date] "
+            + "r/[words])"
+            + "\n\tfrom/to - The dates should be formatted as DD-MM-YYYY, and both are included"
+            + "\n\tr - The reason should contain all of the words"
+            + "\n\ti/from/to/r - Give at least one, in this order; only visits matching all of them are shown";
     public static final String PATIENT_ADDED = "Ok! I've added a patient! The patient's details are as follows:";
     public static final String PATIENT_EDITED = "Alright, I've modified the details of the patient! \nHere are the "
             + "new details of the patient: ";
+    public static final String PATIENT_DELETED = "Alright, I've deleted the patient below:";
     public static final String ADD_VISIT = "You have added a visit!";
     public static final String EDIT_VISIT_REASON = "You have edited reason for the visit. Here's the updated visit!";
     public static final String DELETE_VISIT_REASON = "You have deleted the reason for the visit. Here's the "
             + "updated visit!";
+    public static final String VISIT_DELETED = "You have deleted the visit below:";
     public static final String ADD_PRESCRIPTION = "You have added a prescription!";
     public static final String EDIT_PRESCRIPTION = "You have edited the prescription!";
     public static final String DEACTIVATE_PRESCRIPTION = "Ok, I've deactivated the prescription below:";
     public static final String ACTIVATE_PRESCRIPTION = "Ok, I've activated the prescription below:";
+    public static final String PRESCRIPTION_DELETED = "Ok, I've deleted the prescription below:";
 
     // Prescription commands
     public static final String PRESCRIPTION_ADD = "\n* To add a prescription: add i/ID "
@@ -319,11 +569,31 @@ public class UI {
     public static final String PRESCRIPTION_VIEW_ACTIVE = "\n* To list all active prescriptions of one "
             + "patient: viewActPatientPres i/[ID]";
 
+    public static final String PRESCRIPTION_FIND = "\n* To search prescriptions: find "
+            + "(any of: i/[ID] s/active n/[name])"
+            + "\n\ts - Use s/active to leave out inactive prescriptions"
+            + "\n\tn - The prescription name should be the full name, in any case"
+            + "\n\ti/s/n - Give at least one, in this order; only prescriptions matching all of them are shown";
+
     public static final String PRESCRIPTION_CHANGE_ACTIVE = "\n* To change a prescription record to be "
             + "active: activate x/[index]";
 
     public static final String PRESCRIPTION_CHANGE_INACTIVE = "\n* To change a prescription record to be "
             + "inactive: deactivate x/[index]";
+    public static final String PRESCRIPTION_DELETE = "\n* To delete a prescription: delete x/[index]";
+    public static final String REPORT = "\n* To see a summary of the records, such as how many there are: report";
+    public static final String IMPORT = "\n* To add records in bulk from a CSV file: import f/[file]"
+            + "\n\tf - The columns should follow the order of the add command, one record per line";
+    public static final String PATIENT_EXPORT = "\n* To save patients to a file: export f/[file] (optional: i/[ID])"
+            + "\n\tf - A file ending in .jsonl is written as JSON Lines, and any other file as CSV";
+    public static final String VISIT_EXPORT = "\n* To save visits to a file: export f/[file] "
+            + "(optional: i/[ID] from/[date] to/[date])"
+            + "\n\tf - A file ending in .jsonl is written as JSON Lines, and any other file as CSV"
+            + "\n\tfrom/to - The dates should be formatted as DD-MM-YYYY, and both are included";
+    public static final String PRESCRIPTION_EXPORT = "\n* To save prescriptions to a file: export f/[file] "
+            + "(optional: i/[ID] s/active)"
+            + "\n\tf - A file ending in .jsonl is written as JSON Lines, and any other file as CSV"
+            + "\n\ts - Use s/active to leave out inactive prescriptions";
     public static final String RETURN_TO_MAIN = "\n* To return to main menu: main";
 
     public static final String EXIT_PROGRAM = "\n* To quit OneDoc: bye";
@@ -342,6 +612,65 @@ public class UI {
     public static final String INVALID_DATE_FORMAT = "Invalid Date entered - please enter digits (0-9) in the"
             + " format DD-MM-YYYY";
 
+    /**
+     * Print how many records were exported, and the file they were written to.
+     * @param count is the number of records exported
+     * @param type is the type of the exported records
+     * @param file is the file the records were written to
+     */
+    public void printExportResult(int count, String type, File file) {
+        printLine();
+        System.out.println(TAB + "Exported " + count + " " + type.toLowerCase() + " record(s) to " + file.getPath()
+                + ".");
+        printLine();
+    }
+
+    public void printPatientReport(int total, int maleCount, int femaleCount) {
+        printLine();
+        System.out.println(TAB + "Patients: " + total);
+        System.out.println(TAB + "Male: " + maleCount);
+        System.out.println(TAB + "Female: " + femaleCount);
+        printLine();
+    }
+
+    public void printVisitReport(int total, int todayCount, Map<String, Integer> monthCounts) {
+        printLine();
+        System.out.println(TAB + "Visits: " + total);
+        System.out.println(TAB + "Today: " + todayCount);
+        int monthTotal = 0;
+        for (int count : monthCounts.values()) {
+            monthTotal += count;
+        }
+        System.out.println(TAB + "This month: " + monthTotal);
+        for (Map.Entry<String, Integer> entry : monthCounts.entrySet()) {
+            System.out.println(TAB + TAB + entry.getKey() + ": " + entry.getValue());
+        }
+        printLine();
+    }
+
+    public void printPrescriptionReport(int total, int activeCount) {
+        printLine();
+        System.out.println(TAB + "Prescriptions: " + total);
+        System.out.println(TAB + "Active: " + activeCount);
+        System.out.println(TAB + "Inactive: " + (total - activeCount));
+        printLine();
+    }
+
+    /**
+     * Print how many rows of a CSV file were imported, and where the rejected rows were reported.
+     * @param result is the result of the import
+     * @param type is the type of the imported records
+     */
+    public void printImportResult(CsvImporter.ImportResult result, String type) {
+        printLine();
+        System.out.println(TAB + "Imported " + result.getImported() + " " + type.toLowerCase() + " record(s).");
+        if (result.getRejected() > 0) {
+            System.out.println(TAB + result.getRejected() + " row(s) were rejected, see "
+                    + result.getReportFile().getPath() + " for the reasons.");
+        }
+        printLine();
+    }
+
     /**
      * Print message that there are no prescription from the patient.
      */
@@ -350,21 +679,17 @@ public class UI {
     }
 
     /**
-     * Print message that there are no active prescription from the patient.
+     * Print message that no prescription matches a search.
      */
-    public void printNoMatchingActivePrescriptionMessage() {
-        System.out.println(NO_MATCHING_ACTIVE_PRESCRIPTION_MESSAGE);
+    public void printNoFoundPrescriptionMessage() {
+        System.out.println(NO_FOUND_PRESCRIPTION_MESSAGE);
     }
 
     /**
-     * Print the prescription details with index.
-     * @param index the index number starting from 1 onward
-     * @param prescription a String that represents the object
+     * Print message that there are no active prescription from the patient.
      */
-    public void printPrescriptionWithIndex(int index, String prescription) {
-        System.out.println("\t" + PRESCRIPTION_INDEX_FORMAT + index);
-        System.out.println(prescription);
-        printLine();
+    public void printNoMatchingActivePrescriptionMessage() {
+        System.out.println(NO_MATCHING_ACTIVE_PRESCRIPTION_MESSAGE);
     }
 }
 
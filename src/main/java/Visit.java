@@ -1,16 +1,30 @@
-import java.util.ArrayList;
+/**
+ * Visit is a class that holds the details of a visit. It cannot be changed once created, so that a version of the visit
+ * list can be read while a newer one is being made; an edit makes a changed copy instead.
+ * The ID of the patient is kept as its key in PatientKeys, and so is in upper case.
+ */
+public class Visit implements Renderable {
+    public static final String ARCHIVED = "archived";
+    public static final String DELETED = "deleted";
 
-public class Visit {
-    private String id;
+    private final int patientKey;
 
-    private String dateOfVisit;
+    private final String dateOfVisit;
 
-    private String timeOfVisit;
+    private final String timeOfVisit;
 
-    private String reason;
+    private final String reason;
 
     public Visit(String id, String dateOfVisit, String timeOfVisit, String reason) {
-        this.id = id;
+        this(PatientKeys.getKey(id), dateOfVisit, timeOfVisit, reason);
+    }
+
+    /**
+     * Create a visit of the patient with a given key, e.g. when reading it back from VisitColumns.
+     * @param patientKey is the key of the patient in PatientKeys
+     */
+    public Visit(int patientKey, String dateOfVisit, String timeOfVisit, String reason) {
+        this.patientKey = patientKey;
         this.dateOfVisit = dateOfVisit;
         this.timeOfVisit = timeOfVisit;
         this.reason = reason;
@@ -21,7 +35,11 @@ public class Visit {
     }
 
     public String getId() {
-        return id;
+        return PatientKeys.getId(patientKey);
+    }
+
+    public int getPatientKey() {
+        return patientKey;
     }
 
     public String getDateOfVisit() {
@@ -36,21 +54,67 @@ public class Visit {
         return reason;
     }
 
-    public void setReason(String reason) {
-        this.reason = reason;
+    /**
+     * Make the stand-in kept in the visit list in place of an archived visit, which holds nothing but the patient ID.
+     * @param id is the ID of the patient the visit belongs to
+     * @return the stand-in, which is stored with its date and time set to ARCHIVED
+     */
+    public static Visit archived(String id) {
+        return archived(PatientKeys.getKey(id));
+    }
+
+    /**
+     * Make the stand-in kept in the visit list in place of an archived visit of the patient with a given key.
+     * @param patientKey is the key of the patient in PatientKeys
+     * @return the stand-in
+     */
+    public static Visit archived(int patientKey) {
+        return new Visit(patientKey, ARCHIVED, ARCHIVED, "");
+    }
+
+    public boolean isArchived() {
+        return ARCHIVED.equals(dateOfVisit);
+    }
+
+    /**
+     * Make the tombstone kept in the visit list in place of a deleted visit, so that no other visit takes its number.
+     * It keeps the patient key, so that the visit stays in the same shard, see DataFile.
+     * @param patientKey is the key of the patient in PatientKeys
+     * @return the tombstone, which is stored with its date and time set to DELETED
+     */
+    public static Visit deleted(int patientKey) {
+        return new Visit(patientKey, DELETED, DELETED, "");
+    }
+
+    public boolean isDeleted() {
+        return DELETED.equals(dateOfVisit);
+    }
+
+    public Visit withReason(String reason) {
+        return new Visit(patientKey, dateOfVisit, timeOfVisit, reason);
+    }
+
+    @Override
+    public void appendTo(StringBuilder text) {
+        String lineSeparator = System.lineSeparator();
+        text.append("\tID: ").append(getId()).append(lineSeparator)
+                .append("\tDate: ").append(getDateOfVisit()).append(lineSeparator)
+                .append("\tTime: ").append(getTimeOfVisit()).append(lineSeparator)
+                .append("\tReason: ").append(getReason().equals("") ? "NIL" : getReason());
+    }
+
+    @Override
+    public void appendJsonTo(StringBuilder json) {
+        Json.appendMember(json, "id", getId());
+        Json.appendMember(json, "date", getDateOfVisit());
+        Json.appendMember(json, "time", getTimeOfVisit());
+        Json.appendMember(json, "reason", getReason());
     }
 
     @Override
     public String toString() {
-        String message = "";
-        message += "\tID: " + getId();
-        message += System.lineSeparator();
-        message += "\tDate: " + getDateOfVisit();
-        message += System.lineSeparator();
-        message += "\tTime: " + getTimeOfVisit();
-        message += System.lineSeparator();
-        message += "\tReason: ";
-        message += getReason().equals("") ? "NIL" : getReason();
-        return message;
+        StringBuilder message = new StringBuilder();
+        appendTo(message);
+        return message.toString();
     }
 }
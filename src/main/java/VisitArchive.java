@@ -0,0 +1,142 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * VisitArchive is a class that keeps old visits on disk instead of in memory, in one compressed file per patient.
+ * Each archiving run appends a gzip member to the file of every patient it touches, holding the position of each visit
+ * in the visit list followed by its fields. The visits of the patients looked up most recently are kept in a cache of
+ * bounded size, so memory does not grow with the history however much of it is viewed.
+ */
+public class VisitArchive {
+    private static final String FILE_EXTENSION = ".gz";
+
+    private final File directory;
+    private final Map<String, TreeMap<Integer, Visit>> cache;
+
+    /**
+     * Create the archive kept in a folder, which is created when the first visit is archived.
+     * @param directory is the folder of the archive files
+     * @param cacheSize is how many patients' archived visits are kept in memory at most
+     */
+    public VisitArchive(File directory, int cacheSize) {
+        assert cacheSize >= 1 : "the cache should hold at least one patient!";
+        this.directory = directory;
+        cache = new LinkedHashMap<String, TreeMap<Integer, Visit>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TreeMap<Integer, Visit>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Add visits of one patient to the archive, and force them to disk before returning.
+     * @param id is the ID of the patient
+     * @param visits are the visits to archive, by their position in the visit list
+     */
+    public synchronized void add(String id, Map<Integer, Visit> visits) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("The archive folder " + directory + " could not be created");
+        }
+        String key = getKey(id);
+        try (FileOutputStream fileStream = new FileOutputStream(getFile(key), true)) {
+            GZIPOutputStream zipStream = new GZIPOutputStream(new BufferedOutputStream(fileStream));
+            DataOutputStream output = new DataOutputStream(zipStream);
+            for (Map.Entry<Integer, Visit> entry : visits.entrySet()) {
+                Visit visit = entry.getValue();
+                output.writeInt(entry.getKey());
+                output.writeUTF(visit.getId());
+                output.writeUTF(visit.getDateOfVisit());
+                output.writeUTF(visit.getTimeOfVisit());
+                output.writeUTF(visit.getReason());
+            }
+            zipStream.finish();
+            output.flush();
+            fileStream.getFD().sync();
+        }
+        TreeMap<Integer, Visit> cachedVisits = cache.get(key);
+        if (cachedVisits != null) {
+            cachedVisits.putAll(visits);
+        }
+    }
+
+    /**
+     * Retrieve the archived visits of a patient, reading them from disk unless they are cached.
+     * @param id is the ID of the patient, ignoring case
+     * @return the visits by their position in the visit list, which is empty if the patient has none
+     */
+    public synchronized Map<Integer, Visit> getVisits(String id) {
+        String key = getKey(id);
+        TreeMap<Integer, Visit> visits = cache.get(key);
+        if (visits == null) {
+            visits = read(getFile(key));
+            cache.put(key, visits);
+        }
+        return Collections.unmodifiableMap(visits);
+    }
+
+    /**
+     * Retrieve one archived visit. A visit missing from the cache is looked for on disk once more, as another OneDoc
+     * on the same data files may have archived it since, see Follower.
+     * @param id is the ID of the patient the visit belongs to
+     * @param position is the position of the visit in the visit list
+     * @return the visit, or null if it is not in the archive
+     */
+    public synchronized Visit getVisit(String id, int position) {
+        Visit visit = getVisits(id).get(position);
+        if (visit == null) {
+            cache.remove(getKey(id));
+            visit = getVisits(id).get(position);
+        }
+        return visit;
+    }
+
+    /**
+     * Read every visit from an archive file. A member cut short, e.g. by a crash while archiving, ends the file, and a
+     * visit archived twice keeps its last copy.
+     */
+    private static TreeMap<Integer, Visit> read(File file) {
+        TreeMap<Integer, Visit> visits = new TreeMap<>();
+        if (!file.exists()) {
+            return visits;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            while (true) {
+                int position = input.readInt();
+                String id = input.readUTF();
+                String dateOfVisit = input.readUTF();
+                String timeOfVisit = input.readUTF();
+                String reason = input.readUTF();
+                visits.put(position, new Visit(id, dateOfVisit, timeOfVisit, reason));
+            }
+        } catch (EOFException e) {
+            return visits;
+        } catch (IOException e) {
+            UI.printErrorMessage(UI.ARCHIVE_READ_ERROR_MESSAGE + file.getName());
+            return visits;
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + FILE_EXTENSION);
+    }
+
+    private static String getKey(String id) {
+        return id.toUpperCase(Locale.ROOT);
+    }
+}
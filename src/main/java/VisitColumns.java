@@ -0,0 +1,207 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * VisitColumns is an immutable list of visits that stores each field in a column of primitives instead of keeping a
+ * Visit object with four strings per visit. The patient is its key in PatientKeys, the date is a number of days since
+ * 1970-01-01 and the time is a number of minutes after midnight. The reason is kept as the string it is, as reasons are
+ * free text that seldom repeat, and a dictionary of them would only grow and cost more than the reference per visit.
+ * A Visit is only made when a visit is read.
+ * The visits are kept in blocks of 32 held in a PersistentList, so a change copies the one block it touches and
+ * versions can be read without locks in the same way.
+ * A date or time not in the usual format, such as that of an archived visit, is kept in a dictionary of its own, and a
+ * position with no visit yet, as reserved for lazy loading, reads as null.
+ */
+public final class VisitColumns implements RecordList<Visit> {
+    private static final int BITS = 5;
+    private static final int BLOCK_SIZE = 1 << BITS;
+    private static final int MASK = BLOCK_SIZE - 1;
+    private static final int NO_VISIT = -1;
+    private static final int MIN_DAY = (int) LocalDate.of(0, 1, 1).toEpochDay();
+    private static final int RAW_DAY_BASE = MIN_DAY - 1;
+
+    private final PersistentList<Block> blocks;
+    private final int size;
+    private final Dictionaries dictionaries;
+
+    private VisitColumns(PersistentList<Block> blocks, int size, Dictionaries dictionaries) {
+        this.blocks = blocks;
+        this.size = size;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Make an empty list with dictionaries of its own, which every version made from it shares.
+     * @return the empty list
+     */
+    public static VisitColumns empty() {
+        return new VisitColumns(PersistentList.empty(), 0, new Dictionaries());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Visit get(int index) {
+        checkIndex(index);
+        return blocks.get(index >>> BITS).get(index & MASK, dictionaries);
+    }
+
+    /**
+     * Retrieve the ID of the patient of a visit without making the visit.
+     * @param index is the position of the visit, starting from 0
+     * @return the ID in upper case, or null if the position has no visit yet
+     */
+    public String getPatientId(int index) {
+        checkIndex(index);
+        int patientKey = blocks.get(index >>> BITS).patientIds[index & MASK];
+        return patientKey == NO_VISIT ? null : PatientKeys.getId(patientKey);
+    }
+
+    /**
+     * Make a version of the list with a visit added at the end. This is only called while holding the lock of the
+     * list, as it may add to the dictionaries.
+     * @param visit is the visit to add, or null to keep a position for a visit not read yet
+     * @return the new version
+     */
+    public VisitColumns add(Visit visit) {
+        int slot = size & MASK;
+        Block block = slot == 0 ? new Block() : blocks.get(size >>> BITS).copy();
+        block.set(slot, visit, dictionaries);
+        PersistentList<Block> newBlocks = slot == 0 ? blocks.add(block) : blocks.set(size >>> BITS, block);
+        return new VisitColumns(newBlocks, size + 1, dictionaries);
+    }
+
+    /**
+     * Make a version of the list with the visit at a position replaced. This is only called while holding the lock of
+     * the list, as it may add to the dictionaries.
+     * @param index is the position of the visit, starting from 0
+     * @param visit is the visit to put there
+     * @return the new version
+     */
+    public VisitColumns set(int index, Visit visit) {
+        checkIndex(index);
+        Block block = blocks.get(index >>> BITS).copy();
+        block.set(index & MASK, visit, dictionaries);
+        return new VisitColumns(blocks.set(index >>> BITS, block), size, dictionaries);
+    }
+
+    @Override
+    public Iterator<Visit> iterator() {
+        return new Iterator<Visit>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Visit next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    /**
+     * Dictionaries holds the strings the columns of every version of one list refer to by number.
+     */
+    private static class Dictionaries {
+        private final StringDictionary rawValues = new StringDictionary();
+    }
+
+    /**
+     * Block holds the columns of up to 32 visits. It is only changed while it is being made, before it is published.
+     */
+    private static class Block {
+        private final int[] patientIds;
+        private final int[] days;
+        private final short[] minutes;
+        private final String[] reasons;
+
+        private Block() {
+            this(new int[BLOCK_SIZE], new int[BLOCK_SIZE], new short[BLOCK_SIZE], new String[BLOCK_SIZE]);
+        }
+
+        private Block(int[] patientIds, int[] days, short[] minutes, String[] reasons) {
+            this.patientIds = patientIds;
+            this.days = days;
+            this.minutes = minutes;
+            this.reasons = reasons;
+        }
+
+        private Block copy() {
+            return new Block(patientIds.clone(), days.clone(), minutes.clone(), reasons.clone());
+        }
+
+        private Visit get(int slot, Dictionaries dictionaries) {
+            if (patientIds[slot] == NO_VISIT) {
+                return null;
+            }
+            return new Visit(patientIds[slot], decodeDate(days[slot], dictionaries),
+                    decodeTime(minutes[slot], dictionaries), reasons[slot]);
+        }
+
+        private void set(int slot, Visit visit, Dictionaries dictionaries) {
+            if (visit == null) {
+                patientIds[slot] = NO_VISIT;
+                reasons[slot] = null;
+                return;
+            }
+            patientIds[slot] = visit.getPatientKey();
+            days[slot] = encodeDate(visit.getDateOfVisit(), dictionaries);
+            minutes[slot] = encodeTime(visit.getTimeOfVisit(), dictionaries);
+            reasons[slot] = visit.getReason();
+        }
+    }
+
+    private static int encodeDate(String date, Dictionaries dictionaries) {
+        int dateKey = DateTimeValidator.toDateKey(date);
+        if (dateKey >= 0) {
+            try {
+                return (int) LocalDate.of(dateKey / 10000, dateKey / 100 % 100, dateKey % 100).toEpochDay();
+            } catch (DateTimeException e) {
+                // Kept as it is below, e.g. 31-02-2024 from an older data file.
+            }
+        }
+        return RAW_DAY_BASE - dictionaries.rawValues.getId(date);
+    }
+
+    private static String decodeDate(int day, Dictionaries dictionaries) {
+        if (day <= RAW_DAY_BASE) {
+            return dictionaries.rawValues.get(RAW_DAY_BASE - day);
+        }
+        LocalDate date = LocalDate.ofEpochDay(day);
+        return DateTimeValidator.toDate(date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth());
+    }
+
+    private static short encodeTime(String time, Dictionaries dictionaries) {
+        int minute = DateTimeValidator.toMinuteOfDay(time);
+        if (minute >= 0) {
+            return (short) minute;
+        }
+        int rawId = dictionaries.rawValues.getId(time);
+        assert rawId < Short.MAX_VALUE : "there should be few times not in the format HH:MM!";
+        return (short) (-1 - rawId);
+    }
+
+    private static String decodeTime(short minute, Dictionaries dictionaries) {
+        if (minute < 0) {
+            return dictionaries.rawValues.get(-1 - minute);
+        }
+        return DateTimeValidator.toTime(minute);
+    }
+}
@@ -1,46 +1,210 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
 
+/**
+ * VisitList is a class that holds the visits in VisitColumns, along with the indexes used to search them.
+ * Changes and index lookups are made while holding the lock of the list, and each change publishes a new version of
+ * the list. Viewing a visit or a whole list of visits reads a published version without the lock, so a long listing
+ * never holds up a change.
+ * Old visits can be moved into a VisitArchive on disk. Each keeps its position, holding a stand-in that only knows the
+ * patient ID, so that visit numbers stay the same. Viewing visits reads archived ones back through the archive, while
+ * the indexes, and so searches and reports, only cover the visits still in memory.
+ * A deleted visit leaves a tombstone in its position in the same way, which is left out of the indexes and listings.
+ * The date index doubles as the visits sorted by date, so that they can be shown by date a page at a time.
+ * When loaded lazily, positions whose visits have not been read from the data file yet hold null, see LazyRecords.
+ * Each method first reads the visits it needs: those of one patient, one date or one position where it can, and every
+ * visit otherwise.
+ */
 public class VisitList {
-    private final ArrayList<Visit> visitList;
+    public static final String SORT_BY_DATE = "date";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private volatile VisitColumns visitList;
+    private final ChangeTracker changeTracker;
+    private final PositionIndex<Integer> patientIndex;
+    private final PositionIndex<Integer> dateIndex;
+    private final PositionIndex<String> reasonIndex;
+    private final SlotIndex slotIndex;
+    private final HashMap<Integer, Visit> archivedStandIns;
+    private volatile VisitArchive archive;
+    private LazyRecords lazyRecords;
+    private final BlockCounter deletedPositions;
 
     public VisitList() {
-        visitList = new ArrayList<>();
+        this(Settings.getSlotMinutes());
+    }
+
+    /**
+     * Create an empty list of visits.
+     * @param slotMinutes is how many minutes each visit keeps the clinic busy, where 0 allows visits at the same time
+     */
+    public VisitList(int slotMinutes) {
+        visitList = VisitColumns.empty();
+        changeTracker = new ChangeTracker();
+        patientIndex = new PositionIndex<>();
+        dateIndex = new PositionIndex<>();
+        deletedPositions = new BlockCounter();
+        reasonIndex = new PositionIndex<>();
+        slotIndex = new SlotIndex(slotMinutes);
+        archivedStandIns = new HashMap<>();
+    }
+
+    /**
+     * Set the archive that old visits are moved into and read back from.
+     * @param archive is the archive of this list
+     */
+    public synchronized void setArchive(VisitArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Keep positions for visits that are still to be read from the data file.
+     * @param count is the number of positions to add at the end of the list
+     */
+    public synchronized void reserve(int count) {
+        for (int i = 0; i < count; i++) {
+            visitList = visitList.add(null);
+        }
+    }
+
+    /**
+     * Leave the visits in reserved positions to be read the first time they are needed.
+     * @param lazyRecords are the visits still to be read, or null if every visit has been loaded
+     */
+    public synchronized void setLazyRecords(LazyRecords lazyRecords) {
+        this.lazyRecords = lazyRecords == null || lazyRecords.isDone() ? null : lazyRecords;
     }
 
-    public ArrayList<Visit> getVisits() {
+    /**
+     * Read every visit that is still to be read from the data file.
+     */
+    public synchronized void loadAll() {
+        readLazily(LazyRecords::loadAll);
+    }
+
+    private void readLazily(Consumer<LazyRecords> reader) {
+        if (lazyRecords != null) {
+            reader.accept(lazyRecords);
+            if (lazyRecords.isDone()) {
+                lazyRecords = null;
+            }
+        }
+    }
+
+    /**
+     * Retrieve the latest version of the list, which stays the same however the list is changed afterwards.
+     * @return the visits at the time of the call
+     */
+    public VisitColumns getVisits() {
         return visitList;
     }
 
-    public void addVisit(UI ui, String id, String dateOfVisit, String timeOfVisit, String reason) {
+    public synchronized void addVisit(UI ui, String id, String dateOfVisit, String timeOfVisit, String reason) {
         assert id != null : "id should not be null";
         assert dateOfVisit != null : "date of visit should not be null";
         assert timeOfVisit != null : "time of visit should not be null";
-        if (checkDuplicateVisit(id,dateOfVisit,timeOfVisit)) {
-            System.out.println(UI.DUPLICATE_VISIT_MESSAGE);
-        } else {
-            Visit visit = new Visit(id,dateOfVisit,timeOfVisit,reason);
-            visitList.add(visit);
-            ui.printMessageAndObject(visit.toString(),UI.ADD_VISIT,visitList.indexOf(visit), UI.VISIT);
-        }
+        addVisit(ui, new Visit(id, dateOfVisit, timeOfVisit, reason));
     }
 
-    public void addVisit(UI ui, String id, String dateOfVisit, String timeOfVisit) {
+    public synchronized void addVisit(UI ui, String id, String dateOfVisit, String timeOfVisit) {
         assert id != null : "id should not be null";
         assert dateOfVisit != null : "date of visit should not be null";
         assert timeOfVisit != null : "time of visit should not be null";
-        if (checkDuplicateVisit(id,dateOfVisit,timeOfVisit)) {
-            System.out.println(UI.DUPLICATE_VISIT_MESSAGE);
-        } else {
-            Visit visit = new Visit(id,dateOfVisit,timeOfVisit);
-            visitList.add(visit);
-            ui.printMessageAndObject(visit.toString(),UI.ADD_VISIT,visitList.indexOf(visit), UI.VISIT);
+        addVisit(ui, new Visit(id, dateOfVisit, timeOfVisit));
+    }
+
+    private void addVisit(UI ui, Visit visit) {
+        try {
+            int number = add(visit);
+            ui.printMessageAndObject(visit, UI.ADD_VISIT, number - 1, UI.VISIT);
+        } catch (OneDocException e) {
+            if (e.getType() == OneDocException.Type.SLOT_TAKEN) {
+                printSlotTaken(visit.getDateOfVisit(), visit.getTimeOfVisit());
+            } else {
+                UI.printError(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Add a visit without printing it, unless the patient already has a visit at that time or its slot is taken.
+     * @param visit is the visit to add
+     * @return the number of the visit
+     * @throws OneDocException of type DUPLICATE or SLOT_TAKEN if the visit cannot be added
+     */
+    public synchronized int add(Visit visit) throws OneDocException {
+        checkCanAdd(visit, null, null);
+        append(visit);
+        changeTracker.markChanged(visitList.size() - 1);
+        return visitList.size();
+    }
+
+    /**
+     * Add a batch of visits without printing them. Either every visit is added or, if any of them cannot be, none is.
+     * The visits are checked against those in the list and against each other before the first one is added.
+     * @param visits are the visits to add, in order
+     * @return the numbers of the visits, in the same order
+     * @throws OneDocException of type DUPLICATE or SLOT_TAKEN for the first visit that cannot be added
+     */
+    public synchronized int[] addAll(List<Visit> visits) throws OneDocException {
+        Set<String> batchKeys = new HashSet<>();
+        SlotIndex batchSlots = new SlotIndex(slotIndex.getSlotMinutes());
+        for (Visit visit : visits) {
+            checkCanAdd(visit, batchKeys, batchSlots);
+        }
+        int[] numbers = new int[visits.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            append(visits.get(i));
+            changeTracker.markChanged(visitList.size() - 1);
+            numbers[i] = visitList.size();
+        }
+        return numbers;
+    }
+
+    /**
+     * Check that a visit can be added, and note it in the batch it is added with.
+     * @param batchKeys are the patients, dates and times of the visits before it in the batch, or null if there is none
+     * @param batchSlots are the slots of the visits before it in the batch, or null if there is none
+     */
+    private void checkCanAdd(Visit visit, Set<String> batchKeys, SlotIndex batchSlots) throws OneDocException {
+        String dateOfVisit = visit.getDateOfVisit();
+        String timeOfVisit = visit.getTimeOfVisit();
+        int date = DateTimeValidator.toDateKey(dateOfVisit);
+        int minute = DateTimeValidator.toMinuteOfDay(timeOfVisit);
+        String key = visit.getPatientKey() + " " + dateOfVisit + " " + timeOfVisit;
+        if (checkDuplicateVisit(visit.getId(), dateOfVisit, timeOfVisit)
+                || (batchKeys != null && !batchKeys.add(key))) {
+            throw new OneDocException(OneDocException.Type.DUPLICATE, UI.DUPLICATE_VISIT_MESSAGE);
+        }
+        boolean isInBatchSlot = batchSlots != null && minute >= 0 && !batchSlots.isFree(date, minute);
+        if (!isSlotFree(dateOfVisit, timeOfVisit) || isInBatchSlot) {
+            throw new OneDocException(OneDocException.Type.SLOT_TAKEN, UI.SLOT_TAKEN_MESSAGE
+                    + System.lineSeparator() + getNextFreeMessage(dateOfVisit, timeOfVisit));
+        }
+        if (batchSlots != null && minute >= 0) {
+            batchSlots.occupy(date, minute);
         }
     }
 
-    public boolean checkDuplicateVisit(String id, String dateOfVisit, String timeOfVisit) {
-        for (int i = 0; i < getTotalVisits(); i++) {
-            if (visitList.get(i).getId().equals(id)
-                    && visitList.get(i).getDateOfVisit().equals(dateOfVisit)
+    public synchronized boolean checkDuplicateVisit(String id, String dateOfVisit, String timeOfVisit) {
+        for (int i : getPatientPositions(id)) {
+            if (visitList.get(i).getDateOfVisit().equals(dateOfVisit)
                     && visitList.get(i).getTimeOfVisit().equals(timeOfVisit)) {
                 return true;
             }
@@ -48,54 +212,727 @@ public class VisitList {
         return false;
     }
 
-    public void loadVisit(String id, String dateOfVisit, String timeOfVisit, String reason) {
+    /**
+     * Check if a visit could be added at a time without overlapping the slot of another visit.
+     * @param dateOfVisit is the date in the format DD-MM-YYYY
+     * @param timeOfVisit is the time in the format HH:MM
+     * @return true if the slot starting at the time is free
+     */
+    public synchronized boolean isSlotFree(String dateOfVisit, String timeOfVisit) {
+        readLazily(records -> records.loadKey(dateOfVisit));
+        return slotIndex.isFree(DateTimeValidator.toDateKey(dateOfVisit), DateTimeValidator.toMinuteOfDay(timeOfVisit));
+    }
+
+    private void printSlotTaken(String dateOfVisit, String timeOfVisit) {
+        UI.printError(UI.SLOT_TAKEN_MESSAGE);
+        System.out.println(getNextFreeMessage(dateOfVisit, timeOfVisit));
+    }
+
+    /**
+     * Show the earliest time on a date, from a given time on, at which a visit would not overlap another one, or that
+     * slot checks are off if visits have no slots.
+     * @param ui is the user interface of OneDoc
+     * @param dateOfVisit is the date in the format DD-MM-YYYY
+     * @param timeOfVisit is the earliest time wanted in the format HH:MM
+     */
+    public synchronized void nextFree(UI ui, String dateOfVisit, String timeOfVisit) {
+        if (slotIndex.getSlotMinutes() == 0) {
+            UI.printErrorMessage(UI.SLOT_CHECKS_OFF_MESSAGE);
+            return;
+        }
+        readLazily(records -> records.loadKey(dateOfVisit));
+        ui.printLine();
+        System.out.println(getNextFreeMessage(dateOfVisit, timeOfVisit));
+        ui.printLine();
+    }
+
+    private String getNextFreeMessage(String dateOfVisit, String timeOfVisit) {
+        int freeMinute = slotIndex.findFree(DateTimeValidator.toDateKey(dateOfVisit),
+                DateTimeValidator.toMinuteOfDay(timeOfVisit));
+        if (freeMinute < 0) {
+            return "There are no free slots left on " + dateOfVisit + " from " + timeOfVisit + ".";
+        }
+        return "The next free slot on " + dateOfVisit + " is at " + DateTimeValidator.toTime(freeMinute) + ".";
+    }
+
+    public synchronized void loadVisit(String id, String dateOfVisit, String timeOfVisit, String reason) {
         Visit visit = new Visit(id, dateOfVisit, timeOfVisit, reason);
-        visitList.add(visit);
+        append(visit);
     }
 
-    public void editReason(UI ui, int index, String reason) {
-        assert reason != null : "reason should not be null, use deleteReason instead";
-        if (index < 1 || index > getTotalVisits()) {
-            System.out.println("There is no such visit in the system with index " + index + "!");
+    /**
+     * Load a visit into a given position, replacing the visit there or appending it at the end of the list.
+     * @param index is the position of the visit, ranging from 0 to the size of list
+     */
+    public synchronized void loadVisit(int index, String id, String dateOfVisit, String timeOfVisit, String reason) {
+        assert index >= 0 && index <= visitList.size() : "index of loaded visit should be within the list!";
+        Visit visit = new Visit(id, dateOfVisit, timeOfVisit, reason);
+        if (index == visitList.size()) {
+            append(visit);
         } else {
-            visitList.get(index - 1).setReason(reason);
-            ui.printMessageAndObject(visitList.get(index - 1).toString(), UI.EDIT_VISIT_REASON, index - 1,
-                    UI.VISIT);
+            replace(index, visit);
         }
     }
 
-    public void deleteReason(UI ui, int index) {
-        if (index < 1 || index > getTotalVisits()) {
-            System.out.println("There is no such visit in the system with index " + index + "!");
-        } else if (visitList.get(index - 1).getReason().equals("")) {
-            System.out.println("Visit #" + index + " already has no reason stated!");
+    private void append(Visit visit) {
+        visitList = visitList.add(visit);
+        addToIndexes(visit, visitList.size() - 1);
+    }
+
+    /**
+     * Load the stand-in of an archived visit into a given position, replacing the visit there or appending it at the
+     * end of the list.
+     * @param index is the position of the visit, ranging from 0 to the size of list
+     * @param id is the ID of the patient the visit belongs to
+     */
+    public synchronized void loadArchivedVisit(int index, String id) {
+        assert index >= 0 && index <= visitList.size() : "index of loaded visit should be within the list!";
+        Visit standIn = getStandIn(id);
+        if (index == visitList.size()) {
+            visitList = visitList.add(standIn);
         } else {
-            visitList.get(index - 1).setReason("");
-            ui.printMessageAndObject(visitList.get(index - 1).toString(),UI.DELETE_VISIT_REASON, index - 1,
-                    UI.VISIT);
+            Visit replacedVisit = visitList.get(index);
+            if (replacedVisit != null && replacedVisit.isDeleted()) {
+                deletedPositions.add(index, -1);
+            }
+            removeFromIndexes(index, replacedVisit);
+            visitList = visitList.set(index, standIn);
         }
     }
 
+    /**
+     * Load the tombstone of a deleted visit into a given position, replacing the visit there or appending it at the
+     * end of the list.
+     * @param index is the position of the visit, ranging from 0 to the size of list
+     * @param id is the ID of the patient the visit belonged to
+     */
+    public synchronized void loadDeletedVisit(int index, String id) {
+        assert index >= 0 && index <= visitList.size() : "index of loaded visit should be within the list!";
+        Visit tombstone = Visit.deleted(PatientKeys.getKey(id));
+        if (index == visitList.size()) {
+            visitList = visitList.add(tombstone);
+        } else {
+            Visit replacedVisit = visitList.get(index);
+            if (replacedVisit != null && replacedVisit.isDeleted()) {
+                return;
+            }
+            removeFromIndexes(index, replacedVisit);
+            visitList = visitList.set(index, tombstone);
+        }
+        deletedPositions.add(index, 1);
+    }
+
+    /**
+     * Retrieve the stand-in for the archived visits of a patient, which is shared by all of them to save memory.
+     */
+    private Visit getStandIn(String id) {
+        return archivedStandIns.computeIfAbsent(PatientKeys.getKey(id), Visit::archived);
+    }
+
+    private void replace(int index, Visit visit) {
+        Visit replacedVisit = visitList.get(index);
+        if (replacedVisit != null && replacedVisit.isDeleted()) {
+            deletedPositions.add(index, -1);
+        }
+        removeFromIndexes(index, replacedVisit);
+        visitList = visitList.set(index, visit);
+        addToIndexes(visit, index);
+    }
+
+    private void removeFromIndexes(int index, Visit replacedVisit) {
+        if (replacedVisit == null || replacedVisit.isArchived() || replacedVisit.isDeleted()) {
+            return;
+        }
+        int replacedDate = DateTimeValidator.toDateKey(replacedVisit.getDateOfVisit());
+        patientIndex.remove(replacedVisit.getPatientKey(), index);
+        dateIndex.remove(replacedDate, index);
+        slotIndex.clear(replacedDate);
+        for (int i : dateIndex.get(replacedDate)) {
+            occupySlot(visitList.get(i));
+        }
+        for (String word : getWords(replacedVisit.getReason())) {
+            reasonIndex.remove(word, index);
+        }
+    }
+
+    private void addToIndexes(Visit visit, int index) {
+        patientIndex.add(visit.getPatientKey(), index);
+        dateIndex.add(DateTimeValidator.toDateKey(visit.getDateOfVisit()), index);
+        for (String word : getWords(visit.getReason())) {
+            reasonIndex.add(word, index);
+        }
+        occupySlot(visit);
+    }
+
+    private void occupySlot(Visit visit) {
+        int minute = DateTimeValidator.toMinuteOfDay(visit.getTimeOfVisit());
+        if (minute >= 0) {
+            slotIndex.occupy(DateTimeValidator.toDateKey(visit.getDateOfVisit()), minute);
+        }
+    }
+
+    private void setReason(int index, String reason) {
+        Visit visit = visitList.get(index);
+        for (String word : getWords(visit.getReason())) {
+            reasonIndex.remove(word, index);
+        }
+        visitList = visitList.set(index, visit.withReason(reason));
+        for (String word : getWords(reason)) {
+            reasonIndex.add(word, index);
+        }
+    }
+
+    /**
+     * Split a reason into its distinct words in lower case, which are the keys of the reason index.
+     */
+    private static Set<String> getWords(String reason) {
+        if (reason == null || reason.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= reason.length(); i++) {
+            boolean isWordCharacter = i < reason.length()
+                    && (Character.isLetterOrDigit(reason.charAt(i)) || reason.charAt(i) == '_');
+            if (isWordCharacter && start < 0) {
+                start = i;
+            } else if (!isWordCharacter && start >= 0) {
+                words.add(reason.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static int getPatientKey(String id) {
+        return PatientKeys.findKey(id);
+    }
+
+    /**
+     * Find the visits of a patient through the patient index, ignoring the case of the ID.
+     * @param id is the ID of the patient
+     * @return the positions of the visits in ascending order, starting from 0
+     */
+    public synchronized int[] getPatientPositions(String id) {
+        readLazily(records -> records.loadPatient(id));
+        return patientIndex.get(getPatientKey(id));
+    }
+
+    private synchronized Selection<Visit> selectPatient(String id) {
+        return new Selection<>(visitList, getPatientPositions(id));
+    }
+
+    private synchronized boolean hasArchivedVisits(String id) {
+        return archivedStandIns.containsKey(getPatientKey(id));
+    }
+
+    /**
+     * Find the visits within a range of dates through the date index.
+     * @param fromDate is the earliest date in the format DD-MM-YYYY, or null for no lower bound
+     * @param toDate is the latest date in the format DD-MM-YYYY, or null for no upper bound
+     * @return the positions of the visits in ascending order, starting from 0
+     */
+    public synchronized int[] getDatePositions(String fromDate, String toDate) {
+        readLazily(LazyRecords::loadAll);
+        Integer from = fromDate == null ? null : DateTimeValidator.toDateKey(fromDate);
+        Integer to = toDate == null ? null : DateTimeValidator.toDateKey(toDate);
+        return dateIndex.getRange(from, to);
+    }
+
+    /**
+     * Find the visits matching every given condition, looking each condition up in its index where that helps.
+     * @param id is the ID of the patient, or null for visits of any patient
+     * @param fromDate is the earliest date in the format DD-MM-YYYY, or null for no lower bound
+     * @param toDate is the latest date in the format DD-MM-YYYY, or null for no upper bound
+     * @param reason are the words the reason should contain, or null for any reason
+     * @return the positions of the visits in ascending order, starting from 0
+     */
+    public synchronized int[] findPositions(String id, String fromDate, String toDate, String reason) {
+        // Every visit matching the conditions belongs to the given patient, if there is one.
+        readLazily(id != null ? records -> records.loadPatient(id) : LazyRecords::loadAll);
+        PositionQuery query = new PositionQuery();
+        if (id != null) {
+            int patientKey = getPatientKey(id);
+            query.addIndexed(patientIndex.count(patientKey), () -> patientIndex.get(patientKey),
+                    i -> visitList.get(i).getPatientKey() == patientKey);
+        }
+        if (fromDate != null || toDate != null) {
+            Integer from = fromDate == null ? null : DateTimeValidator.toDateKey(fromDate);
+            Integer to = toDate == null ? null : DateTimeValidator.toDateKey(toDate);
+            query.addIndexed(dateIndex.countRange(from, to), () -> dateIndex.getRange(from, to), i -> {
+                int date = DateTimeValidator.toDateKey(visitList.get(i).getDateOfVisit());
+                return (from == null || date >= from) && (to == null || date <= to);
+            });
+        }
+        for (String word : getWords(reason)) {
+            query.addIndexed(reasonIndex.count(word), () -> reasonIndex.get(word),
+                    i -> getWords(visitList.get(i).getReason()).contains(word));
+        }
+        if (!archivedStandIns.isEmpty() || deletedPositions.getTotal() > 0) {
+            query.addCheck(i -> !visitList.get(i).isArchived() && !visitList.get(i).isDeleted());
+        }
+        return query.run(visitList.size());
+    }
+
+    /**
+     * Take the visits matching every given condition, together with the version of the list they were found in.
+     * @param id is the ID of the patient, or null for visits of any patient
+     * @param fromDate is the earliest date in the format DD-MM-YYYY, or null for no lower bound
+     * @param toDate is the latest date in the format DD-MM-YYYY, or null for no upper bound
+     * @param reason are the words the reason should contain, or null for any reason
+     * @return the visits found, in the order of the list
+     */
+    public synchronized Selection<Visit> select(String id, String fromDate, String toDate, String reason) {
+        return new Selection<>(visitList, findPositions(id, fromDate, toDate, reason));
+    }
+
+    /**
+     * Show the visits matching every given condition.
+     * @param ui is the user interface of OneDoc
+     * @param id is the ID of the patient, or null for visits of any patient
+     * @param fromDate is the earliest date in the format DD-MM-YYYY, or null for no lower bound
+     * @param toDate is the latest date in the format DD-MM-YYYY, or null for no upper bound
+     * @param reason are the words the reason should contain, or null for any reason
+     */
+    public void find(UI ui, String id, String fromDate, String toDate, String reason) {
+        Selection<Visit> visits = select(id, fromDate, toDate, reason);
+        if (visits.isEmpty()) {
+            System.out.println("There are no visits matching your search!");
+            return;
+        }
+        System.out.println("Here are the " + visits.size() + " visit(s) matching your search:");
+        for (int i = 0; i < visits.size(); i++) {
+            ui.appendVisit(visits.getPosition(i) + 1, visits.get(i));
+        }
+        ui.flushOutput();
+        ui.printLine();
+    }
+
+    /**
+     * Count the visits on a date through the date index, without going through the visits.
+     * @param date is the date in the format DD-MM-YYYY
+     * @return the number of visits on the date
+     */
+    public synchronized int getVisitCount(String date) {
+        readLazily(records -> records.loadKey(date));
+        return dateIndex.count(DateTimeValidator.toDateKey(date));
+    }
+
+    /**
+     * Show the number of visits in total, today, and on each day of this month with visits.
+     * @param ui is the user interface of OneDoc
+     */
+    public void printReport(UI ui) {
+        LocalDate today = LocalDate.now();
+        LinkedHashMap<String, Integer> monthCounts = new LinkedHashMap<>();
+        int totalCount;
+        int todayCount;
+        synchronized (this) {
+            for (int day = 1; day <= today.lengthOfMonth(); day++) {
+                String date = today.withDayOfMonth(day).format(DATE_FORMATTER);
+                int count = getVisitCount(date);
+                if (count > 0) {
+                    monthCounts.put(date, count);
+                }
+            }
+            totalCount = getTotalVisits();
+            todayCount = getVisitCount(today.format(DATE_FORMATTER));
+        }
+        ui.printVisitReport(totalCount, todayCount, monthCounts);
+    }
+
+    /**
+     * Add a visit from a bulk import without printing it. It is written to disk with the next save of the list.
+     */
+    public synchronized void importVisit(String id, String dateOfVisit, String timeOfVisit, String reason) {
+        append(new Visit(id, dateOfVisit, timeOfVisit, reason));
+        changeTracker.markChanged(visitList.size() - 1);
+    }
+
+    /**
+     * Move the visits before a date out of memory into the archive, leaving a stand-in in each of their positions.
+     * The archive files are on disk before any visit is let go, and the stand-ins are written with the next save.
+     * @param date is the earliest date of the visits kept in memory
+     * @return the number of visits archived
+     * @throws IOException if the archive could not be written, in which case every visit stays in memory
+     */
+    public synchronized int archiveBefore(LocalDate date) throws IOException {
+        if (archive == null) {
+            return 0;
+        }
+        readLazily(LazyRecords::loadAll);
+        int[] positions = dateIndex.getRange(null, DateTimeValidator.toDateKey(date.format(DATE_FORMATTER)) - 1);
+        if (positions.length == 0) {
+            return 0;
+        }
+        TreeMap<String, TreeMap<Integer, Visit>> visitsByPatient = new TreeMap<>();
+        for (int position : positions) {
+            Visit visit = visitList.get(position);
+            visitsByPatient.computeIfAbsent(visit.getId(), key -> new TreeMap<>()).put(position, visit);
+        }
+        for (Map.Entry<String, TreeMap<Integer, Visit>> patientVisits : visitsByPatient.entrySet()) {
+            archive.add(patientVisits.getKey(), patientVisits.getValue());
+        }
+
+        for (int position : positions) {
+            Visit visit = visitList.get(position);
+            slotIndex.clear(DateTimeValidator.toDateKey(visit.getDateOfVisit()));
+            visitList = visitList.set(position, getStandIn(visit.getId()));
+            changeTracker.markChanged(position);
+        }
+        patientIndex.removeAll(positions);
+        dateIndex.removeAll(positions);
+        reasonIndex.removeAll(positions);
+        return positions.length;
+    }
+
+    /**
+     * Retrieve a visit, reading it back from the archive if it was archived.
+     * @param visit is the visit as held in the list
+     * @param position is the position of the visit in the list
+     * @return the visit, or null if it was archived and could not be read back
+     */
+    private Visit getVisit(Visit visit, int position) {
+        VisitArchive currentArchive = archive;
+        if (!visit.isArchived()) {
+            return visit;
+        }
+        return currentArchive == null ? null : currentArchive.getVisit(visit.getId(), position);
+    }
+
+    public ChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * Delete a visit, leaving a tombstone in its position. The tombstone is written with the next save of the list.
+     * @param ui is the user interface of OneDoc
+     * @param index is the number of the visit
+     */
+    public synchronized void deleteVisit(UI ui, int index) {
+        try {
+            Visit visit = deleteVisit(index);
+            ui.printMessageAndObject(visit, UI.VISIT_DELETED, index - 1, UI.VISIT);
+        } catch (OneDocException e) {
+            UI.printError(e.getMessage());
+        }
+    }
+
+    /**
+     * Delete a visit without printing it, leaving a tombstone in its position.
+     * @param index is the number of the visit
+     * @return the visit deleted
+     * @throws OneDocException of type NOT_FOUND or ARCHIVED if the visit cannot be deleted
+     */
+    public synchronized Visit deleteVisit(int index) throws OneDocException {
+        int position = toChangeablePosition(index);
+        Visit visit = visitList.get(position);
+        setDeleted(position);
+        return visit;
+    }
+
+    /**
+     * Delete every visit of a patient, archived ones included, going only through the visits of the patient.
+     * @param id is the ID of the patient
+     * @return the number of visits deleted
+     */
+    public synchronized int deletePatientVisits(String id) {
+        int[] positions = getPatientPositions(id);
+        for (int position : positions) {
+            setDeleted(position);
+        }
+        int count = positions.length;
+        VisitArchive currentArchive = archive;
+        Visit standIn = archivedStandIns.remove(getPatientKey(id));
+        if (currentArchive != null && standIn != null) {
+            // The archive files stay as they are, as an archived visit is only read where its stand-in is.
+            for (int position : currentArchive.getVisits(id).keySet()) {
+                if (position < visitList.size() && visitList.get(position).isArchived()) {
+                    visitList = visitList.set(position, Visit.deleted(standIn.getPatientKey()));
+                    deletedPositions.add(position, 1);
+                    changeTracker.markChanged(position);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void setDeleted(int position) {
+        Visit visit = visitList.get(position);
+        removeFromIndexes(position, visit);
+        visitList = visitList.set(position, Visit.deleted(visit.getPatientKey()));
+        deletedPositions.add(position, 1);
+        changeTracker.markChanged(position);
+    }
+
+    public synchronized void editReason(UI ui, int index, String reason) {
+        try {
+            Visit visit = editReason(index, reason);
+            ui.printMessageAndObject(visit, UI.EDIT_VISIT_REASON, index - 1, UI.VISIT);
+        } catch (OneDocException e) {
+            UI.printError(e.getMessage());
+        }
+    }
+
+    /**
+     * Change the reason of a visit without printing it.
+     * @param index is the number of the visit
+     * @param reason is the new reason
+     * @return the visit as changed
+     * @throws OneDocException of type NOT_FOUND or ARCHIVED if the visit cannot be changed
+     */
+    public synchronized Visit editReason(int index, String reason) throws OneDocException {
+        assert reason != null : "reason should not be null, use deleteReason instead";
+        int position = toChangeablePosition(index);
+        setReason(position, reason);
+        changeTracker.markChanged(position);
+        return visitList.get(position);
+    }
+
+    public synchronized void deleteReason(UI ui, int index) {
+        try {
+            Visit visit = deleteReason(index);
+            ui.printMessageAndObject(visit, UI.DELETE_VISIT_REASON, index - 1, UI.VISIT);
+        } catch (OneDocException e) {
+            UI.printError(e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the reason of a visit without printing it.
+     * @param index is the number of the visit
+     * @return the visit as changed
+     * @throws OneDocException of type NOT_FOUND or ARCHIVED if the visit cannot be changed, or INVALID_INPUT if it
+     *     has no reason
+     */
+    public synchronized Visit deleteReason(int index) throws OneDocException {
+        int position = toChangeablePosition(index);
+        if (visitList.get(position).getReason().equals("")) {
+            throw new OneDocException("Visit #" + index + " already has no reason stated!");
+        }
+        setReason(position, "");
+        changeTracker.markChanged(position);
+        return visitList.get(position);
+    }
+
+    /**
+     * Retrieve a visit without printing it, reading it back from the archive if it has been archived.
+     * @param index is the number of the visit
+     * @return the visit, or null if it is archived and could not be read back
+     * @throws OneDocException of type NOT_FOUND if there is no such visit
+     */
+    public Visit get(int index) throws OneDocException {
+        VisitColumns visits = getVisitsWith(index - 1);
+        if (index < 1 || index > visits.size() || visits.get(index - 1).isDeleted()) {
+            throw new OneDocException(OneDocException.Type.NOT_FOUND, getNoSuchVisitMessage(index));
+        }
+        return getVisit(visits.get(index - 1), index - 1);
+    }
+
+    /**
+     * Find the position of a visit that can be changed from its number.
+     * @throws OneDocException of type NOT_FOUND if there is no such visit, or ARCHIVED if it has been archived
+     */
+    private int toChangeablePosition(int visitNumber) throws OneDocException {
+        int position = toPosition(visitNumber);
+        if (position < 0) {
+            throw new OneDocException(OneDocException.Type.NOT_FOUND, getNoSuchVisitMessage(visitNumber));
+        }
+        if (visitList.get(position).isArchived()) {
+            throw new OneDocException(OneDocException.Type.ARCHIVED,
+                    "Visit #" + visitNumber + " has been archived and can no longer be changed!");
+        }
+        return position;
+    }
+
+    private static String getNoSuchVisitMessage(int visitNumber) {
+        return "There is no such visit in the system with index " + visitNumber + "!";
+    }
+
+    /**
+     * Find the position of a visit from its number, which is the ID the visit is known by. Visits are numbered from 1
+     * in the order they are added, and as a visit keeps its position for good, even once archived, its number is never
+     * given to another visit.
+     * @param visitNumber is the number of the visit
+     * @return the position of the visit, which has been read, or -1 if no visit has the number or it was deleted
+     */
+    private int toPosition(int visitNumber) {
+        int position = visitNumber - 1;
+        if (position < 0 || position >= visitList.size()) {
+            return -1;
+        }
+        readPosition(position);
+        return visitList.get(position).isDeleted() ? -1 : position;
+    }
+
     public boolean isEmpty() {
-        return visitList.size() == 0;
+        return getTotalVisits() == 0;
     }
 
-    public int getTotalVisits() {
-        return visitList.size();
+    /**
+     * Retrieve the number of visits, archived ones included and deleted ones left out.
+     */
+    public synchronized int getTotalVisits() {
+        return visitList.size() - deletedPositions.getTotal() - getPendingDeletedCount();
+    }
+
+    /**
+     * Retrieve the number of deleted visits that are still to be read from the data file.
+     */
+    private int getPendingDeletedCount() {
+        return lazyRecords == null ? 0 : lazyRecords.getPendingDeletedCount();
     }
 
     public void viewAll(UI ui) {
+        viewAll(ui, null, false, 0, 0);
+    }
+
+    /**
+     * Show the visits, or a page of them, in the order they were added or sorted by date and time. Sorted visits are
+     * read from the date index, which only holds the visits still in memory, so archived visits are left out and only
+     * counted. Only the visits on the page are read from the data file if they have not been read yet.
+     * @param ui is the user interface of OneDoc
+     * @param sortField is SORT_BY_DATE, or null for the order the visits were added in
+     * @param isDescending is true to sort from the latest visit back
+     * @param page is the page to show, starting from 1, or 0 for every visit
+     * @param pageSize is the number of visits on each page
+     */
+    public void viewAll(UI ui, String sortField, boolean isDescending, int page, int pageSize) {
         if (isEmpty()) {
             System.out.println("There are no visits in the system right now!");
             return;
         }
+        int total = countVisits(sortField);
+        int pageCount = page > 0 ? (int) ((total + (long) pageSize - 1) / pageSize) : 0;
+        if (page > pageCount) {
+            ui.printNoSuchPage(page, pageCount);
+            return;
+        }
+        Selection<Visit> visits = page > 0
+                ? select(sortField, isDescending, (page - 1) * pageSize, pageSize)
+                : select(sortField, isDescending, 0, Integer.MAX_VALUE);
         System.out.println("Here are the list of visits in the system:");
-        for (int i = 0; i < getTotalVisits(); i++) {
-            ui.printLine();
-            System.out.println("\tVisit #" + (i + 1));
-            System.out.println(visitList.get(i));
+        for (int i = 0; i < visits.size(); i++) {
+            ui.appendVisit(visits.getPosition(i) + 1, getVisit(visits.get(i), visits.getPosition(i)));
         }
+        ui.flushOutput();
         ui.printLine();
+        int archivedCount = SORT_BY_DATE.equals(sortField) ? getTotalVisits() - total : 0;
+        if (archivedCount > 0) {
+            ui.printArchivedVisitsNotShown(archivedCount);
+        }
+        if (page > 0) {
+            ui.printPageNumber(page, pageCount);
+        }
+    }
+
+    /**
+     * Count the visits viewall goes through, which are the visits with a date when they are sorted by date, whether
+     * they have been read from the data file or not.
+     */
+    private synchronized int countVisits(String sortField) {
+        if (!SORT_BY_DATE.equals(sortField)) {
+            return getTotalVisits();
+        }
+        int total = dateIndex.countRange(null, null);
+        for (int count : countPendingByDate().values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Count the visits still to be read from the data file by the key of their date, leaving out the deleted and
+     * archived visits, which have no date.
+     */
+    private TreeMap<Integer, Integer> countPendingByDate() {
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        if (lazyRecords == null) {
+            return counts;
+        }
+        for (Map.Entry<String, Integer> pending : lazyRecords.countPendingByKey().entrySet()) {
+            int dateKey = DateTimeValidator.toDateKey(pending.getKey());
+            if (dateKey >= 0) {
+                counts.merge(dateKey, pending.getValue(), Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Take a run of the visits, in the order they were added or in the order of the date index, with the visits on the
+     * same date ordered by time. Only the dates the run reaches into are sorted by time, and only the visits in the run
+     * are read from the data file.
+     * @param sortField is SORT_BY_DATE, or null for the order the visits were added in
+     * @param isDescending is true to sort from the latest visit back
+     * @param skip is the number of visits before the run
+     * @param count is the largest number of visits to take
+     * @return the visits taken, in the order they are shown
+     */
+    public synchronized Selection<Visit> select(String sortField, boolean isDescending, int skip, int count) {
+        int[] positions;
+        if (SORT_BY_DATE.equals(sortField)) {
+            readDatesOfRun(isDescending, skip, count);
+            VisitColumns visits = visitList;
+            Comparator<Integer> byTime = Comparator.comparingInt(
+                    position -> DateTimeValidator.toMinuteOfDay(visits.get(position).getTimeOfVisit()));
+            positions = dateIndex.getSorted(isDescending, skip, count, byTime);
+        } else {
+            int[] livePositions = getLivePositions(visitList, skip, count);
+            readLazily(records -> records.loadPositions(livePositions));
+            positions = livePositions;
+        }
+        return new Selection<>(visitList, positions);
+    }
+
+    /**
+     * Read the visits still in the data file on the dates a run of the visits sorted by date reaches into. The dates
+     * before the run are only counted, and the dates after it are left to be read later.
+     */
+    private void readDatesOfRun(boolean isDescending, int skip, int count) {
+        TreeMap<Integer, Integer> pendingCounts = countPendingByDate();
+        if (pendingCounts.isEmpty()) {
+            return;
+        }
+        TreeMap<Integer, Integer> dateCounts = new TreeMap<>(pendingCounts);
+        for (int dateKey : dateIndex.getKeys()) {
+            dateCounts.merge(dateKey, dateIndex.count(dateKey), Integer::sum);
+        }
+        ArrayList<String> reachedDates = new ArrayList<>();
+        long end = (long) skip + count;
+        long before = 0;
+        for (Map.Entry<Integer, Integer> date : (isDescending ? dateCounts.descendingMap() : dateCounts).entrySet()) {
+            if (before >= end) {
+                break;
+            }
+            before += date.getValue();
+            if (before > skip && pendingCounts.containsKey(date.getKey())) {
+                reachedDates.add(DateTimeValidator.toDate(date.getKey()));
+            }
+        }
+        readLazily(records -> records.loadKeys(reachedDates));
+    }
+
+    /**
+     * Take the positions of a run of the visits in the order they were added. Whole blocks of positions before the run
+     * are skipped by their number of deleted visits, read or still in the data file, without making any visit.
+     */
+    private int[] getLivePositions(VisitColumns visits, int skip, int count) {
+        LazyRecords currentRecords = lazyRecords;
+        IntUnaryOperator deletedInBlock = block -> deletedPositions.get(block)
+                + (currentRecords == null ? 0 : currentRecords.getPendingDeletedCount(block));
+        boolean hasDeleted = deletedPositions.getTotal() + getPendingDeletedCount() > 0;
+        return BlockCounter.getUnmarkedRun(visits.size(), skip, count, hasDeleted ? deletedInBlock : null,
+                position -> isDeleted(visits, currentRecords, position));
+    }
+
+    private static boolean isDeleted(VisitColumns visits, LazyRecords lazyRecords, int position) {
+        Visit visit = visits.get(position);
+        if (visit == null) {
+            return lazyRecords != null && lazyRecords.isPendingDeleted(position);
+        }
+        return visit.isDeleted();
     }
 
     public void viewPatient(UI ui, String id) {
@@ -103,36 +940,61 @@ public class VisitList {
             System.out.println("There are no visits in the system right now!");
             return;
         }
-        int noOfPatientVisits = 0;
-        for (int i = 0; i < getTotalVisits(); i++) {
-            if (visitList.get(i).getId().equalsIgnoreCase(id)) {
-                if (noOfPatientVisits == 0) {
-                    System.out.println("Here are the list of visits for Patient with ID: " + id);
+        Selection<Visit> visits = selectPatient(id);
+        TreeMap<Integer, Visit> patientVisits = new TreeMap<>();
+        VisitArchive currentArchive = archive;
+        if (currentArchive != null && hasArchivedVisits(id)) {
+            VisitColumns currentVisits = visitList;
+            for (Map.Entry<Integer, Visit> archivedVisit : currentArchive.getVisits(id).entrySet()) {
+                int position = archivedVisit.getKey();
+                if (position < currentVisits.size() && currentVisits.get(position).isArchived()) {
+                    patientVisits.put(position, archivedVisit.getValue());
                 }
-                noOfPatientVisits++;
-                ui.printLine();
-                System.out.println("\tVisit #" + (i + 1));
-                System.out.println(visitList.get(i));
             }
         }
-        if (noOfPatientVisits == 0) {
+        for (int i = 0; i < visits.size(); i++) {
+            patientVisits.put(visits.getPosition(i), visits.get(i));
+        }
+        if (!patientVisits.isEmpty()) {
+            System.out.println("Here are the list of visits for Patient with ID: " + id);
+        }
+        for (Map.Entry<Integer, Visit> patientVisit : patientVisits.entrySet()) {
+            ui.appendVisit(patientVisit.getKey() + 1, patientVisit.getValue());
+        }
+        ui.flushOutput();
+        if (patientVisits.isEmpty()) {
             System.out.println("Sorry, Patient with ID " + id + " has no visits recorded yet!");
         }
         ui.printLine();
     }
 
     public void viewVisit(UI ui, int index) {
-        if (isEmpty()) {
+        VisitColumns visits = getVisitsWith(index - 1);
+        if (visits.isEmpty()) {
             System.out.println("There are no visits in the system right now!");
             return;
         }
-        if (index < 1 || index > getTotalVisits()) {
-            System.out.println("There is no such visit in the system with index " + index + "!");
+        if (index < 1 || index > visits.size() || visits.get(index - 1).isDeleted()) {
+            UI.printError(getNoSuchVisitMessage(index));
         } else {
             System.out.println("Here is Visit #" + index);
             ui.printLine();
-            System.out.println(visitList.get(index - 1));
+            ui.printVisit(index, getVisit(visits.get(index - 1), index - 1));
         }
         ui.printLine();
     }
+
+    /**
+     * Retrieve the latest version of the list once the visit at a position, if there is one, has been read.
+     */
+    private synchronized VisitColumns getVisitsWith(int index) {
+        readPosition(index);
+        return visitList;
+    }
+
+    private void readPosition(int index) {
+        if (index >= 0 && index < visitList.size()) {
+            readLazily(records -> records.loadPosition(index));
+        }
+    }
 }
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvImporterTest {
+
+    @Test
+    void parse_quotedFields_commasAndQuotesKept() {
+        assertArrayEquals(new String[] {"S1", "fever, cough", "say \"ah\""},
+                Csv.parse("S1,\"fever, cough\",\"say \"\"ah\"\"\""));
+        assertNull(Csv.parse("S1,\"unclosed"));
+    }
+
+    @Test
+    void appendRecord_fieldsNeedingQuotes_roundTrip() throws IOException {
+        StringBuilder output = new StringBuilder();
+        Csv.appendRecord(output, "S1", "fever, cough", "say \"ah\"");
+        assertArrayEquals(new String[] {"S1", "fever, cough", "say \"ah\""}, Csv.parse(output.toString().trim()));
+    }
+
+    @Test
+    void importPatients_invalidAndDuplicateRows_reported() throws IOException, OneDocException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "patients.csv");
+        Files.write(file.toPath(), ("name,gender,dob,id\n"
+                + "Alice,F,01-02-1990,s1\n"
+                + "Bob,M,31-02-1990,S2\n"
+                + "Alice Again,F,01-02-1990,S1\n").getBytes(StandardCharsets.UTF_8));
+        PatientList patientList = new PatientList();
+        CsvImporter importer = new CsvImporter(patientList, new VisitList(), new PrescriptionList(),
+                new Storage(new File(directory, "data")));
+
+        CsvImporter.ImportResult result = importer.importPatients(file);
+
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals("S1", patientList.getPatient(0).getId());
+        List<String> report = Files.readAllLines(result.getReportFile().toPath());
+        assertEquals(3, report.size());
+        assertTrue(report.get(1).startsWith("3,"));
+        assertTrue(report.get(2).startsWith("4,"));
+    }
+
+    @Test
+    void importVisits_unknownPatient_rejected() throws IOException, OneDocException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visits.csv");
+        Files.write(file.toPath(), "S1,01-03-2024,10:00\nS9,02-03-2024,10:00,fever\n".getBytes(StandardCharsets.UTF_8));
+        VisitList visitList = new VisitList();
+
+        CsvImporter.ImportResult result = newImporter(directory, visitList).importVisits(file);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        List<String> report = Files.readAllLines(result.getReportFile().toPath());
+        assertEquals(2, report.size());
+        assertArrayEquals(new String[] {"2", "That patient ID doesn't exist!", "S9,02-03-2024,10:00,fever"},
+                Csv.parse(report.get(1)));
+        assertEquals(1, visitList.getTotalVisits());
+    }
+
+    @Test
+    void importVisits_allRowsValid_noReport() throws IOException, OneDocException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visits.csv");
+        Files.write(file.toPath(), "S1,01-03-2024,10:00\nS1,02-03-2024,10:00,fever\n".getBytes(StandardCharsets.UTF_8));
+        VisitList visitList = new VisitList();
+
+        CsvImporter.ImportResult result = newImporter(directory, visitList).importVisits(file);
+
+        assertEquals(2, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertFalse(result.getReportFile().exists());
+        assertEquals("fever", visitList.getVisits().get(1).getReason());
+    }
+
+    /**
+     * Create an importer for a list with the patient S1, saving into a data folder within a temporary folder.
+     */
+    private static CsvImporter newImporter(File directory, VisitList visitList) {
+        PatientList patientList = new PatientList();
+        patientList.loadPatient("Alice", "01-02-1990", "F", "S1");
+        return new CsvImporter(patientList, visitList, new PrescriptionList(),
+                new Storage(new File(directory, "data")));
+    }
+}
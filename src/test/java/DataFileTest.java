@@ -0,0 +1,300 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataFileTest {
+
+    private static DataFile.Records recordsOf(ArrayList<String> patientIds) {
+        return new DataFile.Records() {
+            @Override
+            public int size() {
+                return patientIds.size();
+            }
+
+            @Override
+            public String getPatientId(int index) {
+                return patientIds.get(index);
+            }
+
+            @Override
+            public String[] getFields(int index) {
+                return new String[] {patientIds.get(index)};
+            }
+        };
+    }
+
+    private static ArrayList<String> load(DataFile dataFile) {
+        ArrayList<String> loaded = new ArrayList<>();
+        dataFile.load(loaded::ensureCapacity, (index, inputs, isTrusted) -> {
+            if (index == loaded.size()) {
+                loaded.add(inputs[0]);
+            } else {
+                loaded.set(index, inputs[0]);
+            }
+            return true;
+        });
+        return loaded;
+    }
+
+    @Test
+    void getShard_differentCase_sameShard() {
+        assertEquals(DataFile.getShard("s123a", 8), DataFile.getShard("S123A", 8));
+        int shard = DataFile.getShard("T1234", 8);
+        assertTrue(shard >= 0 && shard < 8);
+    }
+
+    @Test
+    void save_changedRecords_appendedToPatch() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        ArrayList<String> patientIds = new ArrayList<>();
+        patientIds.add("P1");
+        patientIds.add("P2");
+        ChangeTracker changeTracker = new ChangeTracker();
+        DataFile dataFile = new DataFile(file, 1, 1, false);
+        dataFile.requestRewrite();
+        dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+
+        patientIds.set(1, "P3");
+        changeTracker.markChanged(1);
+        dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+
+        assertTrue(new File(directory, "visit.txt.patch").exists());
+        assertEquals(patientIds, load(new DataFile(file, 1, 1, false)));
+    }
+
+    @Test
+    void save_rewriteStopsHalfway_oldDataFileKept() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        ArrayList<String> patientIds = new ArrayList<>(Arrays.asList("P1", "P2"));
+        DataFile dataFile = new DataFile(file, 1, 1, false);
+        dataFile.requestRewrite();
+        dataFile.save(patientIds, new ChangeTracker(), recordsOf(patientIds));
+
+        ArrayList<String> newPatientIds = new ArrayList<>(Arrays.asList("P3", "P4"));
+        DataFile.Records failingRecords = new DataFile.Records() {
+            @Override
+            public int size() {
+                return newPatientIds.size();
+            }
+
+            @Override
+            public String getPatientId(int index) {
+                return newPatientIds.get(index);
+            }
+
+            @Override
+            public String[] getFields(int index) {
+                if (index == 1) {
+                    throw new IllegalStateException("stopped halfway");
+                }
+                return new String[] {newPatientIds.get(index)};
+            }
+        };
+        dataFile.requestRewrite();
+        assertThrows(IllegalStateException.class,
+                () -> dataFile.save(newPatientIds, new ChangeTracker(), failingRecords));
+
+        assertFalse(new File(directory, "visit.txt.tmp").exists());
+        assertEquals(patientIds, load(new DataFile(file, 1, 1, false)));
+    }
+
+    @Test
+    void save_sharded_roundTripKeepsOrder() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        ArrayList<String> patientIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            patientIds.add("P" + i);
+        }
+        DataFile dataFile = new DataFile(file, 1, 4, false);
+        dataFile.requestRewrite();
+        dataFile.save(patientIds, new ChangeTracker(), recordsOf(patientIds));
+
+        assertFalse(file.exists());
+        assertTrue(new File(directory, "visit.txt.shard3").exists());
+        assertEquals(patientIds, load(new DataFile(file, 1, 4, false)));
+    }
+
+    @Test
+    void save_shardedFirstSaveOfFewRecords_restartKeepsLayout() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        ArrayList<String> patientIds = new ArrayList<>(Collections.singletonList("P1"));
+        ChangeTracker changeTracker = new ChangeTracker();
+        changeTracker.markChanged(0);
+        new DataFile(file, 1, 4, false).save(patientIds, changeTracker, recordsOf(patientIds));
+
+        for (int shard = 0; shard < 4; shard++) {
+            assertTrue(new File(directory, "visit.txt.shard" + shard).exists());
+        }
+        DataFile restartedFile = new DataFile(file, 1, 4, false);
+        assertEquals(patientIds, load(restartedFile));
+        assertFalse(restartedFile.isRewritePending());
+    }
+
+    @Test
+    void save_binary_roundTripKeepsSeparatorsInFields() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.bin");
+        ArrayList<String> patientIds = new ArrayList<>();
+        patientIds.add("P1");
+        patientIds.add("fever | cough");
+        ChangeTracker changeTracker = new ChangeTracker();
+        DataFile dataFile = new DataFile(file, 1, 1, true);
+        dataFile.requestRewrite();
+        dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+
+        patientIds.set(0, "h\u00e9adache");
+        changeTracker.markChanged(0);
+        dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+
+        assertTrue(new File(directory, "visit.bin.patch").exists());
+        assertEquals(patientIds, load(new DataFile(file, 1, 1, true)));
+    }
+
+    @Test
+    void load_textAsBinary_reportedInvalid() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        Files.write(file.toPath(), "P1 | fever | 01-01-2020 | 10:00".getBytes());
+
+        DataFile dataFile = new DataFile(file, 4, 1, true);
+        DataFile.LoadResult result = dataFile.load(count -> { }, (index, inputs, isTrusted) -> true);
+        assertTrue(result.isInvalid());
+        assertFalse(result.isLoaded());
+    }
+
+    @Test
+    void load_checksumMatches_trustedUntilEdited() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        ArrayList<String> patientIds = new ArrayList<>();
+        patientIds.add("P1");
+        patientIds.add("P2");
+        DataFile dataFile = new DataFile(file, 1, 1, false);
+        dataFile.requestRewrite();
+        dataFile.save(patientIds, new ChangeTracker(), recordsOf(patientIds));
+
+        DataFile trustedFile = new DataFile(file, 1, 1, false);
+        assertTrue(trustedFile.load(count -> { }, (index, inputs, isTrusted) -> isTrusted).isTrusted());
+        assertFalse(trustedFile.isRewritePending());
+
+        Files.write(file.toPath(), "P1\nP9\n".getBytes());
+        DataFile editedFile = new DataFile(file, 1, 1, false);
+        DataFile.LoadResult result = editedFile.load(count -> { }, (index, inputs, isTrusted) -> !isTrusted);
+        assertFalse(result.isTrusted());
+        assertTrue(result.isLoaded());
+        assertTrue(editedFile.isRewritePending());
+    }
+
+    @Test
+    void loadLazily_patientLoaded_onlyTheirRecordsRead() throws IOException {
+        for (boolean isBinary : new boolean[] {false, true}) {
+            File directory = Files.createTempDirectory("onedoc").toFile();
+            File file = new File(directory, isBinary ? "visit.bin" : "visit.txt");
+            ArrayList<String> patientIds = new ArrayList<>();
+            patientIds.add("P1");
+            patientIds.add("P2");
+            patientIds.add("p1");
+            patientIds.add("P3");
+            ChangeTracker changeTracker = new ChangeTracker();
+            DataFile dataFile = new DataFile(file, 1, 1, isBinary);
+            dataFile.requestRewrite();
+            dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+            patientIds.set(3, "P4");
+            changeTracker.markChanged(3);
+            dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+
+            ArrayList<String> loaded = new ArrayList<>();
+            DataFile lazyFile = new DataFile(file, 1, 1, isBinary);
+            LazyRecords lazyRecords = lazyFile.loadLazily(count -> loaded.addAll(Collections.nCopies(count, null)),
+                (index, inputs, isTrusted) -> {
+                    loaded.set(index, inputs[0]);
+                    return true;
+                }, -1, fields -> false).getLazyRecords();
+            assertEquals(Arrays.asList(null, null, null, "P4"), loaded);
+
+            lazyRecords.loadPatient("P1");
+            assertEquals(Arrays.asList("P1", null, "p1", "P4"), loaded);
+
+            // Rewriting the data file reads the records left in it first.
+            lazyFile.requestRewrite();
+            lazyFile.save(loaded, new ChangeTracker(), new DataFile.Records() {
+                @Override
+                public int size() {
+                    return loaded.size();
+                }
+
+                @Override
+                public String getPatientId(int index) {
+                    return loaded.get(index);
+                }
+
+                @Override
+                public String[] getFields(int index) {
+                    return new String[] {loaded.get(index)};
+                }
+
+                @Override
+                public void loadAll() {
+                    lazyRecords.loadAll();
+                }
+            });
+            assertTrue(lazyRecords.isDone());
+            assertEquals(patientIds, loaded);
+            assertEquals(patientIds, load(new DataFile(file, 1, 1, isBinary)));
+        }
+    }
+
+    @Test
+    void loadLazily_deletedRecords_countedUntilRead() throws IOException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visit.txt");
+        ArrayList<String> patientIds = new ArrayList<>(Arrays.asList("P1", "D2", "D3", "D4"));
+        ChangeTracker changeTracker = new ChangeTracker();
+        DataFile dataFile = new DataFile(file, 1, 1, false);
+        dataFile.requestRewrite();
+        dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+        patientIds.set(3, "P4");
+        changeTracker.markChanged(3);
+        dataFile.save(patientIds, changeTracker, recordsOf(patientIds));
+
+        LazyRecords lazyRecords = new DataFile(file, 1, 1, false).loadLazily(count -> { },
+            (index, inputs, isTrusted) -> true, -1, fields -> fields[0].startsWith("D")).getLazyRecords();
+        // The deleted record in the data file was replaced by the patch file, so it is not counted.
+        assertEquals(2, lazyRecords.getPendingDeletedCount());
+
+        lazyRecords.loadPatient("D2");
+        assertEquals(1, lazyRecords.getPendingDeletedCount());
+        lazyRecords.loadAll();
+        assertEquals(0, lazyRecords.getPendingDeletedCount());
+    }
+
+    @Test
+    void loadData_shortVisitRow_reportedInvalid() throws IOException {
+        File folder = Files.createTempDirectory("onedoc").toFile();
+        Files.write(new File(folder, "patient.txt").toPath(), Collections.singletonList("Alice | 01-02-1990 | F | S1"));
+        Files.write(new File(folder, "visit.txt").toPath(),
+                Arrays.asList("garbage line", "S1 | fever | 01-03-2024 | 10:00"));
+        PatientList patientList = new PatientList();
+        VisitList visitList = new VisitList();
+
+        new Storage(folder).loadData(patientList, visitList, new PrescriptionList());
+
+        assertEquals(1, patientList.getTotalNumberofPatients());
+        assertEquals(1, visitList.getTotalVisits());
+        assertEquals("fever", visitList.getVisits().get(0).getReason());
+    }
+}
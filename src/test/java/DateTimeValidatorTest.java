@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateTimeValidatorTest {
+
+    @Test
+    void validateVisitDate_everyDayFrom2000To2050_valid() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+        for (LocalDate date = LocalDate.of(2000, 1, 1); date.getYear() <= 2050; date = date.plusDays(1)) {
+            assertNull(DateTimeValidator.validateVisitDate(date.format(formatter)));
+        }
+    }
+
+    @Test
+    void validateVisitDate_invalidDates_errorMessages() {
+        assertEquals(UI.DATE_DOESNT_EXIST, DateTimeValidator.validateVisitDate("29-02-2023"));
+        assertEquals(UI.DATE_DOESNT_EXIST, DateTimeValidator.validateVisitDate("31-04-2024"));
+        assertEquals(UI.DATE_DOESNT_EXIST, DateTimeValidator.validateVisitDate("00-01-2024"));
+        assertEquals(UI.DATE_DOESNT_EXIST, DateTimeValidator.validateVisitDate("01-13-2024"));
+        assertEquals(UI.INVALID_YEAR, DateTimeValidator.validateVisitDate("01-01-1999"));
+        assertEquals(UI.INVALID_DATE_FORMAT, DateTimeValidator.validateVisitDate("1-1-2024"));
+        assertEquals(UI.INVALID_DATE_FORMAT, DateTimeValidator.validateVisitDate("aa-01-2024"));
+    }
+
+    @Test
+    void isLeapYear_centuries_gregorianRules() {
+        assertTrue(DateTimeValidator.isLeapYear(2000));
+        assertTrue(DateTimeValidator.isLeapYear(2024));
+        assertFalse(DateTimeValidator.isLeapYear(1900));
+        assertFalse(DateTimeValidator.isLeapYear(2023));
+    }
+
+    @Test
+    void validateBirthDate_tooEarlyOrFuture_invalid() {
+        assertNull(DateTimeValidator.validateBirthDate("29-02-1996"));
+        assertEquals(UI.INVALID_DOB, DateTimeValidator.validateBirthDate("31-12-1921"));
+        LocalDate today = LocalDate.now();
+        LocalDate endOfMonth = today.withDayOfMonth(today.lengthOfMonth());
+        if (endOfMonth.isAfter(today)) {
+            String laterThisMonth = endOfMonth.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+            assertEquals(UI.INVALID_DOB, DateTimeValidator.validateBirthDate(laterThisMonth));
+        }
+    }
+
+    @Test
+    void validateTime_boundaries() {
+        assertNull(DateTimeValidator.validateTime("00:00"));
+        assertNull(DateTimeValidator.validateTime("23:59"));
+        assertEquals(UI.INVALID_TIME, DateTimeValidator.validateTime("24:00"));
+        assertEquals(UI.INVALID_TIME, DateTimeValidator.validateTime("12:60"));
+        assertEquals(UI.INVALID_TIME, DateTimeValidator.validateTime("9:30"));
+        assertEquals(UI.INVALID_TIME, DateTimeValidator.validateTime("12-30"));
+    }
+
+    /**
+     * Time the validator against the split and parse checks it replaced, on rows of a visit date, a visit time and a
+     * birth date. Run it with ./gradlew test -Pbenchmark --tests DateTimeValidatorTest.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "onedoc.benchmark", matches = "true")
+    void benchmark_rowsOfDatesAndTimes_fasterThanParsing() {
+        int rowCount = 2_000_000;
+        String[][] rows = new String[rowCount][];
+        Random random = new Random(42);
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = new String[] {getRandomDate(random, 1995), getRandomTime(random), getRandomDate(random, 1915)};
+        }
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int oldValid = 0;
+            for (String[] row : rows) {
+                oldValid += isRowValidByParsing(row) ? 1 : 0;
+            }
+            long oldNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            int newValid = 0;
+            for (String[] row : rows) {
+                newValid += isRowValid(row) ? 1 : 0;
+            }
+            long newNanos = System.nanoTime() - start;
+            assertEquals(oldValid, newValid);
+            System.out.printf("Round %d: %d ns per row before, %d ns per row after%n", round + 1,
+                    oldNanos / rowCount, newNanos / rowCount);
+        }
+    }
+
+    /**
+     * Make a date in the format DD-MM-YYYY, which may not exist, within 60 years of a given year.
+     */
+    private static String getRandomDate(Random random, int firstYear) {
+        return String.format("%02d-%02d-%04d", 1 + random.nextInt(31), 1 + random.nextInt(12),
+                firstYear + random.nextInt(60));
+    }
+
+    private static String getRandomTime(Random random) {
+        return String.format("%02d:%02d", random.nextInt(25), random.nextInt(61));
+    }
+
+    private static boolean isRowValid(String[] row) {
+        return DateTimeValidator.validateVisitDate(row[0]) == null && DateTimeValidator.validateTime(row[1]) == null
+                && DateTimeValidator.validateBirthDate(row[2]) == null;
+    }
+
+    /**
+     * Check a row the way Parser did before DateTimeValidator, for the well-formed rows the benchmark makes.
+     */
+    private static boolean isRowValidByParsing(String[] row) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-uuuu", Locale.US)
+                .withResolverStyle(ResolverStyle.STRICT);
+        try {
+            String[] visitDate = row[0].split("-");
+            formatter.parse(row[0]);
+            int visitYear = Integer.parseInt(visitDate[2]);
+            if (visitYear < 2000 || visitYear > 2050) {
+                return false;
+            }
+            String[] time = row[1].split(":");
+            int hour = Integer.parseInt(time[0]);
+            int minute = Integer.parseInt(time[1]);
+            if (hour > 23 || minute > 59) {
+                return false;
+            }
+            String[] birthDate = row[2].split("-");
+            int day = Integer.parseInt(birthDate[0]);
+            int month = Integer.parseInt(birthDate[1]);
+            int year = Integer.parseInt(birthDate[2]);
+            formatter.parse(row[2]);
+            return !((day > LocalDate.now().getDayOfMonth() && month >= LocalDate.now().getMonthValue()
+                    && year >= LocalDate.now().getYear()) || year < 1922);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return false;
+        }
+    }
+}
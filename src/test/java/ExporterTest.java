@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExporterTest {
+
+    private static VisitList getVisitList() {
+        VisitList visitList = new VisitList();
+        visitList.loadVisit("S1", "15-01-2024", "10:00", "fever");
+        visitList.loadVisit("S2", "20-02-2024", "11:00", "");
+        visitList.loadVisit("S1", "10-03-2024", "09:00", "cough, cold");
+        visitList.loadVisit("S1", "01-05-2024", "09:00", "");
+        return visitList;
+    }
+
+    @Test
+    void getDatePositions_range_inclusiveAndSorted() {
+        VisitList visitList = getVisitList();
+        assertArrayEquals(new int[] {1, 2}, visitList.getDatePositions("20-02-2024", "10-03-2024"));
+        assertArrayEquals(new int[] {2, 3}, visitList.getDatePositions("01-03-2024", null));
+        assertArrayEquals(new int[] {0, 2, 3}, visitList.getPatientPositions("s1"));
+    }
+
+    @Test
+    void exportVisits_patientAndDateFilters_csvWithHeader() throws IOException, OneDocException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "visits.csv");
+        Exporter exporter = new Exporter(new PatientList(), getVisitList(), new PrescriptionList());
+
+        int count = exporter.exportVisits(file, "s1", "01-02-2024", "30-04-2024");
+
+        assertEquals(1, count);
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(2, lines.size());
+        assertEquals("id,date,time,reason", lines.get(0));
+        assertEquals("S1,10-03-2024,09:00,\"cough, cold\"", lines.get(1));
+    }
+
+    @Test
+    void exportPrescriptions_activeOnly_jsonLines() throws IOException, OneDocException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        File file = new File(directory, "prescriptions.jsonl");
+        PrescriptionList prescriptionList = new PrescriptionList();
+        prescriptionList.loadPrescription("S1", "Panadol", "1 tablet", "after \"meals\"", true);
+        prescriptionList.loadPrescription("S1", "Aspirin", "1 tablet", "daily", false);
+        prescriptionList.loadPrescription("S2", "Panadol", "2 tablets", "daily", true);
+        Exporter exporter = new Exporter(new PatientList(), new VisitList(), prescriptionList);
+
+        int count = exporter.exportPrescriptions(file, null, true);
+
+        assertEquals(2, count);
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals("{\"id\":\"S1\",\"medicine\":\"Panadol\",\"dosage\":\"1 tablet\","
+                + "\"interval\":\"after \\\"meals\\\"\",\"active\":true}", lines.get(0));
+        assertEquals(2, lines.size());
+    }
+}
@@ -0,0 +1,193 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a primary and a follower OneDoc as separate processes on the same data files, stops the primary without warning
+ * and checks that the follower takes over with the same records.
+ */
+class FollowerTest {
+    private static final long TIMEOUT_MILLIS = 30000;
+    private static final String PATIENT_LIST_START = "Here are the list of patients in the system:";
+    private static final String VISIT_LIST_START = "Here are the list of visits in the system:";
+    private static final String PRESCRIPTION_LIST_START = "Here are all the prescriptions:";
+    private static final String MAIN_MENU_START = "Please choose one of the following options:";
+
+    @Test
+    void standBy_primaryKilled_followerTakesOverSameRecords() throws IOException, InterruptedException {
+        checkTakeOver();
+    }
+
+    @Test
+    void standBy_binaryFormat_followerTakesOverSameRecords() throws IOException, InterruptedException {
+        checkTakeOver("-Donedoc.format=binary");
+    }
+
+    @Test
+    void standBy_interruptedWhilePrimaryRuns_notTakenOver() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        OneDocProcess primary = new OneDocProcess(directory, new String[0]);
+        try {
+            primary.waitFor(MAIN_MENU_START, 1);
+            Storage storage = new Storage(Paths.get(directory.getPath(), "src", "main", "java", "data").toFile());
+            Thread.currentThread().interrupt();
+            boolean isTakenOver = new Follower(storage, 10).standBy(new PatientList(), new VisitList(),
+                    new PrescriptionList());
+
+            assertFalse(isTakenOver);
+            assertTrue(Thread.interrupted());
+        } finally {
+            // Waiting for the primary to be killed would be cut short by an interrupt left on this thread.
+            Thread.interrupted();
+            primary.kill();
+        }
+    }
+
+    private static void checkTakeOver(String... properties) throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("onedoc").toFile();
+        StringBuilder csv = new StringBuilder("name,gender,dob,id\n");
+        for (int i = 0; i < 300; i++) {
+            csv.append("Patient ").append(toLetters(i)).append(",F,01-01-1990,S").append(i).append('\n');
+        }
+        Files.write(new File(directory, "patients.csv").toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        OneDocProcess primary = new OneDocProcess(directory, properties);
+        OneDocProcess follower = null;
+        try {
+            primary.send("1", "add n/Alice Tan g/F d/01-01-1990 i/A1");
+            primary.waitFor("I've added a patient!", 1);
+            follower = new OneDocProcess(directory, properties, "-Donedoc.follow=true",
+                    "-Donedoc.followInterval=10");
+            follower.waitFor("Standing by", 1);
+
+            // The import is large enough to rewrite the data file, and the changes after it go to the patch file.
+            primary.send("import f/patients.csv", "add n/Bob Lee g/M d/02-02-1980 i/B2", "edit i/A1 n/Alice Lim",
+                    "main", "2", "add i/B2 d/01-02-2024 t/10:00 r/cough", "edit x/1 r/fever", "main",
+                    "3", "add i/A1 n/Panadol d/2 tablets t/every 6 hours", "deactivate x/1", "main");
+            primary.waitFor("deactivated", 1);
+            primary.send("1", "viewall", "main", "2", "viewall", "main", "3", "viewall", "main");
+            primary.waitFor(PRESCRIPTION_LIST_START, 1);
+            primary.waitFor(MAIN_MENU_START, 7);
+            String primaryOutput = primary.getOutput();
+            primary.kill();
+
+            follower.waitFor("Taking over!", 1);
+            follower.send("1", "viewall", "main", "2", "viewall", "main", "3", "viewall", "main", "bye");
+            assertTrue(follower.waitForExit());
+            String followerOutput = follower.getOutput();
+
+            assertEquals(getSection(primaryOutput, PATIENT_LIST_START),
+                    getSection(followerOutput, PATIENT_LIST_START));
+            assertEquals(getSection(primaryOutput, VISIT_LIST_START), getSection(followerOutput, VISIT_LIST_START));
+            assertEquals(getSection(primaryOutput, PRESCRIPTION_LIST_START),
+                    getSection(followerOutput, PRESCRIPTION_LIST_START));
+            assertTrue(getSection(followerOutput, PATIENT_LIST_START).contains("Patient #302"));
+            assertTrue(getSection(followerOutput, PATIENT_LIST_START).contains("Alice Lim"));
+            assertTrue(getSection(followerOutput, VISIT_LIST_START).contains("fever"));
+        } finally {
+            primary.kill();
+            if (follower != null) {
+                follower.kill();
+            }
+        }
+    }
+
+    private static String toLetters(int number) {
+        StringBuilder letters = new StringBuilder();
+        for (int i = number; i > 0 || letters.length() == 0; i /= 26) {
+            letters.append((char) ('a' + i % 26));
+        }
+        return letters.toString();
+    }
+
+    private static String getSection(String output, String start) {
+        int from = output.lastIndexOf(start);
+        assertTrue(from >= 0, "missing " + start);
+        int to = output.indexOf(MAIN_MENU_START, from);
+        return output.substring(from, to < 0 ? output.length() : to);
+    }
+
+    /**
+     * OneDocProcess runs OneDoc in its own JVM with a given working folder, collecting everything it prints.
+     */
+    private static class OneDocProcess {
+        private final Process process;
+        private final OutputStream input;
+        private final StringBuffer output;
+
+        private OneDocProcess(File directory, String[] properties, String... followerProperties) throws IOException {
+            ArrayList<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(Arrays.asList(properties));
+            command.addAll(Arrays.asList(followerProperties));
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("OneDoc");
+            process = new ProcessBuilder(command).directory(directory).redirectErrorStream(true).start();
+            input = process.getOutputStream();
+            output = new StringBuffer();
+            Thread reader = new Thread(() -> {
+                byte[] buffer = new byte[8192];
+                try (InputStream stream = process.getInputStream()) {
+                    int read;
+                    while ((read = stream.read(buffer)) > 0) {
+                        output.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+                    }
+                } catch (IOException e) {
+                    // The process was killed.
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void send(String... lines) throws IOException {
+            for (String line : lines) {
+                input.write((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            }
+            input.flush();
+        }
+
+        private void waitFor(String text, int occurrences) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (countOccurrences(output.toString(), text) < occurrences) {
+                assertTrue(process.isAlive() && System.currentTimeMillis() < deadline,
+                        "gave up waiting for " + text + " in:\n" + output);
+                Thread.sleep(10);
+            }
+        }
+
+        private boolean waitForExit() throws InterruptedException {
+            return process.waitFor(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void kill() throws InterruptedException {
+            process.destroyForcibly().waitFor();
+        }
+
+        private String getOutput() {
+            return output.toString();
+        }
+
+        private static int countOccurrences(String output, String text) {
+            int count = 0;
+            for (int i = output.indexOf(text); i >= 0; i = output.indexOf(text, i + 1)) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
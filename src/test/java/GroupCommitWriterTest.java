@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitWriterTest {
+
+    @Test
+    void commit_singleWrite_runsBeforeReturning() {
+        GroupCommitWriter writer = new GroupCommitWriter();
+        AtomicInteger writes = new AtomicInteger();
+        writer.commit("patient.txt", writes::incrementAndGet);
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void commit_concurrentWritesToSameFile_coalesced() throws InterruptedException {
+        GroupCommitWriter writer = new GroupCommitWriter();
+        AtomicInteger writes = new AtomicInteger();
+        AtomicInteger returned = new AtomicInteger();
+        Runnable slowWrite = () -> {
+            writes.incrementAndGet();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        ArrayList<Thread> sessions = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Thread session = new Thread(() -> {
+                writer.commit("visit.txt", slowWrite);
+                returned.incrementAndGet();
+            });
+            sessions.add(session);
+            session.start();
+        }
+        for (Thread session : sessions) {
+            session.join();
+        }
+
+        assertEquals(16, returned.get());
+        assertTrue(writes.get() < 16);
+    }
+
+    @Test
+    void submit_writeBehind_writtenOnlyAfterFlush() {
+        GroupCommitWriter writer = new GroupCommitWriter(60000);
+        AtomicInteger writes = new AtomicInteger();
+        writer.submit("prescription.txt", writes::incrementAndGet);
+        writer.submit("prescription.txt", writes::incrementAndGet);
+        assertEquals(0, writes.get());
+
+        writer.flush();
+        assertEquals(1, writes.get());
+    }
+}
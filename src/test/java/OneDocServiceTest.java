@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OneDocServiceTest {
+    private PatientList patientList;
+    private VisitList visitList;
+    private PrescriptionList prescriptionList;
+    private OneDocService service;
+
+    @BeforeEach
+    void setUp() throws IOException, OneDocException {
+        patientList = new PatientList();
+        visitList = new VisitList(30);
+        prescriptionList = new PrescriptionList();
+        Storage storage = new Storage(Files.createTempDirectory("onedoc").toFile());
+        service = new OneDocService(patientList, visitList, prescriptionList, storage);
+        service.addPatient("Alice", "01-02-1990", "F", "s1");
+    }
+
+    @Test
+    void addPatient_takenOrInvalid_typedErrors() {
+        OneDocException duplicate = assertThrows(OneDocException.class,
+                () -> service.addPatient("Alice Again", "01-02-1990", "F", "S1"));
+        assertEquals(OneDocException.Type.DUPLICATE, duplicate.getType());
+        OneDocException invalid = assertThrows(OneDocException.class,
+                () -> service.addPatient("Bob", "31-02-1990", "M", "S2"));
+        assertEquals(OneDocException.Type.INVALID_INPUT, invalid.getType());
+        assertEquals(1, patientList.getTotalNumberofPatients());
+    }
+
+    @Test
+    void addVisits_slotTakenWithinBatch_noneAdded() throws OneDocException {
+        OneDocException error = assertThrows(OneDocException.class, () -> service.addVisits(Arrays.asList(
+                new Visit("S1", "01-03-2024", "10:00", "fever"),
+                new Visit("S1", "01-03-2024", "10:15", ""))));
+
+        assertEquals(OneDocException.Type.SLOT_TAKEN, error.getType());
+        assertEquals(0, visitList.getTotalVisits());
+        assertArrayEquals(new int[] {1, 2}, service.addVisits(Arrays.asList(
+                new Visit("S1", "01-03-2024", "10:00", "fever"),
+                new Visit("S1", "01-03-2024", "10:30", ""))));
+    }
+
+    @Test
+    void editVisitReason_missingOrDeletedVisit_notFound() throws OneDocException {
+        int number = service.addVisit("S1", "01-03-2024", "10:00", null);
+        assertEquals("checkup", service.editVisitReason(number, "checkup").getReason());
+        service.deleteVisit(number);
+
+        OneDocException error = assertThrows(OneDocException.class, () -> service.editVisitReason(number, "flu"));
+        assertEquals(OneDocException.Type.NOT_FOUND, error.getType());
+        assertThrows(OneDocException.class, () -> service.getVisit(number + 1));
+    }
+
+    @Test
+    void addPrescriptions_duplicateWithinBatch_noneAdded() {
+        OneDocException error = assertThrows(OneDocException.class, () -> service.addPrescriptions(Arrays.asList(
+                new Prescription("S1", "Panadol", "500 mg", "daily"),
+                new Prescription("s1", "panadol", "500 mg", "daily"))));
+
+        assertEquals(OneDocException.Type.DUPLICATE, error.getType());
+        assertEquals(0, prescriptionList.getTotalPrescriptions());
+    }
+
+    @Test
+    void deletePatient_withRecords_recordsDeletedAndCounted() throws OneDocException {
+        service.addVisit("S1", "01-03-2024", "10:00", "fever");
+        service.addPrescription("S1", "Panadol", "500 mg", "daily");
+
+        OneDocService.PatientDeletion deletion = service.deletePatient("S1");
+
+        assertEquals("S1", deletion.getPatient().getId());
+        assertEquals(1, deletion.getNumber());
+        assertEquals(1, deletion.getVisitCount());
+        assertEquals(1, deletion.getPrescriptionCount());
+        assertEquals(0, visitList.getTotalVisits());
+        OneDocException error = assertThrows(OneDocException.class, () -> service.getPatient("S1"));
+        assertEquals(OneDocException.Type.NOT_FOUND, error.getType());
+    }
+}
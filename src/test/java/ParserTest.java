@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
 
 public class ParserTest {
 
@@ -211,4 +214,59 @@ public class ParserTest {
 
     }
 
+    @Test
+    public void jsonOutput_commands_oneLineEach() {
+        PrintStream systemOut = System.out;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStream));
+        try {
+            ui = new UI(true);
+            p = new Parser(patientList, visitList, presList, ui);
+            ui.startCommand();
+            p.patientParser("add n/Ria g/F d/08-11-2001 i/400TXF");
+            ui.finishCommand();
+            ui.startCommand();
+            p.patientParser("add n/Ria g/X d/08-11-2001 i/400TXG");
+            ui.finishCommand();
+            ui.startCommand();
+            p.patientParser("viewall");
+            ui.printExitMessage();
+        } finally {
+            System.setOut(systemOut);
+        }
+
+        String[] lines = outputStream.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"records\":[{\"number\":1,\"name\":\"Ria\",\"gender\":\"F\","
+                + "\"dob\":\"08-11-2001\",\"id\":\"400TXF\"}],\"status\":\"ok\",\"error\":null,"));
+        assertTrue(lines[1].startsWith("{\"records\":[],\"status\":\"error\",\"error\":\"Incorrect format: "));
+        assertTrue(lines[2].startsWith("{\"records\":[{\"number\":1,"));
+        assertTrue(lines[2].endsWith("\"message\":\"Here are the list of patients in the system:\\nGoodbye!\"}"));
+    }
+
+    @Test
+    public void jsonOutput_errorWhileStarting_warningLine() {
+        PrintStream systemOut = System.out;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStream));
+        try {
+            ui = new UI(true);
+            UI.printErrorMessage(UI.INVALID_VISIT_DATA_MESSAGE);
+            p = new Parser(patientList, visitList, presList, ui);
+            ui.startCommand();
+            // Another user interface leaves the command running alone.
+            new UI(false);
+            p.patientParser("viewall");
+            ui.printExitMessage();
+        } finally {
+            System.setOut(systemOut);
+        }
+
+        String[] lines = outputStream.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"records\":[],\"status\":\"warning\",\"error\":"));
+        assertTrue(lines[0].contains(UI.INVALID_VISIT_DATA_MESSAGE.trim()));
+        assertTrue(lines[1].startsWith("{\"records\":[],\"status\":\"ok\","));
+        assertTrue(lines[1].endsWith("Goodbye!\"}"));
+    }
 }
@@ -4,7 +4,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -81,4 +84,118 @@ public class PatientListTest {
         patientList.addPatient(ui, "Jill", "10-10-2001", "F", "T1244");
         assertNull(patientList.findPatient("Michael"));
     }
+
+    @Test
+    void modifyPatientDetails_onlyEditedPatientTracked() {
+        PatientList patientList = new PatientList();
+        patientList.loadPatient("Jack", "12-10-2001", "M", "T1234");
+        patientList.loadPatient("Jill", "10-10-2001", "F", "T1244");
+        patientList.modifyPatientDetails(ui, "T1244", "", "", "M");
+        assertArrayEquals(new int[]{1}, patientList.getChangeTracker().takeChanges());
+        assertFalse(patientList.getChangeTracker().hasChanges());
+    }
+
+    @Test
+    void genderCounts_addEditAndRebuild_kept() {
+        PatientList patientList = new PatientList();
+        patientList.addPatient(ui, "Jack", "12-10-2001", "M", "T1234");
+        patientList.addPatient(ui, "Jill", "10-10-2001", "F", "T1244");
+        patientList.modifyPatientDetails(ui, "T1244", "", "", "M");
+        assertEquals(2, patientList.getMaleCount());
+        assertEquals(0, patientList.getFemaleCount());
+
+        patientList.loadPatient("James", "11-10-2001", "F", "T1334");
+        patientList.rebuildCounts();
+        assertEquals(2, patientList.getMaleCount());
+        assertEquals(1, patientList.getFemaleCount());
+    }
+
+    @Test
+    void containsPatientID_otherCase_foundLikeFindPatient() {
+        PatientList patientList = new PatientList();
+        patientList.loadPatient("Jack", "12-10-2001", "M", "t1234");
+
+        assertTrue(patientList.containsPatientID("T1234"));
+        assertTrue(patientList.containsPatientID("t1234"));
+        assertEquals("T1234", patientList.findPatient("t1234").getId());
+        assertFalse(patientList.containsPatientID("T12345"));
+    }
+
+    @Test
+    void loadPatient_replacedWithOtherId_foundByNewIdOnly() {
+        PatientList patientList = new PatientList();
+        patientList.loadPatient("Jack", "12-10-2001", "M", "T2001");
+        patientList.loadPatient("Jill", "10-10-2001", "F", "T2002");
+        patientList.loadPatient(1, "James", "11-10-2001", "M", "T2003");
+
+        assertNull(patientList.findPatient("T2002"));
+        assertEquals("James", patientList.findPatient("T2003").getName());
+        assertEquals("Jack", patientList.findPatient("T2001").getName());
+    }
+
+    @Test
+    void deletePatient_middlePatient_numbersKeptAndCountsUpdated() {
+        PatientList patientList = new PatientList();
+        patientList.addPatient(ui, "Jack", "12-10-2001", "M", "T1234");
+        patientList.addPatient(ui, "Jill", "10-10-2001", "F", "T1244");
+        patientList.addPatient(ui, "James", "11-10-2001", "M", "T1334");
+
+        assertTrue(patientList.deletePatient(ui, "t1244"));
+        assertFalse(patientList.deletePatient(ui, "T1244"));
+
+        assertNull(patientList.findPatient("T1244"));
+        assertEquals(2, patientList.getTotalNumberofPatients());
+        assertEquals(0, patientList.getFemaleCount());
+        assertEquals("James", patientList.getPatient(2).getName());
+        patientList.rebuildCounts();
+        assertEquals(2, patientList.getMaleCount());
+        assertEquals(0, patientList.getFemaleCount());
+    }
+
+    @Test
+    void select_pagesAfterDeletes_deletedPatientsSkipped() throws OneDocException {
+        PatientList patientList = new PatientList();
+        ArrayList<Integer> livePositions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            patientList.add(new Patient("Pat", "01-01-2000", "F", "B" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 == 0 || (i >= 32 && i < 64)) {
+                patientList.delete("B" + i);
+            } else {
+                livePositions.add(i);
+            }
+        }
+
+        for (int skip = 0; skip <= livePositions.size(); skip += 5) {
+            Selection<Patient> page = patientList.select(null, false, skip, 10);
+            List<Integer> expected = livePositions.subList(skip, Math.min(skip + 10, livePositions.size()));
+            assertEquals(expected.size(), page.size());
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals((int) expected.get(i), page.getPosition(i));
+            }
+        }
+    }
+
+    @Test
+    void select_sortedByNameAfterEditAndDelete_indexKeptInOrder() {
+        PatientList patientList = new PatientList();
+        patientList.addPatient(ui, "Zed", "12-10-2001", "M", "T1");
+        patientList.addPatient(ui, "amy", "10-10-1999", "F", "T2");
+        patientList.addPatient(ui, "Bob", "11-10-2005", "M", "T3");
+        patientList.addPatient(ui, "Cal", "11-10-2000", "M", "T4");
+        patientList.modifyPatientDetails(ui, "T1", "Abe", "", "");
+        patientList.deletePatient(ui, "T3");
+
+        Selection<Patient> byName = patientList.select(PatientList.SORT_BY_NAME, false, 0, 10);
+        Selection<Patient> page = patientList.select(PatientList.SORT_BY_BIRTH_DATE, true, 1, 2);
+
+        assertEquals(3, byName.size());
+        assertEquals("Abe", byName.get(0).getName());
+        assertEquals("amy", byName.get(1).getName());
+        assertEquals("Cal", byName.get(2).getName());
+        assertEquals(2, page.size());
+        assertEquals(3, page.getPosition(0));
+        assertEquals(1, page.getPosition(1));
+    }
 }
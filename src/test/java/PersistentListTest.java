@@ -0,0 +1,55 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentListTest {
+
+    @Test
+    void addAndSet_manyRecords_matchesArrayList() {
+        PersistentList<Integer> list = PersistentList.empty();
+        ArrayList<Integer> expected = new ArrayList<>();
+        Random random = new Random(38);
+        for (int i = 0; i < 40000; i++) {
+            list = list.add(i);
+            expected.add(i);
+            if (i % 7 == 0) {
+                int index = random.nextInt(expected.size());
+                list = list.set(index, -i);
+                expected.set(index, -i);
+            }
+        }
+
+        assertEquals(expected.size(), list.size());
+        int index = 0;
+        for (Integer item : list) {
+            assertEquals(expected.get(index), list.get(index));
+            assertEquals(expected.get(index), item);
+            index++;
+        }
+        assertEquals(expected.size(), index);
+    }
+
+    @Test
+    void addAndSet_oldVersion_unchanged() {
+        PersistentList<String> list = PersistentList.empty();
+        for (int i = 0; i < 1100; i++) {
+            list = list.add("record " + i);
+        }
+        PersistentList<String> oldVersion = list;
+
+        list = list.set(5, "edited").set(1099, "edited").add("new");
+
+        assertEquals(1100, oldVersion.size());
+        assertEquals("record 5", oldVersion.get(5));
+        assertEquals("record 1099", oldVersion.get(1099));
+        assertEquals("edited", list.get(5));
+        assertEquals("new", list.get(1100));
+        assertTrue(PersistentList.empty().isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> oldVersion.get(1100));
+    }
+}
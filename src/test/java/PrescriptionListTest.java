@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -241,4 +242,69 @@ class PrescriptionListTest {
 
         assertEquals(expectedOutput, OUTPUT_STREAM.toString().trim());
     }
+
+    @Test
+    void findPositions_medicineEditedAndActiveOnly_matched() {
+        PrescriptionList prescriptionList = new PrescriptionList();
+        prescriptionList.loadPrescription("S1", "Panadol", "1 tablet", "daily", true);
+        prescriptionList.loadPrescription("S1", "Aspirin", "1 tablet", "daily", false);
+        prescriptionList.loadPrescription("S2", "panadol", "2 tablets", "daily", true);
+        prescriptionList.edit(ui, 2, "Panadol", "2 tablets", "");
+
+        assertArrayEquals(new int[] {0, 1, 2}, prescriptionList.findPositions(null, "PANADOL", false));
+        assertArrayEquals(new int[] {0}, prescriptionList.findPositions("s1", "panadol", true));
+        assertArrayEquals(new int[0], prescriptionList.findPositions(null, "Aspirin", false));
+    }
+
+    @Test
+    void add_duplicateInOtherCase_rejectedAndShownAsEntered() {
+        PrescriptionList prescriptionList = new PrescriptionList();
+        prescriptionList.add(ui, "S1", "Panadol", "1 Tablet", "Daily");
+        prescriptionList.add(ui, "s1", "PANADOL", "1 tablet", "daily");
+        prescriptionList.add(ui, "S1", "panadol", "1 tablet", "Daily");
+
+        assertEquals(1, prescriptionList.getTotalPrescriptions());
+        Prescription prescription = prescriptionList.getPrescriptions().get(0);
+        assertEquals("Panadol", prescription.getMedicine());
+        assertEquals("1 Tablet", prescription.getDosage());
+        assertEquals("Daily", prescription.getTimeInterval());
+        assertEquals(new Prescription("S1", "panadol", "1 TABLET", "DAILY", false), prescription);
+        assertFalse(prescription.equals(new Prescription("S1", "Panadol", "2 tablets", "Daily")));
+    }
+
+    @Test
+    void getActiveCount_activateAndDeactivate_countedOnce() {
+        PrescriptionList prescriptionList = new PrescriptionList();
+        prescriptionList.loadPrescription("S1", "Panadol", "1 tablet", "daily", false);
+        prescriptionList.rebuildCounts();
+        prescriptionList.add(ui, "S1", "Aspirin", "1 tablet", "daily");
+        assertEquals(1, prescriptionList.getActiveCount());
+
+        prescriptionList.activatePrescription(ui, "1");
+        prescriptionList.activatePrescription(ui, "1");
+        assertEquals(2, prescriptionList.getActiveCount());
+        prescriptionList.deactivatePrescription(ui, "2");
+        assertEquals(1, prescriptionList.getActiveCount());
+    }
+
+    @Test
+    void delete_activePrescription_tombstonedAndCountsUpdated() {
+        PrescriptionList prescriptionList = new PrescriptionList();
+        prescriptionList.add(ui, "S1", "Panadol", "1 tablet", "daily");
+        prescriptionList.add(ui, "S2", "Aspirin", "1 tablet", "daily");
+        prescriptionList.add(ui, "S1", "Ibuprofen", "1 tablet", "daily");
+
+        prescriptionList.delete(ui, "1");
+        assertEquals(1, prescriptionList.deletePatientPrescriptions("s1"));
+
+        assertEquals(1, prescriptionList.getTotalPrescriptions());
+        assertEquals(1, prescriptionList.getActiveCount());
+        assertTrue(prescriptionList.getPrescriptions().get(2).isDeleted());
+        assertArrayEquals(new int[] {1}, prescriptionList.findPositions(null, null, false));
+        prescriptionList.rebuildCounts();
+        assertEquals(1, prescriptionList.getTotalPrescriptions());
+        OUTPUT_STREAM.reset();
+        prescriptionList.activatePrescription(ui, "1");
+        assertEquals("The index number is out of range. Try again.", OUTPUT_STREAM.toString().trim());
+    }
 }
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VisitColumnsTest {
+
+    @Test
+    void addAndSet_manyVisits_readBackUnchanged() {
+        VisitColumns visits = VisitColumns.empty();
+        ArrayList<Visit> expected = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            Visit visit = new Visit("S" + random.nextInt(300) + "A",
+                    String.format("%02d-%02d-%04d", 1 + random.nextInt(28), 1 + random.nextInt(12),
+                            1900 + random.nextInt(200)),
+                    String.format("%02d:%02d", random.nextInt(24), random.nextInt(60)), "reason " + (i % 17));
+            visits = visits.add(visit);
+            expected.add(visit);
+            if (i % 5 == 0) {
+                int index = random.nextInt(expected.size());
+                Visit changed = expected.get(index).withReason("changed " + i);
+                visits = visits.set(index, changed);
+                expected.set(index, changed);
+            }
+        }
+
+        assertEquals(expected.size(), visits.size());
+        int index = 0;
+        for (Visit visit : visits) {
+            assertVisitEquals(expected.get(index), visit);
+            assertVisitEquals(expected.get(index), visits.get(index));
+            index++;
+        }
+        assertEquals(expected.size(), index);
+    }
+
+    @Test
+    void set_oldVersion_unchanged() {
+        VisitColumns visits = VisitColumns.empty();
+        for (int i = 0; i < 100; i++) {
+            visits = visits.add(new Visit("S1A", "01-01-2024", "09:00", "fever"));
+        }
+
+        VisitColumns changed = visits.set(50, new Visit("S2B", "02-02-2024", "10:30", "cough"));
+
+        assertEquals("S1A", visits.get(50).getId());
+        assertEquals("fever", visits.get(50).getReason());
+        assertEquals("S2B", changed.get(50).getId());
+        assertEquals("10:30", changed.get(50).getTimeOfVisit());
+        assertEquals("fever", changed.get(49).getReason());
+    }
+
+    @Test
+    void add_unusualValues_readBackAsGiven() {
+        VisitColumns visits = VisitColumns.empty()
+                .add(Visit.archived("S1A"))
+                .add(null)
+                .add(new Visit("S2B", "31-02-2024", "00:00", ""))
+                .add(new Visit("S3C", "31-12-9999", "23:59", "check up"));
+
+        assertEquals(4, visits.size());
+        assertVisitEquals(Visit.archived("S1A"), visits.get(0));
+        assertNull(visits.get(1));
+        assertVisitEquals(new Visit("S2B", "31-02-2024", "00:00", ""), visits.get(2));
+        assertVisitEquals(new Visit("S3C", "31-12-9999", "23:59", "check up"), visits.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> visits.get(4));
+    }
+
+    /**
+     * Measure the heap used per visit by the columns and by a list of Visit objects, with a free-text reason of its own
+     * for every visit, next to the heap the reasons take on their own. Run it with
+     * ./gradlew test -Pbenchmark --tests VisitColumnsTest, best with -XX:+UseSerialGC.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "onedoc.benchmark", matches = "true")
+    void benchmark_uniqueReasons_bytesPerVisit() {
+        int visitCount = 2_000_000;
+        IntFunction<Visit> visitAt = i -> new Visit("S" + (i % 50_000) + "A",
+                String.format("%02d-%02d-%04d", 1 + i % 28, 1 + i % 12, 2000 + i % 25),
+                String.format("%02d:%02d", i % 24, i % 60), "pain in the left knee for " + i + " days");
+        // Every patient is given its key first, so that the keys are not counted with the reasons.
+        for (int i = 0; i < 50_000; i++) {
+            visitAt.apply(i);
+        }
+
+        long before = getUsedHeap();
+        String[] reasons = new String[visitCount];
+        for (int i = 0; i < visitCount; i++) {
+            reasons[i] = visitAt.apply(i).getReason();
+        }
+        long reasonBytes = getUsedHeap() - before;
+
+        before = getUsedHeap();
+        VisitColumns columns = VisitColumns.empty();
+        for (int i = 0; i < visitCount; i++) {
+            columns = columns.add(visitAt.apply(i));
+        }
+        long columnBytes = getUsedHeap() - before;
+
+        before = getUsedHeap();
+        PersistentList<Visit> objects = PersistentList.empty();
+        for (int i = 0; i < visitCount; i++) {
+            objects = objects.add(visitAt.apply(i));
+        }
+        long objectBytes = getUsedHeap() - before;
+
+        assertEquals(visitCount, columns.size() + objects.size() - reasons.length);
+        System.out.printf("Reasons alone: %d bytes per visit%n", reasonBytes / visitCount);
+        System.out.printf("Columns: %d bytes per visit, %d without the reasons%n", columnBytes / visitCount,
+                (columnBytes - reasonBytes) / visitCount);
+        System.out.printf("Visit objects: %d bytes per visit, %d without the reasons%n", objectBytes / visitCount,
+                (objectBytes - reasonBytes) / visitCount);
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void assertVisitEquals(Visit expected, Visit actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDateOfVisit(), actual.getDateOfVisit());
+        assertEquals(expected.getTimeOfVisit(), actual.getTimeOfVisit());
+        assertEquals(expected.getReason(), actual.getReason());
+    }
+}
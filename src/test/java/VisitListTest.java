@@ -3,8 +3,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -215,6 +223,23 @@ public class VisitListTest {
         assertEquals(expectedOutput, OUTPUT_STREAM.toString().trim());
     }
 
+    @Test
+    void viewAll_moreVisitsThanOneWrite_printedInOrder() {
+        VisitList visitList = new VisitList();
+        StringBuilder expectedOutput = new StringBuilder("Here are the list of visits in the system:");
+        for (int i = 0; i < 500; i++) {
+            String time = String.format("%02d:%02d", i / 60 % 24, i % 60);
+            visitList.importVisit("S" + i, "23-05-2020", time, i % 2 == 0 ? "" : "flu");
+            expectedOutput.append(System.lineSeparator()).append(DASH)
+                    .append(System.lineSeparator()).append("\tVisit #").append(i + 1)
+                    .append(System.lineSeparator()).append(new Visit("S" + i, "23-05-2020", time,
+                            i % 2 == 0 ? "" : "flu"));
+        }
+        visitList.viewAll(ui);
+        expectedOutput.append(System.lineSeparator()).append(DASH);
+        assertEquals(expectedOutput.toString(), OUTPUT_STREAM.toString().trim());
+    }
+
     @Test
     void editReason() {
         VisitList visitList = new VisitList();
@@ -257,4 +282,238 @@ public class VisitListTest {
                         + DASH;
         assertEquals(expectedOutput, OUTPUT_STREAM.toString().trim());
     }
+
+    @Test
+    void findPositions_combinedConditions_intersected() {
+        VisitList visitList = new VisitList();
+        visitList.loadVisit("S1", "15-01-2024", "10:00", "Fever and cough");
+        visitList.loadVisit("S2", "20-01-2024", "11:00", "fever");
+        visitList.loadVisit("S1", "10-03-2024", "09:00", "fever");
+        visitList.loadVisit("S1", "01-05-2024", "09:00", "");
+
+        assertArrayEquals(new int[] {0, 2}, visitList.findPositions("s1", null, null, "FEVER"));
+        assertArrayEquals(new int[] {0}, visitList.findPositions("S1", "01-01-2024", "31-03-2024", "cough fever"));
+        assertArrayEquals(new int[] {1, 2}, visitList.findPositions(null, "16-01-2024", null, "fever"));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, visitList.findPositions(null, null, null, null));
+    }
+
+    @Test
+    void findPositions_reasonEdited_indexUpdated() {
+        VisitList visitList = new VisitList();
+        visitList.loadVisit("S1", "15-01-2024", "10:00", "fever");
+        visitList.editReason(ui, 1, "headache");
+
+        assertArrayEquals(new int[0], visitList.findPositions(null, null, null, "fever"));
+        assertArrayEquals(new int[] {0}, visitList.findPositions(null, null, null, "headache"));
+        visitList.deleteReason(ui, 1);
+        assertArrayEquals(new int[0], visitList.findPositions(null, null, null, "headache"));
+    }
+
+    @Test
+    void addVisit_overlappingSlot_refusedWithNextFree() {
+        VisitList visitList = new VisitList(15);
+        visitList.addVisit(ui, "S123", "23-05-2020", "13:00");
+        visitList.addVisit(ui, "S124", "23-05-2020", "13:15");
+        OUTPUT_STREAM.reset();
+
+        visitList.addVisit(ui, "S125", "23-05-2020", "13:10");
+
+        assertEquals(2, visitList.getTotalVisits());
+        assertEquals(UI.SLOT_TAKEN_MESSAGE + System.lineSeparator()
+                + "The next free slot on 23-05-2020 is at 13:30.", OUTPUT_STREAM.toString().trim());
+        assertTrue(visitList.isSlotFree("23-05-2020", "13:30"));
+        assertFalse(visitList.isSlotFree("23-05-2020", "12:50"));
+    }
+
+    @Test
+    void nextFree_defaultSettings_slotChecksOffShown() {
+        VisitList visitList = new VisitList();
+        visitList.addVisit(ui, "S123", "05-03-2024", "10:00");
+        visitList.addVisit(ui, "S124", "05-03-2024", "10:00");
+        OUTPUT_STREAM.reset();
+
+        visitList.nextFree(ui, "05-03-2024", "10:00");
+
+        String output = OUTPUT_STREAM.toString();
+        assertEquals(2, visitList.getTotalVisits());
+        assertTrue(output.contains(UI.SLOT_CHECKS_OFF_MESSAGE));
+        assertFalse(output.contains("The next free slot"));
+    }
+
+    @Test
+    void isSlotFree_visitReplacedWhileLoading_slotReleased() {
+        VisitList visitList = new VisitList(30);
+        visitList.loadVisit("S123", "23-05-2020", "13:00", "");
+        visitList.loadVisit("S124", "23-05-2020", "13:20", "");
+        visitList.loadVisit(1, "S124", "24-05-2020", "13:20", "");
+
+        assertTrue(visitList.isSlotFree("23-05-2020", "13:30"));
+        assertFalse(visitList.isSlotFree("23-05-2020", "13:29"));
+        assertFalse(visitList.isSlotFree("24-05-2020", "13:00"));
+    }
+
+    @Test
+    void archiveBefore_oldVisits_readBackThroughArchive() throws IOException {
+        File directory = Files.createTempDirectory("visit_archive").toFile();
+        VisitList visitList = new VisitList(15);
+        visitList.setArchive(new VisitArchive(directory, 1));
+        visitList.loadVisit("S1", "15-01-2020", "10:00", "fever");
+        visitList.loadVisit("S2", "20-01-2020", "11:00", "cough");
+        visitList.loadVisit("S1", "10-03-2024", "09:00", "fever");
+
+        assertEquals(2, visitList.archiveBefore(LocalDate.of(2024, 1, 1)));
+
+        assertEquals(3, visitList.getTotalVisits());
+        assertTrue(visitList.getVisits().get(0).isArchived());
+        assertArrayEquals(new int[] {2}, visitList.findPositions(null, null, null, "fever"));
+        assertArrayEquals(new int[] {2}, visitList.findPositions(null, null, null, null));
+        assertTrue(visitList.isSlotFree("15-01-2020", "10:00"));
+        OUTPUT_STREAM.reset();
+        visitList.viewPatient(ui, "S1");
+        String patientVisits = OUTPUT_STREAM.toString();
+        assertTrue(patientVisits.indexOf("\tVisit #1") < patientVisits.indexOf("\tVisit #3"));
+        assertTrue(patientVisits.contains("15-01-2020"));
+        OUTPUT_STREAM.reset();
+        visitList.viewAll(ui, VisitList.SORT_BY_DATE, false, 1, 20);
+        String sortedVisits = OUTPUT_STREAM.toString();
+        assertTrue(sortedVisits.contains("2 archived visit(s) not shown"));
+        assertTrue(sortedVisits.contains("Page 1 of 1"));
+
+        // A restart only finds the stand-ins in the data file, and reads the visits from the archive files.
+        VisitList reloadedList = new VisitList(15);
+        reloadedList.setArchive(new VisitArchive(directory, 1));
+        reloadedList.loadArchivedVisit(0, "S1");
+        reloadedList.loadArchivedVisit(1, "S2");
+        OUTPUT_STREAM.reset();
+        reloadedList.viewVisit(ui, 2);
+        reloadedList.viewVisit(ui, 1);
+        reloadedList.editReason(ui, 1, "headache");
+        String archivedVisits = OUTPUT_STREAM.toString();
+        assertTrue(archivedVisits.contains("Reason: cough"));
+        assertTrue(archivedVisits.contains("Reason: fever"));
+        assertTrue(archivedVisits.contains("Visit #1 has been archived and can no longer be changed!"));
+    }
+
+    @Test
+    void deletePatientVisits_visitsOfPatient_tombstonedAndLeftOut() {
+        VisitList visitList = new VisitList(15);
+        visitList.loadVisit("S1", "15-01-2024", "10:00", "fever");
+        visitList.loadVisit("S2", "15-01-2024", "11:00", "cough");
+        visitList.loadVisit("S1", "10-03-2024", "09:00", "fever");
+
+        assertEquals(2, visitList.deletePatientVisits("s1"));
+        visitList.deleteVisit(ui, 1);
+
+        assertEquals(1, visitList.getTotalVisits());
+        assertTrue(visitList.getVisits().get(2).isDeleted());
+        assertArrayEquals(new int[] {1}, visitList.findPositions(null, null, null, null));
+        assertArrayEquals(new int[0], visitList.findPositions(null, null, null, "fever"));
+        assertTrue(visitList.isSlotFree("15-01-2024", "10:00"));
+        OUTPUT_STREAM.reset();
+        visitList.viewVisit(ui, 3);
+        visitList.editReason(ui, 1, "headache");
+        String output = OUTPUT_STREAM.toString();
+        assertTrue(output.contains("There is no such visit in the system with index 3!"));
+        assertTrue(output.contains("There is no such visit in the system with index 1!"));
+    }
+
+    @Test
+    void select_sortedByDate_orderedByDateThenTime() {
+        VisitList visitList = new VisitList(15);
+        visitList.loadVisit("S1", "01-01-2024", "11:00", "");
+        visitList.loadVisit("S2", "31-12-2023", "10:00", "");
+        visitList.loadVisit("S3", "01-01-2024", "09:00", "");
+        visitList.loadVisit("S4", "02-01-2024", "08:00", "");
+
+        Selection<Visit> ascending = visitList.select(VisitList.SORT_BY_DATE, false, 0, 10);
+        Selection<Visit> secondPage = visitList.select(VisitList.SORT_BY_DATE, true, 2, 2);
+
+        assertEquals(4, ascending.size());
+        assertArrayEquals(new int[] {1, 2, 0, 3}, new int[] {ascending.getPosition(0), ascending.getPosition(1),
+            ascending.getPosition(2), ascending.getPosition(3)});
+        assertEquals(2, secondPage.size());
+        assertEquals("S3", secondPage.get(0).getId());
+        assertEquals("S2", secondPage.get(1).getId());
+    }
+
+    @Test
+    void select_pagesAfterDeletes_deletedVisitsSkipped() throws OneDocException {
+        VisitList visitList = new VisitList(0);
+        ArrayList<Integer> livePositions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            visitList.loadVisit("S" + i, "01-01-2024", "10:00", "");
+        }
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 == 0 || (i >= 32 && i < 64)) {
+                visitList.deleteVisit(i + 1);
+            } else {
+                livePositions.add(i);
+            }
+        }
+
+        for (int skip = 0; skip <= livePositions.size(); skip += 5) {
+            Selection<Visit> page = visitList.select(null, false, skip, 10);
+            List<Integer> expected = livePositions.subList(skip, Math.min(skip + 10, livePositions.size()));
+            assertEquals(expected.size(), page.size());
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals((int) expected.get(i), page.getPosition(i));
+            }
+        }
+    }
+
+    @Test
+    void select_lazyList_onlyVisitsOfRunRead() throws IOException {
+        List<String[]> records = Arrays.asList(
+                new String[] {"S1", "a", "03-01-2024", "10:00"},
+                new String[] {"S2", "", Visit.DELETED, Visit.DELETED},
+                new String[] {"S3", "b", "01-01-2024", "09:00"},
+                new String[] {"S4", "c", "02-01-2024", "08:00"},
+                new String[] {"S5", "d", "01-01-2024", "11:00"});
+        File file = new File(Files.createTempDirectory("onedoc").toFile(), "visit.txt");
+        DataFile dataFile = new DataFile(file, 4, 1, false);
+        dataFile.requestRewrite();
+        dataFile.save(records, new ChangeTracker(), new DataFile.Records() {
+            @Override
+            public int size() {
+                return records.size();
+            }
+
+            @Override
+            public String getPatientId(int index) {
+                return records.get(index)[0];
+            }
+
+            @Override
+            public String[] getFields(int index) {
+                return records.get(index);
+            }
+        });
+        VisitList visitList = new VisitList(15);
+        ArrayList<Integer> read = new ArrayList<>();
+        visitList.setLazyRecords(new DataFile(file, 4, 1, false).loadLazily(visitList::reserve,
+            (index, inputs, isTrusted) -> {
+                read.add(index);
+                if (Visit.DELETED.equals(inputs[2])) {
+                    visitList.loadDeletedVisit(index, inputs[0]);
+                } else {
+                    visitList.loadVisit(index, inputs[0], inputs[2], inputs[3], inputs[1]);
+                }
+                return true;
+            }, 2, fields -> Visit.DELETED.equals(fields[2])).getLazyRecords());
+
+        assertEquals(4, visitList.getTotalVisits());
+        assertTrue(read.isEmpty());
+
+        Selection<Visit> page = visitList.select(null, false, 1, 2);
+        assertArrayEquals(new int[] {2, 3}, new int[] {page.getPosition(0), page.getPosition(1)});
+        assertEquals(Arrays.asList(2, 3), read);
+
+        Selection<Visit> sortedPage = visitList.select(VisitList.SORT_BY_DATE, false, 0, 2);
+        assertEquals(2, sortedPage.size());
+        assertEquals("S3", sortedPage.get(0).getId());
+        assertEquals("S5", sortedPage.get(1).getId());
+        // Only the visits on the first date were read, and the visit on the last date is still in the data file.
+        assertEquals(Arrays.asList(2, 3, 4), read);
+        assertEquals(4, visitList.getTotalVisits());
+    }
 }